@@ -0,0 +1,211 @@
+package com.eharmony.pho.hbase.translator;
+
+import java.lang.reflect.Array;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.builder.QueryBuilder;
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.Operator;
+import com.eharmony.pho.query.criterion.Restrictions;
+import com.eharmony.pho.query.criterion.expression.EqualityExpression;
+import com.eharmony.pho.query.criterion.expression.Expression;
+import com.eharmony.pho.query.criterion.expression.UnaryExpression;
+import com.eharmony.pho.query.criterion.junction.Conjunction;
+import com.eharmony.pho.query.criterion.junction.Junction;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the single buffer criteria translation with the rendering it replaced, one string per subquery joined with
+ * Lists.transform and Joiner. Run with the gc profiler and compare gc.alloc.rate.norm, the bytes allocated per
+ * translated query.
+ *
+ * The query only uses the operators the replaced rendering supported, it threw on IN and BETWEEN.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriteriaTranslationBenchmark {
+
+    private PhoenixHBaseQueryTranslator translator;
+    private BaselineRendering baseline;
+    private QuerySelect<TranslationTestClass, TranslationTestClass> query;
+
+    @Setup
+    public void setUp() throws ClassNotFoundException {
+        EntityPropertiesResolver propertiesResolver = new EntityPropertiesResolver(
+                new EntityPropertiesMappingContext(Arrays.asList(TranslationTestClass.class.getName())));
+        translator = new PhoenixHBaseQueryTranslator(propertiesResolver);
+        translator.setTemplateCacheSize(0);
+        baseline = new BaselineRendering(propertiesResolver);
+        query = QueryBuilder.builderFor(TranslationTestClass.class).select(Arrays.asList("userId", "name"))
+                .add(Restrictions.eq("name", "o'neil"))
+                .add(Restrictions.or(Restrictions.gt("userId", 10), Restrictions.lte("userId", 3)))
+                .add(Restrictions.gte("createdAt", new Date(1000000000000L)))
+                .add(Restrictions.lt("createdAt", new Date(1100000000000L))).add(Restrictions.isNotNull("password"))
+                .build();
+    }
+
+    @Benchmark
+    public String singleBuffer() {
+        return translator.translate(query);
+    }
+
+    @Benchmark
+    public String parameterized() {
+        return translator.translateParameterized(query).getQueryString();
+    }
+
+    @Benchmark
+    public String stringPerSubquery() {
+        return baseline.translate(query);
+    }
+
+    /**
+     * The select rendering of the translator before the single buffer translation, trimmed to the operators the
+     * benchmarked query uses.
+     */
+    private static final class BaselineRendering {
+
+        private final MorphiaEntityResolver entityResolver = new MorphiaEntityResolver();
+        private final EntityPropertiesResolver entityPropertiesResolver;
+
+        private BaselineRendering(EntityPropertiesResolver entityPropertiesResolver) {
+            this.entityPropertiesResolver = entityPropertiesResolver;
+        }
+
+        private <T, R> String translate(QuerySelect<T, R> query) {
+            List<String> fields = query.getReturnFields();
+            Criterion rootCriterion = query.getCriteria();
+            Class<T> entityClass = query.getEntityClass();
+            Joiner spaceJoiner = Joiner.on(" ");
+            String projection = "*";
+            if (CollectionUtils.isNotEmpty(fields)) {
+                projection = Joiner.on(", ").join(
+                        entityPropertiesResolver.resolveEntityMappingPropertyNames(fields, entityClass));
+            }
+            String queryString = spaceJoiner.join(new String[] { "SELECT", projection,
+                    PhoenixHBaseClauses.FROM.symbol(), entityResolver.resolve(entityClass) });
+            if (rootCriterion != null) {
+                queryString = spaceJoiner.join(queryString, PhoenixHBaseClauses.WHERE.symbol(),
+                        translate(rootCriterion, entityClass));
+            }
+            return queryString;
+        }
+
+        private String translate(Criterion c, Class<?> entityClass) {
+            if (c instanceof Expression) {
+                String fieldName = entityPropertiesResolver.resolve(((Expression) c).getPropertyName(), entityClass);
+                if (c instanceof EqualityExpression) {
+                    return translate((EqualityExpression) c, fieldName);
+                } else if (c instanceof UnaryExpression && ((UnaryExpression) c).getOperator() == Operator.NOT_NULL) {
+                    return join(fieldName, PhoenixHBaseOperator.IS_NOT_NULL);
+                }
+            } else if (c instanceof Junction) {
+                return junction(c instanceof Conjunction ? PhoenixHBaseOperator.AND : PhoenixHBaseOperator.OR,
+                        subqueries((Junction) c, entityClass));
+            }
+            throw new UnsupportedOperationException(c.getClass().getSimpleName() + " type not supported.");
+        }
+
+        private String translate(EqualityExpression e, String fieldName) {
+            switch (e.getOperator()) {
+            case EQUAL:
+                return join(fieldName, PhoenixHBaseOperator.EQUAL, e.getValue());
+            case GREATER_THAN:
+                return join(fieldName, PhoenixHBaseOperator.GREATER_THAN, e.getValue());
+            case GREATER_THAN_OR_EQUAL:
+                return join(fieldName, PhoenixHBaseOperator.GREATER_THAN_OR_EQUAL, e.getValue());
+            case LESS_THAN:
+                return join(fieldName, PhoenixHBaseOperator.LESS_THAN, e.getValue());
+            case LESS_THAN_OR_EQUAL:
+                return join(fieldName, PhoenixHBaseOperator.LESS_THAN_OR_EQUAL, e.getValue());
+            default:
+                throw new UnsupportedOperationException(e.getOperator() + " not supported.");
+            }
+        }
+
+        private String[] subqueries(Junction j, Class<?> entityClass) {
+            List<Criterion> criteria = j.getCriteria();
+            List<String> translated = new ArrayList<String>(criteria.size());
+            for (Criterion c : criteria) {
+                String q = translate(c, entityClass);
+                if (q != null) {
+                    translated.add(q);
+                }
+            }
+            return translated.toArray((String[]) Array.newInstance(String.class, translated.size()));
+        }
+
+        private String junction(PhoenixHBaseOperator operator, String... subqueries) {
+            if (subqueries.length < 1) {
+                return "";
+            } else if (subqueries.length == 1) {
+                return subqueries[0];
+            } else {
+                return "(" + Joiner.on(") " + operator.symbol() + " (").join(subqueries) + ")";
+            }
+        }
+
+        private String join(String fieldName, Object... parts) {
+            return fieldName + " " + Joiner.on(" ").join(Lists.transform(Arrays.asList(parts), toString));
+        }
+
+        private final Function<Object, String> toString = new Function<Object, String>() {
+            @Override
+            public String apply(Object o) {
+                return string(o);
+            }
+        };
+
+        private String string(Object o) {
+            if (o instanceof String) {
+                return "'" + sanitizeString((String) o) + "'";
+            } else if (o instanceof Date) {
+                String formattedDate = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z").format((Date) o);
+                StringBuffer dateFormatBuilder = new StringBuffer("TO_DATE('");
+                dateFormatBuilder.append(formattedDate).append("', 'yyyy-MM-dd HH:mm:ss z')");
+                return dateFormatBuilder.toString();
+            } else if (o != null) {
+                return o.toString();
+            }
+            return null;
+        }
+
+        private String sanitizeString(String stringValue) {
+            if (stringValue.contains("'")) {
+                stringValue = stringValue.replace("'", "''");
+            }
+            if (stringValue.contains("\\")) {
+                stringValue = stringValue.replace("\\", "\\\\");
+            }
+            return stringValue;
+        }
+    }
+
+}
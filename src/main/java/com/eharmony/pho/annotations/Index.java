@@ -0,0 +1,34 @@
+package com.eharmony.pho.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a global secondary index of the entity table. The translator hints the index for queries constraining its
+ * leading properties when the index covers every property the query reads. Entities with several indexes list them
+ * with {@link Indexes}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Index {
+
+    /**
+     * @return name of the index
+     */
+    String name();
+
+    /**
+     * @return indexed properties, in index key order
+     */
+    String[] properties();
+
+    /**
+     * @return properties covered by the index through its INCLUDE clause
+     */
+    String[] include() default {};
+
+}
@@ -0,0 +1,23 @@
+package com.eharmony.pho.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a mapped property as part of the table's primary key. Composite keys list their columns through the position,
+ * which must follow the order of the PRIMARY KEY constraint, the leading column being 0.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface PrimaryKey {
+
+    /**
+     * @return position of the column within the primary key
+     */
+    int position() default 0;
+
+}
@@ -0,0 +1,30 @@
+package com.eharmony.pho.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.eharmony.pho.query.QueryHint;
+
+/**
+ * Declares the hints applied to every select query of the entity. Hints set on a query replace the entity hints of the
+ * same type.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface QueryHints {
+
+    /**
+     * @return hints without arguments, index hints are declared through {@link #indexes()}
+     */
+    QueryHint.Type[] value() default {};
+
+    /**
+     * @return indexes of the entity table to hint, in order of preference
+     */
+    String[] indexes() default {};
+
+}
@@ -0,0 +1,75 @@
+package com.eharmony.pho.api;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.eharmony.pho.query.QuerySelect;
+
+/**
+ * Non blocking counterpart of {@link DataStoreApi}. Operations run on a bounded executor and complete the returned
+ * future with the result, or exceptionally with a {@link DataStoreException}. Cancelling a future cancels the statement
+ * in flight for it.
+ */
+public interface AsyncDataStoreApi {
+
+    /**
+     * Saves given item to store.
+     *
+     * @param <T>
+     *            class type
+     * @param entity
+     *            T
+     * @return future completed with the saved entity
+     */
+    <T> CompletableFuture<T> saveAsync(T entity);
+
+    /**
+     * Saves all items in iterable in batches.
+     *
+     * @param <T>
+     *            entity class
+     * @param entities
+     *            Iterable
+     * @return future completed with the update counts
+     */
+    <T> CompletableFuture<int[]> saveBatchAsync(Iterable<T> entities);
+
+    /**
+     * Find records that satisfy the provided query.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query
+     * @return future completed with an {@link Iterable} of the results
+     */
+    <T, R> CompletableFuture<Iterable<R>> findAllAsync(QuerySelect<T, R> query);
+
+    /**
+     * Find one record that satisfies the provided query.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query
+     * @return future completed with the result, or null if there is none
+     */
+    <T, R> CompletableFuture<R> findOneAsync(QuerySelect<T, R> query);
+
+    /**
+     * Find a page of the records that satisfy the provided query. Requesting the next page as soon as a page is
+     * returned prefetches it while the current one is consumed.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query with the page size as maxResults
+     * @param pageToken
+     *            token of the previous page, null for the first page
+     * @return future completed with the page
+     */
+    <T, R> CompletableFuture<Page<R>> findPageAsync(QuerySelect<T, R> query, PageToken pageToken);
+
+}
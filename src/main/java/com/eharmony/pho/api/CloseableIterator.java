@@ -0,0 +1,23 @@
+package com.eharmony.pho.api;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} over datastore results that holds on to the underlying resources until it is closed or
+ * exhausted.
+ *
+ * @param <E>
+ *            element type
+ */
+public interface CloseableIterator<E> extends Iterator<E>, AutoCloseable {
+
+    /**
+     * Releases the underlying resources, calling it more than once has no effect.
+     *
+     * @throws DataStoreException
+     *             if an error occurs releasing the resources
+     */
+    @Override
+    public void close();
+
+}
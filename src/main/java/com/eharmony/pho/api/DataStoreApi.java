@@ -1,8 +1,12 @@
 package com.eharmony.pho.api;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.QueryUpdate;
 /**
  * Provides methods to operate with datastore.
  * @author vvangapandu
@@ -44,6 +48,78 @@ public interface DataStoreApi {
      */
     <T> int[] saveBatch(Iterable<T> entities);
 
+    /**
+     * Saves all items in iterable in batches, connection acquisition and every batch bounded by the deadline.
+     * 
+     * @param <T>
+     *            entity class
+     * @param entities
+     *            Iterable
+     * @param deadline
+     *            Deadline of the whole save
+     * @return update counts of the executed batches
+     *
+     * @throws DataStoreTimeoutException
+     *             if the deadline passes before all the batches are executed
+     */
+    <T> int[] saveBatch(Iterable<T> entities, Deadline deadline);
+
+    /**
+     * Deletes all items in iterable by their primary key, in batches.
+     * 
+     * @param <T>
+     *            entity class
+     * @param entities
+     *            Iterable
+     * @return update counts of the executed batches
+     */
+    <T> int[] deleteBatch(Iterable<T> entities);
+
+    /**
+     * Deletes all items in iterable by their primary key, in batches bounded by the deadline.
+     * 
+     * @param <T>
+     *            entity class
+     * @param entities
+     *            Iterable
+     * @param deadline
+     *            Deadline of the whole delete
+     * @return update counts of the executed batches
+     *
+     * @throws DataStoreTimeoutException
+     *             if the deadline passes before all the batches are executed
+     */
+    <T> int[] deleteBatch(Iterable<T> entities, Deadline deadline);
+
+    /**
+     * Deletes the records that satisfy the provided query, built with the delete operation type.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query
+     * @return number of records deleted
+     *
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    <T, R> int delete(QuerySelect<T, R> query);
+
+    /**
+     * Updates the selected fields of the records that satisfy the query criteria to the values of the query entity.
+     *
+     * @param <T>
+     *            class type
+     * @param query
+     *            update Query with criteria and selected fields
+     * @return number of records updated
+     *
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    <T> int update(QueryUpdate<T> query);
+
     /**
      * Find records that satisfy the provided query.
      *
@@ -59,6 +135,41 @@ public interface DataStoreApi {
      */
     <T, R> Iterable<R> findAll(QuerySelect<T, R> query);
 
+    /**
+     * Find records that satisfy the provided query, mapping them lazily as the stream is consumed. The underlying
+     * cursor and connection are held until the stream is closed or fully consumed, so use it in a try-with-resources
+     * block.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query
+     * @return a {@link Stream} of the mapped results
+     *
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    <T, R> Stream<R> stream(QuerySelect<T, R> query);
+
+    /**
+     * Find a page of the records that satisfy the provided query, its maxResults being the page size. The next page is
+     * fetched with the token of the page, seeking past its last row instead of scanning the previous pages again.
+     *
+     * @param <T>
+     *            class type
+     * @param <R> return param type
+     * @param query
+     *            Query with orderings, ties are broken by the primary key
+     * @param pageToken
+     *            token of the previous page, null for the first page
+     * @return the page of results
+     *
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    <T, R> Page<R> findPage(QuerySelect<T, R> query, PageToken pageToken);
+
     /**
      * Find one record that satisfies the provided query.
      * 
@@ -74,6 +185,40 @@ public interface DataStoreApi {
      */
     <T, R> R findOne(QuerySelect<T, R> query);
 
+    /**
+     * Find the entities with the given primary keys, looked up in batches.
+     *
+     * @param <T>
+     *            class type
+     * @param entityClass
+     *            entity class declaring its primary key columns
+     * @param keys
+     *            primary key values, a List of the column values in key order for composite keys
+     * @return the entities found, keyed by the key given for them
+     *
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys);
+
+    /**
+     * Find the entities with the given primary keys, all the lookup batches bounded by the deadline.
+     *
+     * @param <T>
+     *            class type
+     * @param entityClass
+     *            entity class declaring its primary key columns
+     * @param keys
+     *            primary key values, a List of the column values in key order for composite keys
+     * @param deadline
+     *            Deadline of the whole lookup
+     * @return the entities found, keyed by the key given for them
+     *
+     * @throws DataStoreTimeoutException
+     *             if the deadline passes before all the batches complete
+     */
+    <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys, Deadline deadline);
+
     /**
      * Updates an existing entity, but only for the selected fields.
      * @param <T>
@@ -0,0 +1,19 @@
+package com.eharmony.pho.api;
+
+/**
+ * A {@link DataStoreException} raised when an operation runs out of its time budget, either before a statement is
+ * started or while the store is executing it.
+ */
+public class DataStoreTimeoutException extends DataStoreException {
+
+    private static final long serialVersionUID = 4707402253961358157L;
+
+    public DataStoreTimeoutException(String message) {
+        super(message);
+    }
+
+    public DataStoreTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
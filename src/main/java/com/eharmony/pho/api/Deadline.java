@@ -0,0 +1,70 @@
+package com.eharmony.pho.api;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A point in time by which an operation must complete. The remaining budget is shared by every step of the operation,
+ * acquiring the connection and each statement it runs, so the whole operation is bounded rather than each step.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+    private final long budgetNanos;
+
+    private Deadline(long deadlineNanos, long budgetNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Creates a deadline the given duration from now.
+     * 
+     * @param duration
+     *            time budget, not negative
+     * @param unit
+     *            unit of the duration
+     * @return Deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration >= 0, "duration must not be negative");
+        long budgetNanos = unit.toNanos(duration);
+        return new Deadline(System.nanoTime() + budgetNanos, budgetNanos);
+    }
+
+    /**
+     * @param unit
+     *            unit of the result
+     * @return the time left before the deadline, 0 once it passed
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Fails the operation once the deadline passed.
+     * 
+     * @param operation
+     *            description of the step about to start, used in the exception message
+     * @throws DataStoreTimeoutException
+     *             if the deadline passed
+     */
+    public void check(String operation) {
+        if (isExpired()) {
+            throw new DataStoreTimeoutException("Deadline of " + TimeUnit.NANOSECONDS.toMillis(budgetNanos)
+                    + " ms exceeded before " + operation);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline [budgetMillis=" + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + ", remainingMillis="
+                + remaining(TimeUnit.MILLISECONDS) + "]";
+    }
+
+}
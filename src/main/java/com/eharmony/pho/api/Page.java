@@ -0,0 +1,48 @@
+package com.eharmony.pho.api;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One page of query results and the token to fetch the page following it.
+ *
+ * @param <R>
+ *            result type
+ */
+public class Page<R> implements Iterable<R> {
+
+    private final List<R> results;
+    private final PageToken nextPageToken;
+
+    public Page(List<R> results, PageToken nextPageToken) {
+        this.results = Collections.unmodifiableList(results);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<R> getResults() {
+        return results;
+    }
+
+    /**
+     * @return token to fetch the next page, null if this is the last page
+     */
+    public PageToken getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return results.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "Page [results=" + results.size() + ", nextPageToken=" + nextPageToken + "]";
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.eharmony.pho.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Opaque continuation token of a paged query, holding the ordering property values of the last row of a page. Pages
+ * following it start right after that row. The token is encoded as URL safe text to hand to clients; only plain value
+ * types are written to it, so decoding a token received from a client never instantiates arbitrary classes.
+ */
+public final class PageToken {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte SHORT = 4;
+    private static final byte BYTE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte BIG_DECIMAL = 9;
+    private static final byte DATE = 10;
+    private static final byte SQL_DATE = 11;
+    private static final byte TIMESTAMP = 12;
+    private static final byte CHARACTER = 13;
+    private static final byte BIG_INTEGER = 14;
+
+    private final List<String> propertyNames;
+    private final List<Object> values;
+
+    public PageToken(List<String> propertyNames, List<Object> values) {
+        if (propertyNames.size() != values.size()) {
+            throw new IllegalArgumentException("property names " + propertyNames + " do not match values " + values);
+        }
+        this.propertyNames = Collections.unmodifiableList(new ArrayList<String>(propertyNames));
+        this.values = Collections.unmodifiableList(new ArrayList<Object>(values));
+    }
+
+    /**
+     * @return names of the ordering properties, in ordering order
+     */
+    public List<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    /**
+     * @return values of the ordering properties of the last row of the page
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the token as URL safe text
+     */
+    public String encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(propertyNames.size());
+            for (int i = 0; i < propertyNames.size(); i++) {
+                out.writeUTF(propertyNames.get(i));
+                writeValue(out, values.get(i));
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * @param token
+     *            text returned by {@link #encode()}
+     * @return the decoded token
+     * @throws IllegalArgumentException
+     *             if the text is not a valid token
+     */
+    public static PageToken decode(String token) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(
+                    token.getBytes(StandardCharsets.US_ASCII))));
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("unsupported page token version");
+            }
+            int size = in.readInt();
+            if (size < 0 || size > 64) {
+                throw new IllegalArgumentException("invalid page token");
+            }
+            List<String> propertyNames = new ArrayList<String>(size);
+            List<Object> values = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                propertyNames.add(in.readUTF());
+                values.add(readValue(in));
+            }
+            return new PageToken(propertyNames, values);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("invalid page token", ex);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException("unsupported page token value type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case STRING:
+            return in.readUTF();
+        case INTEGER:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case DOUBLE:
+            return in.readDouble();
+        case FLOAT:
+            return in.readFloat();
+        case BOOLEAN:
+            return in.readBoolean();
+        case BIG_DECIMAL:
+            return new BigDecimal(in.readUTF());
+        case BIG_INTEGER:
+            return new BigInteger(in.readUTF());
+        case CHARACTER:
+            return in.readChar();
+        case TIMESTAMP:
+            Timestamp timestamp = new Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        case SQL_DATE:
+            return new java.sql.Date(in.readLong());
+        case DATE:
+            return new Date(in.readLong());
+        default:
+            throw new IllegalArgumentException("invalid page token value type " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * propertyNames.hashCode() + values.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        PageToken other = (PageToken) obj;
+        return propertyNames.equals(other.propertyNames) && values.equals(other.values);
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.eharmony.pho.hbase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.api.AsyncDataStoreApi;
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.api.Page;
+import com.eharmony.pho.api.PageToken;
+import com.eharmony.pho.hbase.cache.QueryResultCache;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.query.QueryCoalescer;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.hbase.util.PhoenixConnectionManager;
+import com.eharmony.pho.query.QuerySelect;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Asynchronous datastore api implementation for HBase store. Operations are run on a bounded executor with a
+ * connection leased from the {@link ConnectionProvider}; submissions beyond the executor capacity fail fast with a
+ * {@link DataStoreException}.
+ *
+ * Operations of queries with a {@link Deadline} fail with a {@link DataStoreTimeoutException} if it passes while they
+ * are queued, and wait for a connection only for the time left.
+ *
+ * Statements created for an operation are tracked so that cancelling its future cancels them. Phoenix versions which
+ * do not support {@link Statement#cancel()} get the statement closed instead, which closes its open scanners.
+ */
+public class PhoenixHBaseAsyncDataStoreApiImpl implements AsyncDataStoreApi {
+
+    public static final int DEFAULT_POOL_SIZE = 16;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixHBaseAsyncDataStoreApiImpl.class);
+
+    private final PhoenixHBaseQueryExecutor queryExecutor;
+    private final ConnectionProvider connectionProvider;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
+    // invalidated by the saves when set, the reads of this api do not go through them
+    private volatile QueryResultCache resultCache;
+    private volatile QueryCoalescer queryCoalescer;
+
+    public PhoenixHBaseAsyncDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor) {
+        this(connectionProvider, queryExecutor, DEFAULT_POOL_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PhoenixHBaseAsyncDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final int poolSize, final int queueCapacity) {
+        this(connectionProvider, queryExecutor, newExecutorService(poolSize, queueCapacity), true);
+    }
+
+    /**
+     * Runs the operations on the given executor, which is left for the caller to shut down.
+     */
+    public PhoenixHBaseAsyncDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final ExecutorService executorService) {
+        this(connectionProvider, queryExecutor, executorService, false);
+    }
+
+    private PhoenixHBaseAsyncDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final ExecutorService executorService,
+            final boolean ownsExecutorService) {
+        this.connectionProvider = Preconditions.checkNotNull(connectionProvider);
+        this.queryExecutor = Preconditions.checkNotNull(queryExecutor);
+        this.executorService = Preconditions.checkNotNull(executorService);
+        this.ownsExecutorService = ownsExecutorService;
+    }
+
+    private static ExecutorService newExecutorService(int poolSize, int queueCapacity) {
+        Preconditions.checkArgument(poolSize > 0, "poolSize must be positive");
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("pho-async-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> saveAsync(final T entity) {
+        return submit(new Operation<T>() {
+            @Override
+            public T execute(Connection conn) throws Exception {
+                T returnEntity = queryExecutor.save(entity, conn);
+                conn.commit();
+                WriteInvalidation.invalidate(queryExecutor, resultCache, queryCoalescer, entity.getClass());
+                return returnEntity;
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<int[]> saveBatchAsync(final Iterable<T> entities) {
+        return submit(new Operation<int[]>() {
+            @Override
+            public int[] execute(Connection conn) throws Exception {
+                int[] results = queryExecutor.saveBatch(entities, conn);
+                conn.commit();
+                WriteInvalidation.invalidate(queryExecutor, resultCache, queryCoalescer, entities);
+                return results;
+            }
+        });
+    }
+
+    @Override
+    public <T, R> CompletableFuture<Iterable<R>> findAllAsync(final QuerySelect<T, R> query) {
+        return submit(new Operation<Iterable<R>>() {
+            @Override
+            public Iterable<R> execute(Connection conn) throws Exception {
+                return queryExecutor.find(query, conn);
+            }
+        }, query.getDeadline());
+    }
+
+    @Override
+    public <T, R> CompletableFuture<R> findOneAsync(final QuerySelect<T, R> query) {
+        return submit(new Operation<R>() {
+            @Override
+            public R execute(Connection conn) throws Exception {
+                return queryExecutor.findOne(query, conn);
+            }
+        }, query.getDeadline());
+    }
+
+    @Override
+    public <T, R> CompletableFuture<Page<R>> findPageAsync(final QuerySelect<T, R> query, final PageToken pageToken) {
+        return submit(new Operation<Page<R>>() {
+            @Override
+            public Page<R> execute(Connection conn) throws Exception {
+                return queryExecutor.findPage(query, pageToken, conn);
+            }
+        }, query.getDeadline());
+    }
+
+    /**
+     * Schedules the operation on the executor.
+     *
+     * @param operation
+     *            work to run with a leased connection
+     * @return future completed with the operation result
+     */
+    protected <V> CompletableFuture<V> submit(final Operation<V> operation) {
+        return submit(operation, null);
+    }
+
+    /**
+     * Schedules the operation on the executor, within the deadline.
+     *
+     * @param operation
+     *            work to run with a leased connection
+     * @param deadline
+     *            bounds the time spent queued and acquiring the connection, may be null
+     * @return future completed with the operation result
+     */
+    protected <V> CompletableFuture<V> submit(final Operation<V> operation, final Deadline deadline) {
+        AsyncOperation<V> future = new AsyncOperation<V>(operation, deadline);
+        try {
+            executorService.execute(future);
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new DataStoreException("async operation rejected, executor is saturated", ex));
+        }
+        return future;
+    }
+
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the result cache whose results of the saved tables are invalidated once a save is committed, typically the
+     * cache of the {@link PhoenixHBaseDataStoreApiImpl} reading the same tables.
+     */
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Sets the coalescer whose in flight queries of the saved tables are detached once a save is committed.
+     */
+    public void setQueryCoalescer(QueryCoalescer queryCoalescer) {
+        this.queryCoalescer = queryCoalescer;
+    }
+
+    /**
+     * Shuts down the executor if it was created by this instance. The connection provider is left open.
+     */
+    public void close() {
+        if (ownsExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private void closeConnectionSafe(Connection conn) {
+        try {
+            connectionProvider.releaseConnection(conn);
+        } catch (Exception ex) {
+            logger.warn("Exception while closing the connection...", ex);
+        }
+    }
+
+    /**
+     * Unit of work run asynchronously against a connection.
+     */
+    protected interface Operation<V> {
+        V execute(Connection conn) throws Exception;
+    }
+
+    /**
+     * Future running its operation and cancelling the statements it created when cancelled.
+     */
+    private class AsyncOperation<V> extends CompletableFuture<V> implements Runnable {
+
+        private final Operation<V> operation;
+        private final Deadline deadline;
+        private final List<Statement> statements = new ArrayList<Statement>();
+
+        AsyncOperation(Operation<V> operation, Deadline deadline) {
+            this.operation = operation;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            Connection conn = null;
+            try {
+                // fails fast once the deadline passed in the queue
+                conn = PhoenixConnectionManager.getConnection(connectionProvider, deadline);
+                complete(operation.execute(track(conn)));
+            } catch (Throwable ex) {
+                completeExceptionally(ex instanceof DataStoreException ? ex : new DataStoreException(ex.getMessage(),
+                        ex));
+            } finally {
+                synchronized (statements) {
+                    statements.clear();
+                }
+                if (conn != null) {
+                    closeConnectionSafe(conn);
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                if (executorService instanceof ThreadPoolExecutor) {
+                    ((ThreadPoolExecutor) executorService).remove(this);
+                }
+                List<Statement> inFlight;
+                synchronized (statements) {
+                    inFlight = new ArrayList<Statement>(statements);
+                }
+                for (Statement statement : inFlight) {
+                    cancelStatement(statement);
+                }
+            }
+            return cancelled;
+        }
+
+        private void register(Statement statement) {
+            synchronized (statements) {
+                statements.add(statement);
+            }
+            // cancelled while the statement was being created
+            if (isCancelled()) {
+                cancelStatement(statement);
+            }
+        }
+
+        private Connection track(final Connection conn) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            Object result;
+                            try {
+                                result = method.invoke(conn, args);
+                            } catch (InvocationTargetException ex) {
+                                throw ex.getCause();
+                            }
+                            if (result instanceof Statement) {
+                                register((Statement) result);
+                            }
+                            return result;
+                        }
+                    });
+        }
+    }
+
+    private static void cancelStatement(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLFeatureNotSupportedException ex) {
+            try {
+                statement.close();
+            } catch (SQLException cx) {
+                logger.warn("Exception while closing the cancelled statement...", cx);
+            }
+        } catch (SQLException ex) {
+            logger.warn("Exception while cancelling the statement...", ex);
+        }
+    }
+
+}
@@ -1,18 +1,40 @@
 package com.eharmony.pho.hbase;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.eharmony.pho.api.CloseableIterator;
 import com.eharmony.pho.api.DataStoreApi;
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.api.Page;
+import com.eharmony.pho.api.PageToken;
+import com.eharmony.pho.hbase.cache.QueryResultCache;
 import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.query.QueryCoalescer;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
 import com.eharmony.pho.hbase.util.PhoenixConnectionManager;
+import com.eharmony.pho.hbase.util.PooledConnectionProvider;
 import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.QueryUpdate;
 import com.eharmony.pho.query.builder.QueryBuilder;
 import com.eharmony.pho.query.builder.QueryUpdateBuilder;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 /**
  * Datastore api implementation for HBase store. Using apache phoenix (http://phoenix.apache.org/) as sql layer to hbase
@@ -23,24 +45,48 @@ import com.google.common.base.Preconditions;
 public class PhoenixHBaseDataStoreApiImpl implements DataStoreApi {
 
     private final PhoenixHBaseQueryExecutor queryExecutor;
-    private final String connectionUrl;
+    private final ConnectionProvider connectionProvider;
+    // runs multi key lookup chunks concurrently when set
+    private ExecutorService executorService;
+    // caches findAll and findOne results when set
+    private QueryResultCache resultCache;
+    // shares the execution of identical concurrent findAll and findOne calls when set
+    private QueryCoalescer queryCoalescer;
     private static final Logger logger = LoggerFactory.getLogger(PhoenixHBaseDataStoreApiImpl.class);
 
+    /**
+     * Creates a data store api with its own {@link PooledConnectionProvider} of default settings. The pool keeps
+     * connections open and runs an idle connection evictor thread, call {@link #close()} when done with the api, e.g.
+     * with <code>destroy-method="close"</code> on the bean.
+     */
     public PhoenixHBaseDataStoreApiImpl(final String connectionUrl, final PhoenixHBaseQueryExecutor queryExecutor)
             throws Exception {
        this(connectionUrl, queryExecutor, false);
     }
     
+    /**
+     * Creates a data store api with its own {@link PooledConnectionProvider}, to be released with {@link #close()}.
+     */
     public PhoenixHBaseDataStoreApiImpl(final String connectionUrl, final PhoenixHBaseQueryExecutor queryExecutor, final boolean testConnection)
             throws Exception {
-        this.connectionUrl = connectionUrl;
+        this(new PooledConnectionProvider(connectionUrl), queryExecutor, testConnection);
+    }
+
+    public PhoenixHBaseDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor) throws Exception {
+        this(connectionProvider, queryExecutor, false);
+    }
+
+    public PhoenixHBaseDataStoreApiImpl(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final boolean testConnection) throws Exception {
+        this.connectionProvider = Preconditions.checkNotNull(connectionProvider);
         this.queryExecutor = Preconditions.checkNotNull(queryExecutor);
         
         // Below code will ensure that connection string is valid, if not will stop the context loading
         if(testConnection) {
-	        Connection conn = PhoenixConnectionManager.getConnection(connectionUrl);
+	        Connection conn = connectionProvider.getConnection();
 	        if (conn == null) {
-	            throw new IllegalStateException("unable to create phoenix connection with given url :" + connectionUrl);
+	            throw new IllegalStateException("unable to create phoenix connection with provider :" + connectionProvider);
 	        } else {
 	            closeConnectionSafe(conn);
 	        }
@@ -51,78 +97,322 @@ public class PhoenixHBaseDataStoreApiImpl implements DataStoreApi {
     public <T> T save(T entity) {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
+            conn = getConnection(null);
             T returnEntity = queryExecutor.save(entity, conn);
             conn.commit();
             return returnEntity;
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
+            invalidate(entity.getClass());
+        }
+    }
+
+    /*
+     * Timeouts are rethrown as is so callers can tell them from other failures.
+     */
+    private static RuntimeException propagate(Exception ex) {
+        if (ex instanceof DataStoreTimeoutException) {
+            return (DataStoreTimeoutException) ex;
+        }
+        return new RuntimeException(ex);
+    }
+
+    private Connection getConnection(Deadline deadline) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return PhoenixConnectionManager.getConnection(connectionProvider, deadline);
+        } finally {
+            queryExecutor.getQueryMetrics().recordConnectionAcquire(System.nanoTime() - start);
         }
     }
 
     private void closeConnectionSafe(Connection conn) {
         try {
-            if (conn != null) {
-                conn.close();
+            connectionProvider.releaseConnection(conn);
+        } catch (Exception ex) {
+            logger.warn("Exception while closing the connection...", ex);
+        }
+    }
+
+    /*
+     * Results of cached or coalesced queries are shared by their callers.
+     */
+    private <T, R> boolean isShared(QuerySelect<T, R> query) {
+        return (resultCache != null && resultCache.isCached(query.getEntityClass()))
+                || (queryCoalescer != null && queryCoalescer.isCoalesced(query.getEntityClass()));
+    }
+
+    /*
+     * Reads through the result cache, identical queries missing it being coalesced.
+     */
+    private <T, R, V> V read(final QuerySelect<T, R> query, boolean first, final Callable<V> execution) {
+        final Class<T> entityClass = query.getEntityClass();
+        final String tableName = queryExecutor.resolveTableName(entityClass);
+        final Object key = cacheKey(query, first);
+        Callable<V> load = execution;
+        if (queryCoalescer != null && queryCoalescer.isCoalesced(entityClass)) {
+            load = new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return queryCoalescer.execute(entityClass, tableName, key, query.getDeadline(), execution);
+                }
+            };
+        }
+        try {
+            if (resultCache != null && resultCache.isCached(entityClass)) {
+                return resultCache.get(entityClass, tableName, key, load);
             }
+            return load.call();
+        } catch (RuntimeException ex) {
+            // already propagated by the execution
+            throw ex;
         } catch (Exception ex) {
-            logger.warn("Exception while closing the connection...", ex.getMessage());
+            throw propagate(ex);
         }
     }
 
+    /*
+     * Results are cached by translated query and parameters, the return type and whether only the first row is kept.
+     */
+    private <T, R> Object cacheKey(QuerySelect<T, R> query, boolean first) {
+        return Arrays.asList(query.getReturnType(), first, queryExecutor.translateParameterized(query));
+    }
+
+    private void invalidate(Class<?> entityClass) {
+        WriteInvalidation.invalidate(queryExecutor, resultCache, queryCoalescer, entityClass);
+    }
+
+    private void invalidate(Iterable<?> entities) {
+        WriteInvalidation.invalidate(queryExecutor, resultCache, queryCoalescer, entities);
+    }
+
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of findAll and findOne results. Writes through this api invalidate the results of the written
+     * entities, writes made elsewhere are only seen once the cached results expire.
+     */
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Sets the coalescer sharing one execution between identical concurrent findAll or findOne calls.
+     */
+    public void setQueryCoalescer(QueryCoalescer queryCoalescer) {
+        this.queryCoalescer = queryCoalescer;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the executor running the chunks of multi key lookups concurrently, each on its own connection. Without one
+     * the chunks run one after the other.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Releases the connections held by the underlying {@link ConnectionProvider}.
+     */
+    public void close() {
+        connectionProvider.close();
+    }
+
     @Override
     public <T> Iterable<T> save(Iterable<T> entities) {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
+            conn = getConnection(null);
             Iterable<T> results = queryExecutor.save(entities, conn);
             conn.commit();
             return results;
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
+            invalidate(entities);
         }
     }
 
     @Override
     public <T> int[] saveBatch(Iterable<T> entities) {
+        return saveBatch(entities, null);
+    }
+
+    @Override
+    public <T> int[] saveBatch(Iterable<T> entities, Deadline deadline) {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
-            int[] results = queryExecutor.saveBatch(entities, conn);
+            conn = getConnection(deadline);
+            int[] results = queryExecutor.saveBatch(entities, conn, deadline);
             conn.commit();
             return results;
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
+            invalidate(entities);
         }
     }
 
     @Override
-    public <T, R> Iterable<R> findAll(QuerySelect<T, R> query) {
+    public <T> int[] deleteBatch(Iterable<T> entities) {
+        return deleteBatch(entities, null);
+    }
+
+    @Override
+    public <T> int[] deleteBatch(Iterable<T> entities, Deadline deadline) {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
+            conn = getConnection(deadline);
+            int[] results = queryExecutor.deleteBatch(entities, conn, deadline);
+            conn.commit();
+            return results;
+        } catch (Exception ex) {
+            throw propagate(ex);
+        } finally {
+            closeConnectionSafe(conn);
+            invalidate(entities);
+        }
+    }
+
+    @Override
+    public <T, R> int delete(QuerySelect<T, R> query) {
+        Connection conn = null;
+        try {
+            conn = getConnection(query.getDeadline());
+            return queryExecutor.delete(query, conn);
+        } catch (Exception ex) {
+            throw propagate(ex);
+        } finally {
+            closeConnectionSafe(conn);
+            invalidate(query.getEntityClass());
+        }
+    }
+
+    @Override
+    public <T> int update(QueryUpdate<T> query) {
+        Connection conn = null;
+        try {
+            conn = getConnection(query.getDeadline());
+            return queryExecutor.update(query, conn);
+        } catch (Exception ex) {
+            throw propagate(ex);
+        } finally {
+            closeConnectionSafe(conn);
+            invalidate(query.getEntity().getClass());
+        }
+    }
+
+    @Override
+    public <T, R> Iterable<R> findAll(final QuerySelect<T, R> query) {
+        if (!isShared(query)) {
+            return find(query);
+        }
+        return read(query, false, new Callable<Iterable<R>>() {
+            @Override
+            public Iterable<R> call() throws Exception {
+                return Collections.unmodifiableList(Lists.newArrayList(find(query)));
+            }
+        });
+    }
+
+    private <T, R> Iterable<R> find(QuerySelect<T, R> query) {
+        Connection conn = null;
+        try {
+            conn = getConnection(query.getDeadline());
             return queryExecutor.find(query, conn);
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
+        } finally {
+            closeConnectionSafe(conn);
+        }
+    }
+
+    @Override
+    public <T, R> Stream<R> stream(QuerySelect<T, R> query) {
+        Connection conn = null;
+        try {
+            conn = getConnection(query.getDeadline());
+            final Connection leased = conn;
+            final CloseableIterator<R> results = queryExecutor.stream(query, conn, new Runnable() {
+                @Override
+                public void run() {
+                    closeConnectionSafe(leased);
+                }
+            });
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                    .onClose(new Runnable() {
+                        @Override
+                        public void run() {
+                            results.close();
+                        }
+                    });
+        } catch (Exception ex) {
+            closeConnectionSafe(conn);
+            throw propagate(ex);
+        }
+    }
+
+    @Override
+    public <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys) {
+        return findByKeys(entityClass, keys, null);
+    }
+
+    @Override
+    public <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys, Deadline deadline) {
+        try {
+            return queryExecutor.findByKeys(entityClass, keys, connectionProvider, executorService, deadline);
+        } catch (Exception ex) {
+            throw propagate(ex);
+        }
+    }
+
+    @Override
+    public <T, R> Page<R> findPage(QuerySelect<T, R> query, PageToken pageToken) {
+        Connection conn = null;
+        try {
+            conn = getConnection(query.getDeadline());
+            return queryExecutor.findPage(query, pageToken, conn);
+        } catch (Exception ex) {
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
         }
     }
 
     @Override
-    public <T, R> R findOne(QuerySelect<T, R> query) {
+    public <T, R> R findOne(final QuerySelect<T, R> query) {
+        if (!isShared(query)) {
+            return findFirst(query);
+        }
+        return read(query, true, new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                return findFirst(query);
+            }
+        });
+    }
+
+    private <T, R> R findFirst(QuerySelect<T, R> query) {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
+            conn = getConnection(query.getDeadline());
             return queryExecutor.findOne(query, conn);
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
         }
@@ -131,13 +421,13 @@ public class PhoenixHBaseDataStoreApiImpl implements DataStoreApi {
     public <T> Iterable<T> findAllEntities(String key, Class<T> clz, String[] projection) throws Exception {
         Connection conn = null;
         try {
-            conn = PhoenixConnectionManager.getConnection(connectionUrl);
+            conn = getConnection(null);
             QueryBuilder<T, T> builder = new QueryBuilder<T, T>(clz, clz);
             builder.setReturnFields(projection);
             QuerySelect<T, T> query = builder.build();
             return queryExecutor.find(query, conn);
         } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            throw propagate(ex);
         } finally {
             closeConnectionSafe(conn);
         }
@@ -147,15 +437,16 @@ public class PhoenixHBaseDataStoreApiImpl implements DataStoreApi {
 	public <T> T save(T entity, List<String> selectedFields) {
 		Connection conn = null;
 		try {
-			conn = PhoenixConnectionManager.getConnection(connectionUrl);
+			conn = getConnection(null);
 			QueryUpdateBuilder updateBuilder = QueryUpdateBuilder.builderFor(entity).update(selectedFields);
 			T returnEntity = (T) queryExecutor.save(updateBuilder.build(), conn);
 			conn.commit();
 			return returnEntity;
 		} catch (Exception ex) {
-			throw new RuntimeException(ex);
+			throw propagate(ex);
 		} finally {
 			closeConnectionSafe(conn);
+			invalidate(entity.getClass());
 		}
 }
 
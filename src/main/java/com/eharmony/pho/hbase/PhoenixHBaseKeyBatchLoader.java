@@ -0,0 +1,307 @@
+package com.eharmony.pho.hbase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.hbase.metrics.LatencyHistogram;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Batches primary key lookups made concurrently by different threads. Lookups of an entity class arriving within
+ * windowMicros of the first one, or until maxBatchSize keys are collected, are loaded together with
+ * {@link PhoenixHBaseQueryExecutor#findByKeys(Class, java.util.Collection, ConnectionProvider, ExecutorService)}, a
+ * single IN query phoenix runs as a skip scan, and each row is handed back to the callers waiting for its key.
+ *
+ * Batches are loaded by the loader thread, or on the executor service when one is set.
+ */
+public class PhoenixHBaseKeyBatchLoader {
+
+    public static final long DEFAULT_WINDOW_MICROS = 1000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = PhoenixHBaseQueryExecutor.DEFAULT_KEY_LOOKUP_CHUNK_SIZE;
+
+    private final ConnectionProvider connectionProvider;
+    private final PhoenixHBaseQueryExecutor queryExecutor;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    // loads the batches when set
+    private ExecutorService executorService;
+
+    // guarded by itself
+    private final Map<Class<?>, Batch> pending = new HashMap<Class<?>, Batch>();
+    private final ConcurrentMap<Class<?>, BatchStats> stats = new ConcurrentHashMap<Class<?>, BatchStats>();
+
+    public PhoenixHBaseKeyBatchLoader(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor) {
+        this(connectionProvider, queryExecutor, DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public PhoenixHBaseKeyBatchLoader(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final long windowMicros, final int maxBatchSize) {
+        Preconditions.checkArgument(windowMicros > 0, "windowMicros must be positive");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.connectionProvider = Preconditions.checkNotNull(connectionProvider);
+        this.queryExecutor = Preconditions.checkNotNull(queryExecutor);
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("pho-key-loader-%d").build());
+    }
+
+    /**
+     * Adds the key to the batch of its entity class.
+     * 
+     * @param entityClass
+     *            entity class, must declare its {@link com.eharmony.pho.annotations.PrimaryKey} columns
+     * @param key
+     *            primary key value, a List or Object[] of the column values in key order for composite keys
+     * @return future completed with the entity, or null if there is none, once the batch is loaded
+     * @throws DataStoreException
+     *             if the loader is closed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> load(final Class<T> entityClass, Object key) {
+        Preconditions.checkNotNull(key, "key must not be null");
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        Batch full = null;
+        synchronized (pending) {
+            if (scheduler.isShutdown()) {
+                throw new DataStoreException("key batch loader is closed");
+            }
+            Batch batch = pending.get(entityClass);
+            if (batch == null) {
+                final Batch opened = new Batch(entityClass);
+                pending.put(entityClass, opened);
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch(entityClass, opened);
+                    }
+                }, windowMicros, TimeUnit.MICROSECONDS);
+                batch = opened;
+            }
+            batch.add(key, future);
+            if (batch.waiters.size() >= maxBatchSize) {
+                pending.remove(entityClass);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return (CompletableFuture<T>) future;
+    }
+
+    /**
+     * Loads the entity with the key in the batch of its entity class, blocking until the batch is loaded.
+     * 
+     * @see #load(Class, Object)
+     */
+    public <T> T get(Class<T> entityClass, Object key) {
+        try {
+            return load(entityClass, key).get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("Interrupted while waiting for a key batch", ie);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof DataStoreException ? (DataStoreException) cause : new DataStoreException(
+                    cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Loads the batches collected so far and rejects further lookups. The connection provider is left open.
+     */
+    public void close() {
+        List<Batch> batches;
+        synchronized (pending) {
+            if (scheduler.isShutdown()) {
+                return;
+            }
+            batches = new ArrayList<Batch>(pending.values());
+            pending.clear();
+            scheduler.shutdown();
+        }
+        for (Batch batch : batches) {
+            batch.load();
+        }
+    }
+
+    /*
+     * Run when the window of the batch ends, unless it was dispatched full before.
+     */
+    private void dispatch(Class<?> entityClass, Batch batch) {
+        synchronized (pending) {
+            if (pending.get(entityClass) != batch) {
+                return;
+            }
+            pending.remove(entityClass);
+        }
+        submit(batch);
+    }
+
+    private void submit(final Batch batch) {
+        Runnable load = new Runnable() {
+            @Override
+            public void run() {
+                batch.load();
+            }
+        };
+        try {
+            if (executorService != null) {
+                executorService.execute(load);
+            } else {
+                scheduler.execute(load);
+            }
+        } catch (RejectedExecutionException ex) {
+            batch.load();
+        }
+    }
+
+    private BatchStats stats(Class<?> entityClass) {
+        BatchStats entityStats = stats.get(entityClass);
+        if (entityStats == null) {
+            BatchStats created = new BatchStats();
+            entityStats = stats.putIfAbsent(entityClass, created);
+            if (entityStats == null) {
+                entityStats = created;
+            }
+        }
+        return entityStats;
+    }
+
+    /**
+     * @return number of batches of the entity class loaded
+     */
+    public long getBatchCount(Class<?> entityClass) {
+        BatchStats entityStats = stats.get(entityClass);
+        return entityStats != null ? entityStats.batches.get() : 0;
+    }
+
+    /**
+     * @return number of distinct keys of the entity class loaded, getKeyCount / getBatchCount being the mean batch size
+     */
+    public long getKeyCount(Class<?> entityClass) {
+        BatchStats entityStats = stats.get(entityClass);
+        return entityStats != null ? entityStats.keys.get() : 0;
+    }
+
+    /**
+     * @return number of distinct keys of the largest batch of the entity class
+     */
+    public long getMaxBatchSize(Class<?> entityClass) {
+        BatchStats entityStats = stats.get(entityClass);
+        return entityStats != null ? entityStats.maxKeys.get() : 0;
+    }
+
+    /**
+     * @return time from the first lookup of a batch to its results being handed back, null before the first batch
+     */
+    public LatencyHistogram getBatchLatency(Class<?> entityClass) {
+        BatchStats entityStats = stats.get(entityClass);
+        return entityStats != null ? entityStats.latency : null;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the executor loading the batches, so that batches of different entity classes or windows load
+     * concurrently. Without one the batches load one after the other on the loader thread.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    private static final class BatchStats {
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong keys = new AtomicLong();
+        private final AtomicLong maxKeys = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private final class Batch {
+
+        private final Class<?> entityClass;
+        private final long openedAt = System.nanoTime();
+        // callers waiting per normalized key, keeping the key as first given
+        private final Map<List<Object>, Waiters> waiters = new LinkedHashMap<List<Object>, Waiters>();
+
+        private Batch(Class<?> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        private void add(Object key, CompletableFuture<Object> future) {
+            List<Object> normalizedKey = PhoenixHBaseQueryExecutor.normalizeKey(key);
+            Waiters keyWaiters = waiters.get(normalizedKey);
+            if (keyWaiters == null) {
+                keyWaiters = new Waiters(key);
+                waiters.put(normalizedKey, keyWaiters);
+            }
+            keyWaiters.futures.add(future);
+        }
+
+        private void load() {
+            List<Object> keys = new ArrayList<Object>(waiters.size());
+            for (Waiters keyWaiters : waiters.values()) {
+                keys.add(keyWaiters.key);
+            }
+            Map<Object, ?> found = null;
+            DataStoreException failure = null;
+            try {
+                found = queryExecutor.findByKeys(entityClass, keys, connectionProvider, null);
+            } catch (Throwable ex) {
+                failure = ex instanceof DataStoreException ? (DataStoreException) ex : new DataStoreException(
+                        ex.getMessage(), ex);
+            }
+            // recorded before the callers are released
+            BatchStats entityStats = stats(entityClass);
+            entityStats.batches.incrementAndGet();
+            entityStats.keys.addAndGet(keys.size());
+            long max = entityStats.maxKeys.get();
+            while (keys.size() > max && !entityStats.maxKeys.compareAndSet(max, keys.size())) {
+                max = entityStats.maxKeys.get();
+            }
+            entityStats.latency.recordNanos(System.nanoTime() - openedAt);
+            for (Waiters keyWaiters : waiters.values()) {
+                for (CompletableFuture<Object> future : keyWaiters.futures) {
+                    if (failure != null) {
+                        future.completeExceptionally(failure);
+                    } else {
+                        future.complete(found.get(keyWaiters.key));
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Waiters {
+
+        private final Object key;
+        private final List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>(1);
+
+        private Waiters(Object key) {
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,423 @@
+package com.eharmony.pho.hbase;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.hbase.cache.QueryResultCache;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.query.QueryCoalescer;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+import com.eharmony.pho.mapper.EntityPropertyBinding;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Write-behind buffer for entity saves. Saved entities are held in a bounded buffer keyed by their
+ * {@link com.eharmony.pho.annotations.PrimaryKey} and written by a background thread with
+ * {@link PhoenixHBaseQueryExecutor#saveBatch(Iterable, Connection)}, once flushSize rows are buffered or every
+ * flushIntervalMillis. Saves of a row already buffered are coalesced into a single upsert, the fields of the later save
+ * overriding those of the earlier ones. Null values are not written, as with {@link PhoenixHBaseDataStoreApiImpl}.
+ *
+ * The future returned by a save completes once the batch holding the row is committed. When the buffer holds
+ * capacity rows, saves of new rows block until a flush frees room.
+ */
+public class PhoenixHBaseWriteBehindWriter {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_FLUSH_SIZE = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixHBaseWriteBehindWriter.class);
+
+    private final ConnectionProvider connectionProvider;
+    private final PhoenixHBaseQueryExecutor queryExecutor;
+    private final EntityPropertiesResolver entityPropertiesResolver;
+    private final int capacity;
+    private final int flushSize;
+    private final ScheduledExecutorService flusher;
+    // invalidated by the flushes when set
+    private volatile QueryResultCache resultCache;
+    private volatile QueryCoalescer queryCoalescer;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushPending();
+        }
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock
+    private Map<RowKey, PendingWrite> pending = new LinkedHashMap<RowKey, PendingWrite>();
+    private int inFlight;
+    private boolean closed;
+
+    public PhoenixHBaseWriteBehindWriter(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final EntityPropertiesResolver entityPropertiesResolver) {
+        this(connectionProvider, queryExecutor, entityPropertiesResolver, DEFAULT_CAPACITY, DEFAULT_FLUSH_SIZE,
+                DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public PhoenixHBaseWriteBehindWriter(final ConnectionProvider connectionProvider,
+            final PhoenixHBaseQueryExecutor queryExecutor, final EntityPropertiesResolver entityPropertiesResolver,
+            final int capacity, final int flushSize, final long flushIntervalMillis) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+        Preconditions.checkArgument(flushSize > 0 && flushSize <= capacity, "flushSize must be between 1 and capacity");
+        Preconditions.checkArgument(flushIntervalMillis > 0, "flushIntervalMillis must be positive");
+        this.connectionProvider = Preconditions.checkNotNull(connectionProvider);
+        this.queryExecutor = Preconditions.checkNotNull(queryExecutor);
+        this.entityPropertiesResolver = Preconditions.checkNotNull(entityPropertiesResolver);
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("pho-write-behind-%d").build());
+        this.flusher.scheduleWithFixedDelay(flushTask, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers all the fields of the entity.
+     *
+     * @see #save(Object, List)
+     */
+    public <T> CompletableFuture<T> save(T entity) {
+        return save(entity, null);
+    }
+
+    /**
+     * Buffers the selected fields of the entity, blocking while the buffer is full.
+     *
+     * @param entity
+     *            entity declaring its primary key, the primary key properties must be set
+     * @param selectedFields
+     *            properties to write, null or empty for all of them
+     * @return future completed with the entity once its row is committed
+     * @throws DataStoreException
+     *             if the writer is closed or the calling thread is interrupted while waiting for room
+     */
+    public <T> CompletableFuture<T> save(T entity, List<String> selectedFields) {
+        Preconditions.checkNotNull(entity, "entity must not be null");
+        Map<String, Object> values = fieldValues(entity, selectedFields);
+        RowKey rowKey = rowKey(entity, values);
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        boolean flush;
+        lock.lock();
+        try {
+            PendingWrite write = pending.get(rowKey);
+            while (write == null && !closed && pending.size() + inFlight >= capacity) {
+                notFull.await();
+                write = pending.get(rowKey);
+            }
+            if (closed) {
+                throw new DataStoreException("write-behind writer is closed");
+            }
+            if (write == null) {
+                write = new PendingWrite(entity.getClass());
+                pending.put(rowKey, write);
+            }
+            write.values.putAll(values);
+            write.completions.add(new Completion<T>(future, entity));
+            flush = pending.size() >= flushSize;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("Interrupted while waiting for room in the write-behind buffer", ie);
+        } finally {
+            lock.unlock();
+        }
+        if (flush) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * Requests the buffered rows to be written without waiting for the flush interval.
+     */
+    public void flush() {
+        if (!flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(flushTask);
+        }
+    }
+
+    /**
+     * Rejects further saves and blocks until the buffered rows are written. The connection provider is left open.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.execute(flushTask);
+        flusher.shutdown();
+        try {
+            while (!flusher.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Waiting for the write-behind buffer to be flushed...");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the result cache whose results of the written tables are invalidated once a flush is committed. Buffered
+     * rows are not seen by the cache, nor by any read, until they are flushed.
+     */
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Sets the coalescer whose in flight queries of the written tables are detached once a flush is committed.
+     */
+    public void setQueryCoalescer(QueryCoalescer queryCoalescer) {
+        this.queryCoalescer = queryCoalescer;
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        flushRequested.set(false);
+        Map<RowKey, PendingWrite> writes;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            writes = pending;
+            pending = new LinkedHashMap<RowKey, PendingWrite>();
+            inFlight = writes.size();
+        } finally {
+            lock.unlock();
+        }
+        Throwable failure = null;
+        Connection conn = null;
+        List<PendingWrite> written = new ArrayList<PendingWrite>(writes.size());
+        try {
+            List<Object> entities = new ArrayList<Object>(writes.size());
+            for (PendingWrite write : writes.values()) {
+                // a row which can not be rebuilt fails its own saves only
+                try {
+                    entities.add(write.toEntity());
+                    written.add(write);
+                } catch (Exception ex) {
+                    logger.warn("Unable to rebuild buffered {} row...", write.entityClass.getSimpleName(), ex);
+                    write.complete(new DataStoreException("unable to rebuild buffered "
+                            + write.entityClass.getName() + " row", ex));
+                }
+            }
+            if (!entities.isEmpty()) {
+                conn = connectionProvider.getConnection();
+                queryExecutor.saveBatch(entities, conn);
+                conn.commit();
+                WriteInvalidation.invalidate(queryExecutor, resultCache, queryCoalescer, entities);
+            }
+        } catch (Throwable ex) {
+            logger.warn("Exception while flushing {} buffered rows...", written.size(), ex);
+            failure = ex instanceof DataStoreException ? ex : new DataStoreException(ex.getMessage(), ex);
+        } finally {
+            if (conn != null) {
+                try {
+                    connectionProvider.releaseConnection(conn);
+                } catch (Exception ex) {
+                    logger.warn("Exception while closing the connection...", ex);
+                }
+            }
+            lock.lock();
+            try {
+                inFlight = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (PendingWrite write : written) {
+            write.complete(failure);
+        }
+    }
+
+    private Map<String, Object> fieldValues(Object entity, List<String> selectedFields) {
+        Map<String, EntityPropertyBinding> bindings = entityPropertiesResolver
+                .getEntityPropertyNamePropertyBindingMap(entity.getClass());
+        if (bindings == null || bindings.isEmpty()) {
+            throw new DataStoreException("Invalid Entity class " + entity.getClass().getSimpleName());
+        }
+        Iterable<String> fields = selectedFields == null || selectedFields.isEmpty() ? bindings.keySet()
+                : selectedFields;
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (String field : fields) {
+            EntityPropertyBinding binding = bindings.get(field);
+            if (binding == null) {
+                throw new DataStoreException("Invalid bean property " + field + " for bean "
+                        + entity.getClass().getSimpleName());
+            }
+            Object value = readProperty(entity, binding.getNameFullPath());
+            if (value != null) {
+                values.put(binding.getNameFullPath(), value);
+            }
+        }
+        return values;
+    }
+
+    private RowKey rowKey(Object entity, Map<String, Object> values) {
+        List<EntityPropertyBinding> primaryKey = entityPropertiesResolver.getPrimaryKeyPropertyBindings(entity
+                .getClass());
+        if (primaryKey.isEmpty()) {
+            throw new DataStoreException("No primary key declared for entity " + entity.getClass().getSimpleName());
+        }
+        Object[] keyValues = new Object[primaryKey.size()];
+        for (int i = 0; i < keyValues.length; i++) {
+            String path = primaryKey.get(i).getNameFullPath();
+            keyValues[i] = readProperty(entity, path);
+            if (keyValues[i] == null) {
+                throw new DataStoreException("Primary key property " + primaryKey.get(i).getName()
+                        + " is null for entity " + entity.getClass().getSimpleName());
+            }
+            // the key is written with every row, whatever the selected fields
+            values.put(path, keyValues[i]);
+        }
+        return new RowKey(entity.getClass(), keyValues);
+    }
+
+    private static Object readProperty(Object entity, String propertyPath) {
+        try {
+            return PropertyUtils.getProperty(entity, propertyPath);
+        } catch (Exception ex) {
+            throw new DataStoreException("unable to read property " + propertyPath + " of "
+                    + entity.getClass().getName(), ex);
+        }
+    }
+
+    private static class RowKey {
+
+        private final Class<?> entityClass;
+        private final Object[] keyValues;
+
+        private RowKey(Class<?> entityClass, Object[] keyValues) {
+            this.entityClass = entityClass;
+            this.keyValues = keyValues;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityClass.hashCode() + Arrays.hashCode(keyValues);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RowKey)) {
+                return false;
+            }
+            RowKey other = (RowKey) obj;
+            return entityClass.equals(other.entityClass) && Arrays.equals(keyValues, other.keyValues);
+        }
+    }
+
+    /**
+     * Coalesced field values of a buffered row, and the saves waiting for it.
+     */
+    private static class PendingWrite {
+
+        private final Class<?> entityClass;
+        private final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        private final List<Completion<?>> completions = new ArrayList<Completion<?>>(1);
+
+        private PendingWrite(Class<?> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        private Object toEntity() throws Exception {
+            Object entity = entityClass.newInstance();
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                String path = value.getKey();
+                int nested = path.lastIndexOf('.');
+                Object target = nested < 0 ? entity : embedded(entity, path.substring(0, nested));
+                PropertyUtils.setSimpleProperty(target, path.substring(nested + 1), value.getValue());
+            }
+            return entity;
+        }
+
+        /*
+         * The embedded object at the path, instantiating the missing ones along it.
+         */
+        private static Object embedded(Object entity, String path) throws Exception {
+            Object target = entity;
+            for (String property : path.split("\\.")) {
+                Object next = PropertyUtils.getSimpleProperty(target, property);
+                if (next == null) {
+                    next = PropertyUtils.getPropertyType(target, property).newInstance();
+                    PropertyUtils.setSimpleProperty(target, property, next);
+                }
+                target = next;
+            }
+            return target;
+        }
+
+        private void complete(Throwable failure) {
+            for (Completion<?> completion : completions) {
+                completion.complete(failure);
+            }
+        }
+    }
+
+    private static class Completion<T> {
+
+        private final CompletableFuture<T> future;
+        private final T entity;
+
+        private Completion(CompletableFuture<T> future, T entity) {
+            this.future = future;
+            this.entity = entity;
+        }
+
+        private void complete(Throwable failure) {
+            if (failure == null) {
+                future.complete(entity);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+}
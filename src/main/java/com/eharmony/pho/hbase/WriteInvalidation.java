@@ -0,0 +1,57 @@
+package com.eharmony.pho.hbase;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.eharmony.pho.hbase.cache.QueryResultCache;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.query.QueryCoalescer;
+
+/**
+ * Called by the write paths once a write is committed: cached results of the written tables, read through any entity
+ * class, and in flight coalesced queries read before the write are dropped. The cache and the coalescer are optional.
+ */
+final class WriteInvalidation {
+
+    private WriteInvalidation() {
+    }
+
+    static void invalidate(PhoenixHBaseQueryExecutor queryExecutor, QueryResultCache resultCache,
+            QueryCoalescer queryCoalescer, Class<?> entityClass) {
+        if (resultCache == null && queryCoalescer == null) {
+            return;
+        }
+        String tableName = queryExecutor.resolveTableName(entityClass);
+        if (resultCache != null) {
+            resultCache.invalidate(tableName);
+        }
+        if (queryCoalescer != null) {
+            queryCoalescer.invalidate(tableName);
+        }
+    }
+
+    static void invalidate(PhoenixHBaseQueryExecutor queryExecutor, QueryResultCache resultCache,
+            QueryCoalescer queryCoalescer, Iterable<?> entities) {
+        if (resultCache == null && queryCoalescer == null) {
+            return;
+        }
+        if (!(entities instanceof Collection)) {
+            // not iterated twice
+            if (resultCache != null) {
+                resultCache.invalidateAll();
+            }
+            if (queryCoalescer != null) {
+                queryCoalescer.invalidateAll();
+            }
+            return;
+        }
+        Set<Class<?>> entityClasses = new HashSet<Class<?>>();
+        for (Object entity : entities) {
+            if (entity != null && entityClasses.add(entity.getClass())) {
+                invalidate(queryExecutor, resultCache, queryCoalescer, entity.getClass());
+            }
+        }
+    }
+
+}
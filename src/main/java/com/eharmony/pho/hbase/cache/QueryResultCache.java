@@ -0,0 +1,287 @@
+package com.eharmony.pho.hbase.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Read through cache of query results, keyed by the translated query and its parameters. Only the entities with a time
+ * to live are cached. The cache is bounded by the number of cached result rows, the least recently used results being
+ * evicted first.
+ *
+ * Writes invalidate every cached result of the written table, whatever the entity class the results were read through:
+ * each table has a generation, bumped on write, and results loaded under an older generation are discarded when read. With a refresh executor, hits on a result older
+ * than refreshAheadFactor of its time to live reload it in the background while the cached result is served.
+ *
+ * Cached results are shared by the callers and must not be modified.
+ */
+public class QueryResultCache {
+
+    public static final long DEFAULT_MAX_ROWS = 100000;
+
+    private static final Logger log = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final Cache<Object, CachedResult> results;
+    private long defaultTtlMillis;
+    private Map<Class<?>, Long> entityTtlMillis = new HashMap<Class<?>, Long>();
+    private double refreshAheadFactor;
+    private ExecutorService refreshExecutor;
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * @param maxRows
+     *            number of result rows kept, a result weighs its number of rows plus one
+     */
+    public QueryResultCache(long maxRows) {
+        Preconditions.checkArgument(maxRows > 0, "maxRows must be positive");
+        this.results = CacheBuilder.newBuilder().maximumWeight(maxRows).weigher(new Weigher<Object, CachedResult>() {
+            @Override
+            public int weigh(Object key, CachedResult value) {
+                return value.weight;
+            }
+        }).build();
+    }
+
+    /**
+     * @return true if the results of the entity class are cached
+     */
+    public boolean isCached(Class<?> entityClass) {
+        return getTtlMillis(entityClass) > 0;
+    }
+
+    /**
+     * Returns the cached result of the key, loading it if it is missing, expired or invalidated.
+     * 
+     * @param entityClass
+     *            entity class of the query, selects the time to live
+     * @param tableName
+     *            table the query reads, selects the invalidation generation
+     * @param key
+     *            translated query and parameters
+     * @param loader
+     *            runs the query
+     * @return the query result
+     * @throws Exception
+     *             if the query fails
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(final Class<?> entityClass, final String tableName, final Object key, final Callable<V> loader)
+            throws Exception {
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(getTtlMillis(entityClass));
+        if (ttlNanos <= 0) {
+            return loader.call();
+        }
+        long generation = generation(tableName);
+        CachedResult cached = results.getIfPresent(key);
+        long now = System.nanoTime();
+        if (cached != null && (now - cached.loadedAt >= ttlNanos || cached.generation != generation)) {
+            results.asMap().remove(key, cached);
+            cached = null;
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (refreshExecutor != null && refreshAheadFactor > 0 && now - cached.loadedAt >= ttlNanos
+                    * refreshAheadFactor) {
+                refreshAhead(tableName, key, cached, loader);
+            }
+            return (V) cached.value;
+        }
+        Callable<CachedResult> load = new Callable<CachedResult>() {
+            @Override
+            public CachedResult call() throws Exception {
+                misses.incrementAndGet();
+                return load(tableName, loader);
+            }
+        };
+        try {
+            CachedResult loaded = results.get(key, load);
+            // joined a load started before a write this caller must see
+            while (loaded.generation < generation) {
+                results.asMap().remove(key, loaded);
+                loaded = results.get(key, load);
+            }
+            return (V) loaded.value;
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        } catch (UncheckedExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+    }
+
+    private CachedResult load(String tableName, Callable<?> loader) throws Exception {
+        // read before loading, a write during the load leaves the result stale
+        long generation = generation(tableName);
+        long loadedAt = System.nanoTime();
+        return new CachedResult(loader.call(), generation, loadedAt);
+    }
+
+    private void refreshAhead(final String tableName, final Object key, final CachedResult cached,
+            final Callable<?> loader) {
+        if (!cached.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        results.asMap().replace(key, cached, load(tableName, loader));
+                        refreshes.incrementAndGet();
+                    } catch (Exception ex) {
+                        log.warn("Exception while refreshing cached query result...", ex);
+                        cached.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            cached.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Invalidates every cached result read from the table, through any entity class.
+     */
+    public void invalidate(String tableName) {
+        AtomicLong generation = generations.get(tableName);
+        if (generation == null) {
+            AtomicLong created = new AtomicLong();
+            generation = generations.putIfAbsent(tableName, created);
+            if (generation == null) {
+                generation = created;
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Invalidates every cached result.
+     */
+    public void invalidateAll() {
+        for (AtomicLong generation : generations.values()) {
+            generation.incrementAndGet();
+        }
+        results.invalidateAll();
+    }
+
+    private long generation(String tableName) {
+        AtomicLong generation = generations.get(tableName);
+        return generation != null ? generation.get() : 0;
+    }
+
+    public long getTtlMillis(Class<?> entityClass) {
+        Long ttlMillis = entityTtlMillis.get(entityClass);
+        return ttlMillis != null ? ttlMillis : defaultTtlMillis;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public long size() {
+        return results.size();
+    }
+
+    public long getDefaultTtlMillis() {
+        return defaultTtlMillis;
+    }
+
+    /**
+     * @param defaultTtlMillis
+     *            time to live of the results of entities without their own, 0 does not cache them
+     */
+    public void setDefaultTtlMillis(long defaultTtlMillis) {
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    public Map<Class<?>, Long> getEntityTtlMillis() {
+        return entityTtlMillis;
+    }
+
+    /**
+     * @param entityTtlMillis
+     *            time to live of the results per entity class, 0 does not cache them
+     */
+    public void setEntityTtlMillis(Map<Class<?>, Long> entityTtlMillis) {
+        this.entityTtlMillis = new HashMap<Class<?>, Long>(Preconditions.checkNotNull(entityTtlMillis));
+    }
+
+    public double getRefreshAheadFactor() {
+        return refreshAheadFactor;
+    }
+
+    /**
+     * @param refreshAheadFactor
+     *            fraction of the time to live after which a hit reloads the result in the background, 0 turns refresh
+     *            ahead off
+     */
+    public void setRefreshAheadFactor(double refreshAheadFactor) {
+        Preconditions.checkArgument(refreshAheadFactor >= 0 && refreshAheadFactor < 1,
+                "refreshAheadFactor must be between 0 and 1");
+        this.refreshAheadFactor = refreshAheadFactor;
+    }
+
+    public ExecutorService getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    /**
+     * @param refreshExecutor
+     *            runs the refresh ahead reloads, refresh ahead is off without one
+     */
+    public void setRefreshExecutor(ExecutorService refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    private static final class CachedResult {
+
+        private final Object value;
+        private final long generation;
+        private final long loadedAt;
+        private final int weight;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private CachedResult(Object value, long generation, long loadedAt) {
+            this.value = value;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+            this.weight = value instanceof Collection ? ((Collection<?>) value).size() + 1 : 1;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.eharmony.pho.hbase.codec;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Converts values of a java type to phoenix, binding them to statement parameters or, when a query is translated
+ * without bind parameters, rendering them as literals.
+ *
+ * Codecs are shared between threads and must be stateless or thread safe.
+ *
+ * @param <T>
+ *            the java type
+ */
+public interface ValueCodec<T> {
+
+    /**
+     * @return the phoenix type name of the bound values, used as element type of arrays, or null if unknown
+     */
+    public String getTypeName();
+
+    /**
+     * Binds the value with the setter of its phoenix type.
+     *
+     * @param statement
+     *            PreparedStatement
+     * @param index
+     *            parameter index, starting at 1
+     * @param value
+     *            non null value
+     * @throws SQLException
+     *             if the value can not be bound
+     */
+    public void bind(PreparedStatement statement, int index, T value) throws SQLException;
+
+    /**
+     * Appends the value as a phoenix literal.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param value
+     *            non null value
+     */
+    public void appendLiteral(StringBuilder builder, T value);
+
+}
@@ -0,0 +1,215 @@
+package com.eharmony.pho.hbase.codec;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Codecs by java type, used to bind the query parameters and to render the values of queries translated without bind
+ * parameters.
+ *
+ * A value is converted by the codec registered for its class, else for its closest registered superclass, then for
+ * its interfaces. Arrays other than byte[] are bound as phoenix arrays of the codec type of their elements and values
+ * of unknown types fall back to {@link PreparedStatement#setObject(int, Object)} and their string value. Codecs
+ * registered by the application replace the default codec of the type.
+ */
+public class ValueCodecRegistry {
+
+    private final ConcurrentMap<Class<?>, ValueCodec<?>> codecs = new ConcurrentHashMap<Class<?>, ValueCodec<?>>();
+    // codecs looked up for the classes of the converted values
+    private final ConcurrentMap<Class<?>, ValueCodec<?>> resolved = new ConcurrentHashMap<Class<?>, ValueCodec<?>>();
+    private final ValueCodec<Object> arrayCodec = new ArrayCodec();
+
+    public ValueCodecRegistry() {
+        register(Object.class, ValueCodecs.OBJECT);
+        register(String.class, ValueCodecs.STRING);
+        register(Character.class, ValueCodecs.CHARACTER);
+        register(Boolean.class, ValueCodecs.BOOLEAN);
+        register(Byte.class, ValueCodecs.BYTE);
+        register(Short.class, ValueCodecs.SHORT);
+        register(Integer.class, ValueCodecs.INTEGER);
+        register(Long.class, ValueCodecs.LONG);
+        register(Float.class, ValueCodecs.FLOAT);
+        register(Double.class, ValueCodecs.DOUBLE);
+        register(BigDecimal.class, ValueCodecs.BIG_DECIMAL);
+        register(UUID.class, ValueCodecs.UUID);
+        register(Enum.class, ValueCodecs.ENUM);
+        register(byte[].class, ValueCodecs.BYTES);
+        register(Date.class, ValueCodecs.DATE);
+        register(java.sql.Date.class, ValueCodecs.SQL_DATE);
+        register(Timestamp.class, ValueCodecs.TIMESTAMP);
+        register(Time.class, ValueCodecs.TIME);
+        register(Instant.class, ValueCodecs.INSTANT);
+        register(OffsetDateTime.class, ValueCodecs.OFFSET_DATE_TIME);
+        register(ZonedDateTime.class, ValueCodecs.ZONED_DATE_TIME);
+        register(LocalDateTime.class, ValueCodecs.LOCAL_DATE_TIME);
+        register(LocalDate.class, ValueCodecs.LOCAL_DATE);
+        register(LocalTime.class, ValueCodecs.LOCAL_TIME);
+    }
+
+    /**
+     * Registers the codec of the type and of its subtypes without a codec of their own.
+     *
+     * @param <T>
+     *            the java type
+     * @param type
+     *            Class
+     * @param codec
+     *            ValueCodec
+     */
+    public <T> void register(Class<T> type, ValueCodec<? super T> codec) {
+        codecs.put(Preconditions.checkNotNull(type), Preconditions.checkNotNull(codec));
+        resolved.clear();
+    }
+
+    /**
+     * @param type
+     *            class of the values
+     * @return the codec converting the values of the type
+     */
+    @SuppressWarnings("unchecked")
+    public ValueCodec<Object> getCodec(Class<?> type) {
+        ValueCodec<?> codec = resolved.get(type);
+        if (codec == null) {
+            codec = lookup(type);
+            resolved.put(type, codec);
+        }
+        return (ValueCodec<Object>) codec;
+    }
+
+    private ValueCodec<?> lookup(Class<?> type) {
+        ValueCodec<?> codec = codecs.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        if (type.isArray()) {
+            return arrayCodec;
+        }
+        for (Class<?> superclass = type.getSuperclass(); superclass != null && superclass != Object.class;
+                superclass = superclass.getSuperclass()) {
+            codec = codecs.get(superclass);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        for (Class<?> superclass = type; superclass != null; superclass = superclass.getSuperclass()) {
+            for (Class<?> iface : superclass.getInterfaces()) {
+                codec = codecs.get(iface);
+                if (codec != null) {
+                    return codec;
+                }
+            }
+        }
+        return codecs.get(Object.class);
+    }
+
+    /**
+     * Binds the value to the statement parameter with the codec of its class, null values with
+     * {@link PreparedStatement#setObject(int, Object)}.
+     *
+     * @param statement
+     *            PreparedStatement
+     * @param index
+     *            parameter index, starting at 1
+     * @param value
+     *            the value to bind
+     * @throws SQLException
+     *             if the value can not be bound
+     */
+    public void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setObject(index, null);
+        } else {
+            getCodec(value.getClass()).bind(statement, index, value);
+        }
+    }
+
+    /**
+     * Appends the value as a phoenix literal with the codec of its class, null values as NULL.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param value
+     *            the value to render
+     * @return the builder
+     */
+    public StringBuilder appendLiteral(StringBuilder builder, Object value) {
+        if (value == null) {
+            return builder.append("NULL");
+        }
+        getCodec(value.getClass()).appendLiteral(builder, value);
+        return builder;
+    }
+
+    /**
+     * Phoenix arrays, of the type of the codec of the array component type or else of the first non null element.
+     */
+    private class ArrayCodec implements ValueCodec<Object> {
+
+        @Override
+        public String getTypeName() {
+            return null;
+        }
+
+        @Override
+        public void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+            Object[] elements = toObjectArray(value);
+            String typeName = elementTypeName(value.getClass().getComponentType(), elements);
+            if (typeName == null) {
+                statement.setObject(index, value);
+            } else {
+                statement.setArray(index, statement.getConnection().createArrayOf(typeName, elements));
+            }
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Object value) {
+            builder.append("ARRAY[");
+            for (int i = 0; i < Array.getLength(value); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                ValueCodecRegistry.this.appendLiteral(builder, Array.get(value, i));
+            }
+            builder.append(']');
+        }
+
+        private String elementTypeName(Class<?> componentType, Object[] elements) {
+            String typeName = getCodec(Primitives.wrap(componentType)).getTypeName();
+            for (int i = 0; typeName == null && i < elements.length; i++) {
+                if (elements[i] != null) {
+                    typeName = getCodec(elements[i].getClass()).getTypeName();
+                }
+            }
+            return typeName;
+        }
+
+        private Object[] toObjectArray(Object value) {
+            if (value instanceof Object[]) {
+                return (Object[]) value;
+            }
+            Object[] elements = new Object[Array.getLength(value)];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = Array.get(value, i);
+            }
+            return elements;
+        }
+    }
+
+}
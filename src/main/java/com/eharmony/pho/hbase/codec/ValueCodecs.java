@@ -0,0 +1,332 @@
+package com.eharmony.pho.hbase.codec;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+import com.eharmony.pho.hbase.util.PhoenixDateFormatUtil;
+
+/**
+ * The codecs registered by default in a {@link ValueCodecRegistry}.
+ *
+ * Local date and time values are read in the default time zone of the JVM, as the JDBC conversions of
+ * {@link java.sql.Date#valueOf(LocalDate)} and {@link Timestamp#valueOf(LocalDateTime)} do. Enums and UUIDs are stored
+ * as VARCHAR, register a codec of your own for another representation.
+ */
+public final class ValueCodecs {
+
+    /**
+     * Base of the codecs whose literal is the string value.
+     */
+    public abstract static class AbstractValueCodec<T> implements ValueCodec<T> {
+
+        private final String typeName;
+
+        protected AbstractValueCodec(String typeName) {
+            this.typeName = typeName;
+        }
+
+        @Override
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, T value) {
+            builder.append(value);
+        }
+    }
+
+    public static final ValueCodec<Object> OBJECT = new AbstractValueCodec<Object>(null) {
+        @Override
+        public void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+            statement.setObject(index, value);
+        }
+    };
+
+    public static final ValueCodec<String> STRING = new AbstractValueCodec<String>("VARCHAR") {
+        @Override
+        public void bind(PreparedStatement statement, int index, String value) throws SQLException {
+            statement.setString(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, String value) {
+            appendQuoted(builder, value);
+        }
+    };
+
+    public static final ValueCodec<Character> CHARACTER = new AbstractValueCodec<Character>("CHAR") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Character value) throws SQLException {
+            statement.setString(index, value.toString());
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Character value) {
+            appendQuoted(builder, value.toString());
+        }
+    };
+
+    public static final ValueCodec<Boolean> BOOLEAN = new AbstractValueCodec<Boolean>("BOOLEAN") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Boolean value) throws SQLException {
+            statement.setBoolean(index, value);
+        }
+    };
+
+    public static final ValueCodec<Byte> BYTE = new AbstractValueCodec<Byte>("TINYINT") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Byte value) throws SQLException {
+            statement.setByte(index, value);
+        }
+    };
+
+    public static final ValueCodec<Short> SHORT = new AbstractValueCodec<Short>("SMALLINT") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Short value) throws SQLException {
+            statement.setShort(index, value);
+        }
+    };
+
+    public static final ValueCodec<Integer> INTEGER = new AbstractValueCodec<Integer>("INTEGER") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Integer value) throws SQLException {
+            statement.setInt(index, value);
+        }
+    };
+
+    public static final ValueCodec<Long> LONG = new AbstractValueCodec<Long>("BIGINT") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Long value) throws SQLException {
+            statement.setLong(index, value);
+        }
+    };
+
+    public static final ValueCodec<Float> FLOAT = new AbstractValueCodec<Float>("FLOAT") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Float value) throws SQLException {
+            statement.setFloat(index, value);
+        }
+    };
+
+    public static final ValueCodec<Double> DOUBLE = new AbstractValueCodec<Double>("DOUBLE") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Double value) throws SQLException {
+            statement.setDouble(index, value);
+        }
+    };
+
+    public static final ValueCodec<BigDecimal> BIG_DECIMAL = new AbstractValueCodec<BigDecimal>("DECIMAL") {
+        @Override
+        public void bind(PreparedStatement statement, int index, BigDecimal value) throws SQLException {
+            statement.setBigDecimal(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, BigDecimal value) {
+            builder.append(value.toPlainString());
+        }
+    };
+
+    public static final ValueCodec<UUID> UUID = new AbstractValueCodec<UUID>("VARCHAR") {
+        @Override
+        public void bind(PreparedStatement statement, int index, UUID value) throws SQLException {
+            statement.setString(index, value.toString());
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, UUID value) {
+            builder.append('\'').append(value).append('\'');
+        }
+    };
+
+    @SuppressWarnings("rawtypes")
+    public static final ValueCodec<Enum> ENUM = new AbstractValueCodec<Enum>("VARCHAR") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Enum value) throws SQLException {
+            statement.setString(index, value.name());
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Enum value) {
+            appendQuoted(builder, value.name());
+        }
+    };
+
+    /**
+     * Phoenix has no binary literal, byte arrays can only be bound.
+     */
+    public static final ValueCodec<byte[]> BYTES = new AbstractValueCodec<byte[]>("VARBINARY") {
+        @Override
+        public void bind(PreparedStatement statement, int index, byte[] value) throws SQLException {
+            statement.setBytes(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, byte[] value) {
+            throw new UnsupportedOperationException("byte[] values can not be rendered as literal, use bind parameters");
+        }
+    };
+
+    public static final ValueCodec<Date> DATE = new AbstractValueCodec<Date>("DATE") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Date value) throws SQLException {
+            statement.setDate(index, new java.sql.Date(value.getTime()));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Date value) {
+            PhoenixDateFormatUtil.appendDate(builder, value);
+        }
+    };
+
+    public static final ValueCodec<java.sql.Date> SQL_DATE = new AbstractValueCodec<java.sql.Date>("DATE") {
+        @Override
+        public void bind(PreparedStatement statement, int index, java.sql.Date value) throws SQLException {
+            statement.setDate(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, java.sql.Date value) {
+            PhoenixDateFormatUtil.appendDate(builder, value);
+        }
+    };
+
+    public static final ValueCodec<Timestamp> TIMESTAMP = new AbstractValueCodec<Timestamp>("TIMESTAMP") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Timestamp value) throws SQLException {
+            statement.setTimestamp(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Timestamp value) {
+            PhoenixDateFormatUtil.appendTimestamp(builder, value.toInstant());
+        }
+    };
+
+    public static final ValueCodec<Time> TIME = new AbstractValueCodec<Time>("TIME") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Time value) throws SQLException {
+            statement.setTime(index, value);
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Time value) {
+            PhoenixDateFormatUtil.appendTime(builder, Instant.ofEpochMilli(value.getTime()));
+        }
+    };
+
+    public static final ValueCodec<Instant> INSTANT = new AbstractValueCodec<Instant>("TIMESTAMP") {
+        @Override
+        public void bind(PreparedStatement statement, int index, Instant value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.from(value));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, Instant value) {
+            PhoenixDateFormatUtil.appendTimestamp(builder, value);
+        }
+    };
+
+    public static final ValueCodec<OffsetDateTime> OFFSET_DATE_TIME = new AbstractValueCodec<OffsetDateTime>(
+            "TIMESTAMP") {
+        @Override
+        public void bind(PreparedStatement statement, int index, OffsetDateTime value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.from(value.toInstant()));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, OffsetDateTime value) {
+            PhoenixDateFormatUtil.appendTimestamp(builder, value.toInstant());
+        }
+    };
+
+    public static final ValueCodec<ZonedDateTime> ZONED_DATE_TIME = new AbstractValueCodec<ZonedDateTime>(
+            "TIMESTAMP") {
+        @Override
+        public void bind(PreparedStatement statement, int index, ZonedDateTime value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.from(value.toInstant()));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, ZonedDateTime value) {
+            PhoenixDateFormatUtil.appendTimestamp(builder, value.toInstant());
+        }
+    };
+
+    public static final ValueCodec<LocalDateTime> LOCAL_DATE_TIME = new AbstractValueCodec<LocalDateTime>(
+            "TIMESTAMP") {
+        @Override
+        public void bind(PreparedStatement statement, int index, LocalDateTime value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.valueOf(value));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, LocalDateTime value) {
+            PhoenixDateFormatUtil.appendTimestamp(builder, value.atZone(ZoneId.systemDefault()).toInstant());
+        }
+    };
+
+    public static final ValueCodec<LocalDate> LOCAL_DATE = new AbstractValueCodec<LocalDate>("DATE") {
+        @Override
+        public void bind(PreparedStatement statement, int index, LocalDate value) throws SQLException {
+            statement.setDate(index, java.sql.Date.valueOf(value));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, LocalDate value) {
+            PhoenixDateFormatUtil.appendDate(builder, java.sql.Date.valueOf(value));
+        }
+    };
+
+    public static final ValueCodec<LocalTime> LOCAL_TIME = new AbstractValueCodec<LocalTime>("TIME") {
+        @Override
+        public void bind(PreparedStatement statement, int index, LocalTime value) throws SQLException {
+            statement.setTime(index, Time.valueOf(value));
+        }
+
+        @Override
+        public void appendLiteral(StringBuilder builder, LocalTime value) {
+            PhoenixDateFormatUtil.appendTime(builder, Instant.ofEpochMilli(Time.valueOf(value).getTime()));
+        }
+    };
+
+    private ValueCodecs() {
+    }
+
+    /**
+     * Appends the string in single quotes, escaping quotes and backslashes while it is copied.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param value
+     *            String
+     * @return the builder
+     */
+    public static StringBuilder appendQuoted(StringBuilder builder, String value) {
+        builder.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                builder.append('\'');
+            } else if (c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.append('\'');
+    }
+
+}
@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.PropertyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,40 +69,65 @@ public class PhoenixProjectedResultMapper {
         return mapResults(resultSet, query.getReturnType());
     }
 
-    @SuppressWarnings("unchecked")
     public <R> Iterable<R> mapResults(ResultSet resultSet, final Class<R> clz) throws SQLException,
             InstantiationException, IllegalAccessException, InvocationTargetException {
         Set<String> metadataColumns = extractColumnNames(resultSet);
         List<R> resultsList = new ArrayList<R>();
-        boolean resultIsNumber = Number.class.isAssignableFrom(clz);
         while (resultSet.next()) {
-            R instance = null;
-            if (!resultIsNumber) {
-                instance = clz.newInstance();
-            }
-            for (String columnName : metadataColumns) {
-                Object value = resultSet.getObject(columnName);
-                if (value != null) {
-                    log.debug(value.toString());
-                    if (resultIsNumber) {
-                        instance = (R) value;
-                        break;
-                    }
-                    
-                    EntityPropertyBinding entityProperty = entityPropertiesResolver.resolveEntityPropertyBindingByStoreMappingName(columnName, clz);
-                    if (entityProperty != null) {
-                        BeanUtils.copyProperty(instance, entityProperty.getNameFullPath(), value);
-                    }
+            resultsList.add(mapResult(resultSet, metadataColumns, clz));
+        }
+
+        return resultsList;
+    }
 
+    /**
+     * Maps the current row of the result set.
+     * 
+     * @param <R> return type
+     * @param resultSet
+     *            ResultSet positioned on the row to map
+     * @param metadataColumns
+     *            column names of the result set, see {@link #extractColumnNames(ResultSet)}
+     * @param clz
+     *            the desired mapped type
+     * @return R
+     * @throws SQLException if the row can not be read
+     * @throws InstantiationException if the result type can not be instantiated
+     * @throws IllegalAccessException if the result type can not be instantiated
+     * @throws InvocationTargetException if a property can not be set
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R mapResult(ResultSet resultSet, Set<String> metadataColumns, final Class<R> clz)
+            throws SQLException, InstantiationException, IllegalAccessException, InvocationTargetException {
+        boolean resultIsNumber = Number.class.isAssignableFrom(clz);
+        R instance = null;
+        if (!resultIsNumber) {
+            instance = clz.newInstance();
+        }
+        for (String columnName : metadataColumns) {
+            Object value = resultSet.getObject(columnName);
+            if (value != null) {
+                log.debug(value.toString());
+                if (resultIsNumber) {
+                    // aggregates come back as the column type, e.g. COUNT as Long
+                    instance = clz.isInstance(value) ? (R) value : (R) ConvertUtils.convert(value, clz);
+                    break;
+                }
+                
+                EntityPropertyBinding entityProperty = entityPropertiesResolver.resolveEntityPropertyBindingByStoreMappingName(columnName, clz);
+                if (entityProperty != null) {
+                    BeanUtils.copyProperty(instance, entityProperty.getNameFullPath(), value);
+                } else if (PropertyUtils.isWriteable(instance, columnName)) {
+                    // aliased projections map to the result property of the same name
+                    BeanUtils.copyProperty(instance, columnName, value);
                 }
+
             }
-            resultsList.add(instance);
         }
-
-        return resultsList;
+        return instance;
     }
     
-    private Set<String> extractColumnNames(ResultSet resultSet) throws SQLException {
+    public Set<String> extractColumnNames(ResultSet resultSet) throws SQLException {
         ResultSetMetaData metedata = resultSet.getMetaData();
         int columnCount = metedata.getColumnCount();
         Set<String> metadataColumns = new HashSet<String>();
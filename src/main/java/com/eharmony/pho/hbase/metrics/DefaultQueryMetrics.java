@@ -0,0 +1,138 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.eharmony.pho.hbase.translator.QueryFingerprint;
+import com.google.common.base.Preconditions;
+
+/**
+ * In memory {@link QueryMetrics} keeping a {@link QueryShapeMetrics} per entity class and per query fingerprint of the
+ * class. Queries differing only in the length of their IN lists share a shape, the lengths being bucketed by
+ * {@link QueryFingerprint#bucketListSizes(String)}. Lookups of known fingerprints neither lock nor allocate. The number
+ * of shapes tracked per entity class is capped, queries of further shapes are only counted in the entity class totals.
+ */
+public class DefaultQueryMetrics implements QueryMetrics {
+
+    public static final int DEFAULT_MAX_SHAPES_PER_ENTITY = 256;
+
+    private final int maxShapesPerEntity;
+    private final ConcurrentMap<Class<?>, EntityMetrics> entityMetrics = new ConcurrentHashMap<Class<?>, EntityMetrics>();
+    private final LatencyHistogram connectionAcquire = new LatencyHistogram();
+
+    public DefaultQueryMetrics() {
+        this(DEFAULT_MAX_SHAPES_PER_ENTITY);
+    }
+
+    public DefaultQueryMetrics(int maxShapesPerEntity) {
+        Preconditions.checkArgument(maxShapesPerEntity >= 0, "maxShapesPerEntity must not be negative");
+        this.maxShapesPerEntity = maxShapesPerEntity;
+    }
+
+    @Override
+    public void recordLatency(Class<?> entityClass, String fingerprint, QueryPhase phase, long nanos) {
+        EntityMetrics metrics = entityMetrics(entityClass);
+        metrics.total.recordLatency(phase, nanos);
+        QueryShapeMetrics shape = metrics.shape(fingerprint);
+        if (shape != null) {
+            shape.recordLatency(phase, nanos);
+        }
+    }
+
+    @Override
+    public void recordRows(Class<?> entityClass, String fingerprint, int rows) {
+        EntityMetrics metrics = entityMetrics(entityClass);
+        metrics.total.recordRows(rows);
+        QueryShapeMetrics shape = metrics.shape(fingerprint);
+        if (shape != null) {
+            shape.recordRows(rows);
+        }
+    }
+
+    @Override
+    public void recordError(Class<?> entityClass, String fingerprint, Throwable error) {
+        EntityMetrics metrics = entityMetrics(entityClass);
+        metrics.total.recordError();
+        QueryShapeMetrics shape = metrics.shape(fingerprint);
+        if (shape != null) {
+            shape.recordError();
+        }
+    }
+
+    @Override
+    public void recordConnectionAcquire(long nanos) {
+        connectionAcquire.recordNanos(nanos);
+    }
+
+    /**
+     * @return time spent waiting for connections
+     */
+    public LatencyHistogram getConnectionAcquire() {
+        return connectionAcquire;
+    }
+
+    /**
+     * @return totals of all the queries of the entity class, null if none ran
+     */
+    public QueryShapeMetrics getEntityMetrics(Class<?> entityClass) {
+        EntityMetrics metrics = entityMetrics.get(entityClass);
+        return metrics != null ? metrics.total : null;
+    }
+
+    /**
+     * @return metrics of the tracked query shapes of the entity class keyed by fingerprint
+     */
+    public Map<String, QueryShapeMetrics> getShapeMetrics(Class<?> entityClass) {
+        EntityMetrics metrics = entityMetrics.get(entityClass);
+        return metrics != null ? Collections.unmodifiableMap(metrics.shapes) : Collections
+                .<String, QueryShapeMetrics> emptyMap();
+    }
+
+    private EntityMetrics entityMetrics(Class<?> entityClass) {
+        EntityMetrics metrics = entityMetrics.get(entityClass);
+        if (metrics == null) {
+            EntityMetrics created = new EntityMetrics();
+            metrics = entityMetrics.putIfAbsent(entityClass, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    private class EntityMetrics {
+
+        private final QueryShapeMetrics total = new QueryShapeMetrics();
+        private final ConcurrentMap<String, QueryShapeMetrics> shapes = new ConcurrentHashMap<String, QueryShapeMetrics>();
+        // shapes by exact fingerprint, so the bucketed fingerprint is only built once per fingerprint
+        private final ConcurrentMap<String, QueryShapeMetrics> fingerprints =
+                new ConcurrentHashMap<String, QueryShapeMetrics>();
+
+        private QueryShapeMetrics shape(String fingerprint) {
+            if (fingerprint == null) {
+                return null;
+            }
+            QueryShapeMetrics shape = fingerprints.get(fingerprint);
+            if (shape != null) {
+                return shape;
+            }
+            String bucketed = QueryFingerprint.bucketListSizes(fingerprint);
+            shape = shapes.get(bucketed);
+            if (shape == null && shapes.size() < maxShapesPerEntity) {
+                QueryShapeMetrics created = new QueryShapeMetrics();
+                shape = shapes.putIfAbsent(bucketed, created);
+                if (shape == null) {
+                    shape = created;
+                }
+            }
+            // exact fingerprints beyond the cap are bucketed on every lookup
+            if (shape != null && fingerprints.size() < maxShapesPerEntity * 4) {
+                fingerprints.putIfAbsent(fingerprint, shape);
+            }
+            return shape;
+        }
+    }
+
+}
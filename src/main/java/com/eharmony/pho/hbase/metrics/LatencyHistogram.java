@@ -0,0 +1,116 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with log linear buckets, in the manner of HdrHistogram. Values are kept in microseconds
+ * up to about an hour; every power of two range is split in 16 linear sub buckets, so recorded values are reported
+ * within 1/16 of their magnitude. Recording updates a few atomic counters and allocates nothing.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 2^32 microseconds is a little over an hour
+    private static final int MAX_VALUE_BITS = 32;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = ((MAX_VALUE_BITS - SUB_BUCKET_BITS) << SUB_BUCKET_BITS) + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos
+     *            latency in nanoseconds, negative values are recorded as 0
+     */
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+    }
+
+    private void record(long micros) {
+        long value = Math.min(micros, MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    static int bucketIndex(long value) {
+        int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (magnitude << SUB_BUCKET_BITS) + (int) (value >>> magnitude);
+    }
+
+    /*
+     * Lowest value counted in the bucket.
+     */
+    static long bucketValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = (index >> SUB_BUCKET_BITS) - 1;
+        return (long) (index - (magnitude << SUB_BUCKET_BITS)) << magnitude;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return largest recorded latency in microseconds
+     */
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * @return mean recorded latency in microseconds, 0 when nothing was recorded
+     */
+    public double getMeanMicros() {
+        long recorded = count.get();
+        return recorded > 0 ? (double) sum.get() / recorded : 0;
+    }
+
+    /**
+     * Reads the counters without stopping the recording threads, so the result is approximate under concurrent updates.
+     *
+     * @param percentile
+     *            percentile between 0 and 100
+     * @return latency in microseconds at or below which the given percentage of the recorded latencies fall, 0 when
+     *         nothing was recorded
+     */
+    public long getValueAtPercentileMicros(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram [count=" + getCount() + ", meanMicros=" + (long) getMeanMicros() + ", p50Micros="
+                + getValueAtPercentileMicros(50) + ", p99Micros=" + getValueAtPercentileMicros(99) + ", maxMicros="
+                + getMaxMicros() + "]";
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.eharmony.pho.hbase.metrics;
+
+/**
+ * Receives the timings and outcome of the queries run by the query executor. Queries are identified by their entity
+ * class and a fingerprint describing their shape, so values do not multiply the number of series. Implementations are
+ * called on the query path and must be cheap and thread safe.
+ */
+public interface QueryMetrics {
+
+    /**
+     * Discards everything.
+     */
+    public static final QueryMetrics NOOP = new QueryMetrics() {
+
+        @Override
+        public void recordLatency(Class<?> entityClass, String fingerprint, QueryPhase phase, long nanos) {
+        }
+
+        @Override
+        public void recordRows(Class<?> entityClass, String fingerprint, int rows) {
+        }
+
+        @Override
+        public void recordError(Class<?> entityClass, String fingerprint, Throwable error) {
+        }
+
+        @Override
+        public void recordConnectionAcquire(long nanos) {
+        }
+    };
+
+    /**
+     * @param entityClass
+     *            entity class of the query
+     * @param fingerprint
+     *            shape of the query
+     * @param phase
+     *            step measured
+     * @param nanos
+     *            elapsed time in nanoseconds
+     */
+    public void recordLatency(Class<?> entityClass, String fingerprint, QueryPhase phase, long nanos);
+
+    /**
+     * @param entityClass
+     *            entity class of the query
+     * @param fingerprint
+     *            shape of the query
+     * @param rows
+     *            number of rows returned or updated
+     */
+    public void recordRows(Class<?> entityClass, String fingerprint, int rows);
+
+    /**
+     * @param entityClass
+     *            entity class of the query
+     * @param fingerprint
+     *            shape of the query
+     * @param error
+     *            failure of the query
+     */
+    public void recordError(Class<?> entityClass, String fingerprint, Throwable error);
+
+    /**
+     * Connections are shared by every kind of query, so their acquisition is not recorded per query.
+     *
+     * @param nanos
+     *            time spent waiting for a connection in nanoseconds
+     */
+    public void recordConnectionAcquire(long nanos);
+
+}
@@ -0,0 +1,13 @@
+package com.eharmony.pho.hbase.metrics;
+
+/**
+ * Steps of a query execution whose latency is recorded.
+ */
+public enum QueryPhase {
+    /** building the query string from the query object */
+    TRANSLATE,
+    /** running the statement, up to the first row for selects */
+    EXECUTE,
+    /** mapping the result rows to return type instances */
+    MAP
+}
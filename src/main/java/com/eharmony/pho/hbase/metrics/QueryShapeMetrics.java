@@ -0,0 +1,61 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per {@link QueryPhase}, rows and errors of the queries of one shape, or of all the queries of an
+ * entity class.
+ */
+public final class QueryShapeMetrics {
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[QueryPhase.values().length];
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    QueryShapeMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    void recordLatency(QueryPhase phase, long nanos) {
+        latencies[phase.ordinal()].recordNanos(nanos);
+    }
+
+    void recordRows(int count) {
+        rows.addAndGet(count);
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatency(QueryPhase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    /**
+     * @return number of queries executed
+     */
+    public long getExecutions() {
+        return getLatency(QueryPhase.EXECUTE).getCount();
+    }
+
+    /**
+     * @return total number of rows returned or updated
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryShapeMetrics [executions=" + getExecutions() + ", rows=" + getRows() + ", errors=" + getErrors()
+                + ", execute=" + getLatency(QueryPhase.EXECUTE) + "]";
+    }
+
+}
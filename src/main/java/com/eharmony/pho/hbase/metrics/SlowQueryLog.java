@@ -0,0 +1,118 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the queries slower than a threshold. A sample of the slow queries is considered and at most maxPerSecond of them
+ * are logged each second, the others are counted and reported with the next logged query. Uses its own logger,
+ * <code>com.eharmony.pho.hbase.metrics.SlowQueryLog</code>, so it can be routed apart.
+ */
+public class SlowQueryLog {
+
+    public static final long DEFAULT_THRESHOLD_MILLIS = 1000;
+    public static final double DEFAULT_SAMPLE_RATE = 1.0;
+    public static final int DEFAULT_MAX_PER_SECOND = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD_MILLIS);
+    private volatile double sampleRate = DEFAULT_SAMPLE_RATE;
+    private volatile int maxPerSecond = DEFAULT_MAX_PER_SECOND;
+
+    // current second and the number of queries logged in it, packed as second << 32 | count
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * @return true if a query taking the given time is slow and may be logged
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return thresholdNanos >= 0 && elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * Logs the query if it is slow, sampled in and within the rate limit.
+     *
+     * @param query
+     *            query string, or any object rendering it
+     * @param elapsedNanos
+     *            time the query took
+     */
+    public void log(Object query, long elapsedNanos) {
+        if (!isSlow(elapsedNanos)) {
+            return;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (!acquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long skipped = suppressed.getAndSet(0);
+        if (skipped > 0) {
+            log.warn("Slow query took {} ms, {} slow queries not logged: {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), skipped, query);
+        } else {
+            log.warn("Slow query took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), query);
+        }
+    }
+
+    private boolean acquire() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()) & 0xFFFFFFFFL;
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> 32;
+            int count = (int) current;
+            long next;
+            if (currentSecond != second) {
+                next = (second << 32) | 1;
+            } else if (count < maxPerSecond) {
+                next = current + 1;
+            } else {
+                return false;
+            }
+            if (window.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * @param thresholdMillis
+     *            queries taking at least this long are slow, negative disables the log
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis >= 0 ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : -1;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate
+     *            fraction of the slow queries considered for logging, between 0 and 1
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+}
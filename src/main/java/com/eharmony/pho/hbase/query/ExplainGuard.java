@@ -0,0 +1,136 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Guards against queries scanning more than intended. The query executor explains each new query shape once, the plan
+ * is cached by query fingerprint and checked against the {@link ScanPolicy} of the query entity on every execution.
+ */
+public class ExplainGuard {
+
+    public static final int DEFAULT_PLAN_CACHE_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(ExplainGuard.class);
+
+    private final Cache<String, QueryPlan> plans;
+    private ScanPolicy defaultPolicy = new ScanPolicy();
+    private Map<Class<?>, ScanPolicy> policies = new HashMap<Class<?>, ScanPolicy>();
+    private final ConcurrentMap<Class<?>, AtomicLong> violations = new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+    public ExplainGuard() {
+        this(DEFAULT_PLAN_CACHE_SIZE);
+    }
+
+    public ExplainGuard(int planCacheSize) {
+        Preconditions.checkArgument(planCacheSize > 0, "planCacheSize must be positive");
+        this.plans = CacheBuilder.newBuilder().maximumSize(planCacheSize).build();
+    }
+
+    /**
+     * Checks the plan of the query shape, explaining it if it is not cached yet.
+     * 
+     * @param entityClass
+     *            entity class of the query, selects the policy
+     * @param fingerprint
+     *            shape of the query
+     * @param explainer
+     *            runs <code>EXPLAIN</code> for the query
+     * @return the plan of the query shape
+     * @throws DataStoreException
+     *             if the plan breaks a rejecting policy or the query can not be explained
+     */
+    public QueryPlan check(final Class<?> entityClass, final String fingerprint, final Callable<QueryPlan> explainer) {
+        final ScanPolicy policy = getPolicy(entityClass);
+        QueryPlan plan;
+        try {
+            plan = plans.get(fingerprint, new Callable<QueryPlan>() {
+                @Override
+                public QueryPlan call() throws Exception {
+                    QueryPlan explained = explainer.call();
+                    if (policy.isViolatedBy(explained) && policy.getAction() != ScanPolicy.Action.COUNT) {
+                        log.warn("Query plan of {} breaks {}: {}", entityClass.getSimpleName(), policy,
+                                explained.getSteps());
+                    }
+                    return explained;
+                }
+            });
+        } catch (ExecutionException ex) {
+            throw new DataStoreException("Unable to explain query " + fingerprint, ex.getCause());
+        }
+        if (policy.isViolatedBy(plan)) {
+            violationCounter(entityClass).incrementAndGet();
+            if (policy.getAction() == ScanPolicy.Action.REJECT) {
+                throw new DataStoreException("Query on " + entityClass.getSimpleName() + " rejected by " + policy
+                        + ", plan: " + plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return the cached plan of the query shape, null if it was not explained yet
+     */
+    public QueryPlan getPlan(String fingerprint) {
+        return plans.getIfPresent(fingerprint);
+    }
+
+    /**
+     * @return number of executed queries of the entity class whose plan broke its policy
+     */
+    public long getViolationCount(Class<?> entityClass) {
+        AtomicLong counter = violations.get(entityClass);
+        return counter != null ? counter.get() : 0;
+    }
+
+    private AtomicLong violationCounter(Class<?> entityClass) {
+        AtomicLong counter = violations.get(entityClass);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = violations.putIfAbsent(entityClass, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public ScanPolicy getPolicy(Class<?> entityClass) {
+        ScanPolicy policy = policies.get(entityClass);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    public ScanPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public void setDefaultPolicy(ScanPolicy defaultPolicy) {
+        this.defaultPolicy = Preconditions.checkNotNull(defaultPolicy);
+    }
+
+    public Map<Class<?>, ScanPolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * @param policies
+     *            policies of the entities that do not follow the default policy
+     */
+    public void setPolicies(Map<Class<?>, ScanPolicy> policies) {
+        this.policies = new HashMap<Class<?>, ScanPolicy>(Preconditions.checkNotNull(policies));
+    }
+
+}
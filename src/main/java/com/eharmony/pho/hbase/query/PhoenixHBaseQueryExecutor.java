@@ -4,22 +4,66 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.commons.beanutils.PropertyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.eharmony.pho.api.CloseableIterator;
 import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.api.Page;
+import com.eharmony.pho.api.PageToken;
+import com.eharmony.pho.hbase.codec.ValueCodecRegistry;
 import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+import com.eharmony.pho.hbase.metrics.DefaultQueryMetrics;
+import com.eharmony.pho.hbase.metrics.QueryMetrics;
+import com.eharmony.pho.hbase.metrics.QueryPhase;
+import com.eharmony.pho.hbase.metrics.SlowQueryLog;
+import com.eharmony.pho.hbase.translator.ParameterizedQuery;
 import com.eharmony.pho.hbase.translator.PhoenixHBaseQueryTranslator;
+import com.eharmony.pho.hbase.translator.QueryFingerprint;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.hbase.util.PhoenixConnectionManager;
+import com.eharmony.pho.mapper.EntityPropertyBinding;
+import com.eharmony.pho.query.QueryOperationType;
 import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.QuerySelectImpl;
 import com.eharmony.pho.query.QueryUpdate;
+import com.eharmony.pho.query.builder.QueryBuilder;
 import com.eharmony.pho.query.builder.QueryUpdateBuilder;
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.Ordering;
+import com.eharmony.pho.query.criterion.Orderings;
+import com.eharmony.pho.query.criterion.Restrictions;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.primitives.Ints;
 
 /**
  * Executes the query on hbase through phoenix query server after translation using query translator. Select query
@@ -32,12 +76,32 @@ public class PhoenixHBaseQueryExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(PhoenixHBaseQueryExecutor.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+    public static final int DEFAULT_KEY_LOOKUP_CHUNK_SIZE = 500;
+
+    private static final String UPSERT_FINGERPRINT = "UPSERT";
+    private static final String UPSERT_SELECT_FINGERPRINT = "UPSERT SELECT";
+
     private final PhoenixHBaseQueryTranslator queryTranslator;
     private final PhoenixProjectedResultMapper resultMapper;
-    private boolean showSQL = true;
+    // logs every query string at INFO, the slow query log is meant for production use
+    private boolean showSQL = false;
+    private QueryMetrics queryMetrics = new DefaultQueryMetrics();
+    private final SlowQueryLog slowQueryLog = new SlowQueryLog();
+    // when set, the plan of every new query shape is explained and checked against the scan policies
+    private ExplainGuard explainGuard;
+    // when set, select criteria values are sent as bind parameters instead of inline literals
+    private boolean parameterized = false;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private int keyLookupChunkSize = DEFAULT_KEY_LOOKUP_CHUNK_SIZE;
+    // rows fetched per round trip, 0 keeps the driver default
+    private int fetchSize = 0;
     //Holder for statement properties like queryTimeOut.
-    private final Map<String, String> statementProperties;
     private static final String QUERY_TIMEOUT_SEC = "queryTimeoutSec";
+    // statement timeout configured through the queryTimeoutSec statement property, 0 for none
+    private final int queryTimeoutSec;
 
     public PhoenixHBaseQueryExecutor(final PhoenixHBaseQueryTranslator queryTranslator,
             final PhoenixProjectedResultMapper resultMapper) {
@@ -48,42 +112,755 @@ public class PhoenixHBaseQueryExecutor {
             final PhoenixProjectedResultMapper resultMapper, final Map<String, String> statementProperties) {
         this.queryTranslator = Preconditions.checkNotNull(queryTranslator);
         this.resultMapper = Preconditions.checkNotNull(resultMapper);
-        this.statementProperties = Preconditions.checkNotNull(statementProperties);
+        this.queryTimeoutSec = parseQueryTimeout(Preconditions.checkNotNull(statementProperties).get(
+                QUERY_TIMEOUT_SEC));
+    }
+
+    private static int parseQueryTimeout(String queryTimeOutValue) {
+        if (queryTimeOutValue == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(queryTimeOutValue.trim()));
+        } catch (NumberFormatException ig) {
+            log.warn("Ignoring invalid queryTimeout {}", queryTimeOutValue, ig);
+            return 0;
+        }
     }
 
     public <T, R> Iterable<R> find(QuerySelect<T, R> query, Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        if (parameterized) {
+            ParameterizedQuery parameterizedQuery = queryTranslator.translateParameterized(query);
+            String fingerprint = fingerprint(query, parameterizedQuery);
+            queryMetrics.recordLatency(query.getEntityClass(), fingerprint, QueryPhase.TRANSLATE, System.nanoTime()
+                    - start);
+            return find(parameterizedQuery, query, conn, fingerprint, start);
+        }
+        String fingerprint = fingerprint(query, null);
         ResultSet resultSet = null;
         Statement statement = null;
         try {
             String queryStr = queryTranslator.translate(query);
+            long translated = System.nanoTime();
+            queryMetrics.recordLatency(query.getEntityClass(), fingerprint, QueryPhase.TRANSLATE, translated - start);
             if (showSQL) {
                 log.info("Query String: {}", queryStr);
             }
-            statement = createStatement(conn);
+            explain(query, fingerprint, queryStr, null, conn);
+            statement = createStatement(conn, query.getDeadline());
             resultSet = statement.executeQuery(queryStr);
-            return resultMapper.mapResults(resultSet, query.getReturnType());
+            Iterable<R> results = mapResults(resultSet, query, fingerprint, translated);
+            slowQueryLog.log(queryStr, System.nanoTime() - start);
+            return results;
+        } catch (final Exception hx) {
+            queryMetrics.recordError(query.getEntityClass(), fingerprint, hx);
+            throw dataStoreException(hx);
+        } finally {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Executes already translated select query on a prepared statement, binding the query parameters.
+     * 
+     * @param parameterizedQuery
+     *            translated query with bind parameters
+     * @param query
+     *            QuerySelect the query was translated from, used to map the results
+     * @param conn
+     *            Connection
+     * @return mapped results
+     * @throws SQLException
+     *             if the statement can not be closed
+     */
+    public <T, R> Iterable<R> find(ParameterizedQuery parameterizedQuery, QuerySelect<T, R> query, Connection conn)
+            throws SQLException {
+        return find(parameterizedQuery, query, conn, fingerprint(query, parameterizedQuery), System.nanoTime());
+    }
+
+    private <T, R> Iterable<R> find(ParameterizedQuery parameterizedQuery, QuerySelect<T, R> query,
+            Connection conn, String fingerprint, long start) throws SQLException {
+        ResultSet resultSet = null;
+        PreparedStatement statement = null;
+        try {
+            if (showSQL) {
+                log.info("Query String: {}", parameterizedQuery);
+            }
+            explain(query, fingerprint, parameterizedQuery.getQueryString(), parameterizedQuery.getParameters(), conn);
+            long executeStart = System.nanoTime();
+            statement = createPreparedStatement(conn, parameterizedQuery.getQueryString(), query.getDeadline());
+            bind(statement, parameterizedQuery.getParameters());
+            resultSet = statement.executeQuery();
+            Iterable<R> results = mapResults(resultSet, query, fingerprint, executeStart);
+            slowQueryLog.log(parameterizedQuery, System.nanoTime() - start);
+            return results;
         } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
+            queryMetrics.recordError(query.getEntityClass(), fingerprint, hx);
+            throw dataStoreException(hx);
+        } finally {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            closeStatementSafe(statement);
+        }
+    }
+
+    /*
+     * Records the execute time, up to the first row fetched with the result set, and the time spent mapping the rows.
+     */
+    private <T, R> Iterable<R> mapResults(ResultSet resultSet, QuerySelect<T, R> query, String fingerprint,
+            long executeStart) throws Exception {
+        Class<T> entityClass = query.getEntityClass();
+        long executed = System.nanoTime();
+        queryMetrics.recordLatency(entityClass, fingerprint, QueryPhase.EXECUTE, executed - executeStart);
+        Iterable<R> results = resultMapper.mapResults(resultSet, query.getReturnType());
+        queryMetrics.recordLatency(entityClass, fingerprint, QueryPhase.MAP, System.nanoTime() - executed);
+        if (results instanceof Collection) {
+            queryMetrics.recordRows(entityClass, fingerprint, ((Collection<?>) results).size());
+        }
+        return results;
+    }
+
+    /**
+     * Translates the query with its criteria values as bind parameters, whether the executor is parameterized or not.
+     * 
+     * @param query
+     *            QuerySelect
+     * @return the query string and its parameters
+     */
+    public <T, R> ParameterizedQuery translateParameterized(QuerySelect<T, R> query) {
+        return queryTranslator.translateParameterized(query);
+    }
+
+    /*
+     * Shape of the query the metrics and the explain guard are keyed by, computed once per query and only when one of
+     * them is on. The fingerprint of the translation is reused when it computed one.
+     */
+    private <T, R> String fingerprint(QuerySelect<T, R> query, ParameterizedQuery translated) {
+        if (translated != null && translated.getFingerprint() != null) {
+            return translated.getFingerprint();
+        }
+        return queryMetrics != QueryMetrics.NOOP || explainGuard != null ? QueryFingerprint.of(query) : null;
+    }
+
+    /*
+     * Checks the plan of the query against the scan policy of its entity when the explain guard is on. The plan of a
+     * new query shape is explained on the connection of the query.
+     */
+    private <T, R> void explain(QuerySelect<T, R> query, String fingerprint, final String queryString,
+            final List<Object> parameters, final Connection conn) {
+        if (explainGuard == null) {
+            return;
+        }
+        final String tableName = queryTranslator.resolveTableName(query.getEntityClass());
+        explainGuard.check(query.getEntityClass(), fingerprint, new Callable<QueryPlan>() {
+            @Override
+            public QueryPlan call() throws Exception {
+                return explain(queryString, parameters, tableName, conn);
+            }
+        });
+    }
+
+    /**
+     * Runs <code>EXPLAIN</code> for the query.
+     * 
+     * @param queryString
+     *            translated query
+     * @param parameters
+     *            bind parameters of the query, null or empty if it has none
+     * @param tableName
+     *            table of the query entity
+     * @param conn
+     *            Connection
+     * @return the parsed plan
+     * @throws SQLException
+     *             if the query can not be explained
+     */
+    public QueryPlan explain(String queryString, List<Object> parameters, String tableName, Connection conn)
+            throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = conn.prepareStatement("EXPLAIN " + queryString);
+            if (parameters != null) {
+                bind(statement, parameters);
+            }
+            resultSet = statement.executeQuery();
+            List<String> steps = new ArrayList<String>();
+            while (resultSet.next()) {
+                steps.add(resultSet.getString(1));
+            }
+            return QueryPlan.parse(steps, tableName);
         } finally {
+            closeQuietly(resultSet, statement);
+        }
+    }
+
+    /**
+     * Executes the select query and returns an iterator mapping the rows as they are fetched. The statement stays open
+     * until the iterator is closed or exhausted, the onClose callback is run afterwards. The caller keeps ownership of
+     * the connection if this method throws.
+     * 
+     * @param query
+     *            QuerySelect
+     * @param conn
+     *            Connection, must stay open while iterating
+     * @param onClose
+     *            callback run once the iterator released its statement, may be null
+     * @return CloseableIterator over the mapped results
+     */
+    public <T, R> CloseableIterator<R> stream(QuerySelect<T, R> query, Connection conn, Runnable onClose) {
+        String fingerprint = null;
+        long start = System.nanoTime();
+        ResultSet resultSet = null;
+        Statement statement = null;
+        try {
+            Object loggedQuery;
+            long translated;
+            if (parameterized) {
+                ParameterizedQuery parameterizedQuery = queryTranslator.translateParameterized(query);
+                translated = System.nanoTime();
+                fingerprint = fingerprint(query, parameterizedQuery);
+                loggedQuery = parameterizedQuery;
+                if (showSQL) {
+                    log.info("Query String: {}", parameterizedQuery);
+                }
+                explain(query, fingerprint, parameterizedQuery.getQueryString(), parameterizedQuery.getParameters(),
+                        conn);
+                PreparedStatement preparedStatement = createPreparedStatement(conn,
+                        parameterizedQuery.getQueryString(), query.getDeadline());
+                statement = preparedStatement;
+                bind(preparedStatement, parameterizedQuery.getParameters());
+                resultSet = preparedStatement.executeQuery();
+            } else {
+                String queryStr = queryTranslator.translate(query);
+                translated = System.nanoTime();
+                fingerprint = fingerprint(query, null);
+                loggedQuery = queryStr;
+                if (showSQL) {
+                    log.info("Query String: {}", queryStr);
+                }
+                explain(query, fingerprint, queryStr, null, conn);
+                statement = createStatement(conn, query.getDeadline());
+                resultSet = statement.executeQuery(queryStr);
+            }
+            long executed = System.nanoTime();
+            queryMetrics.recordLatency(query.getEntityClass(), fingerprint, QueryPhase.TRANSLATE, translated - start);
+            queryMetrics.recordLatency(query.getEntityClass(), fingerprint, QueryPhase.EXECUTE, executed - translated);
+            slowQueryLog.log(loggedQuery, executed - start);
+            return new PhoenixHBaseResultIterator<R>(resultSet, statement, resultMapper, query.getReturnType(),
+                    onClose);
+        } catch (final Exception hx) {
+            queryMetrics.recordError(query.getEntityClass(), fingerprint != null ? fingerprint : fingerprint(query,
+                    null), hx);
+            closeQuietly(resultSet, statement);
+            throw dataStoreException(hx);
+        }
+    }
+
+    private void closeQuietly(ResultSet resultSet, Statement statement) {
+        try {
             if (resultSet != null) {
                 resultSet.close();
             }
+        } catch (Exception ex) {
+            log.warn("Exception while closing the ResultSet...", ex);
+        }
+        try {
             if (statement != null) {
                 statement.close();
             }
+        } catch (Exception ex) {
+            log.warn("Exception while closing the Statement...", ex);
+        }
+    }
+
+    /**
+     * Binds the values to the statement parameters in order, with the codecs of the translator
+     * {@link com.eharmony.pho.hbase.codec.ValueCodecRegistry}.
+     * 
+     * @param statement
+     *            PreparedStatement
+     * @param parameters
+     *            values in placeholder order
+     * @throws SQLException
+     *             if a value can not be bound
+     */
+    protected void bind(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        ValueCodecRegistry codecs = queryTranslator.getValueCodecRegistry();
+        int index = 1;
+        for (Object parameter : parameters) {
+            codecs.bind(statement, index++, parameter);
         }
     }
 
-    private void closeStatementSafe(PreparedStatement ps) {
-        if (ps != null) {
+    private void closeStatementSafe(Statement statement) {
+        if (statement != null) {
             try {
-                ps.close();
+                statement.close();
             } catch (Exception ex) {
-                log.warn("Exception while closing the PreparedStatement...", ex);
+                log.warn("Exception while closing the Statement...", ex);
             }
         }
     }
 
+    /**
+     * Executes the select query as concurrent range scans, splitting it on the leading primary key column at the split
+     * points returned by the resolver.
+     * 
+     * @see #findParallel(QuerySelect, List, ConnectionProvider, ExecutorService)
+     */
+    public <T, R> List<R> findParallel(QuerySelect<T, R> query, SplitPointResolver splitPointResolver,
+            ConnectionProvider connectionProvider, ExecutorService executorService) {
+        List<Object> splitPoints;
+        Connection conn = null;
+        try {
+            conn = getConnection(connectionProvider, query.getDeadline());
+            splitPoints = splitPointResolver.resolveSplitPoints(query.getEntityClass(), conn);
+        } catch (final Exception hx) {
+            throw dataStoreException(hx);
+        } finally {
+            releaseConnectionSafe(connectionProvider, conn);
+        }
+        return findParallel(query, splitPoints, connectionProvider, executorService);
+    }
+
+    /**
+     * Executes the select query as concurrent range scans. The query is split on the leading primary key column into
+     * one key range per interval between the split points, each range runs on its own connection. Results of queries
+     * with orderings are k-way merged in query order, otherwise they are concatenated in key range order. The
+     * maxResults limit of the query is applied to the merged results.
+     * 
+     * @param query
+     *            QuerySelect, its entity must declare a {@link com.eharmony.pho.annotations.PrimaryKey}
+     * @param splitPoints
+     *            values of the leading primary key column, sorted and deduplicated before the key ranges are built
+     * @param connectionProvider
+     *            provides a connection per key range
+     * @param executorService
+     *            runs the key range scans
+     * @return merged results
+     */
+    public <T, R> List<R> findParallel(final QuerySelect<T, R> query, List<?> splitPoints,
+            final ConnectionProvider connectionProvider, ExecutorService executorService) {
+        List<EntityPropertyBinding> primaryKey = queryTranslator.getPrimaryKeyPropertyBindings(query.getEntityClass());
+        Preconditions.checkArgument(!primaryKey.isEmpty(), "no primary key declared for %s", query.getEntityClass());
+        String splitProperty = primaryKey.get(0).getName();
+        // aggregates and distinct rows can not be merged across key ranges
+        Preconditions.checkArgument(query.getProjections().isEmpty() && query.getGroupBy().isEmpty()
+                && !query.isDistinct(), "aggregate and distinct queries can not be split");
+
+        List<Object> ascendingSplitPoints = ascending(splitPoints);
+        List<QuerySelect<T, R>> rangeQueries = new ArrayList<QuerySelect<T, R>>(ascendingSplitPoints.size() + 1);
+        for (int i = 0; i <= ascendingSplitPoints.size(); i++) {
+            Object lower = i > 0 ? ascendingSplitPoints.get(i - 1) : null;
+            Object upper = i < ascendingSplitPoints.size() ? ascendingSplitPoints.get(i) : null;
+            rangeQueries.add(rangeQuery(query, splitProperty, lower, upper));
+        }
+        return merge(findConcurrently(rangeQueries, connectionProvider, executorService, query.getDeadline()),
+                query.getOrder(), query.getMaxResults());
+    }
+
+    /*
+     * key ranges run from one split point to the next, unsorted or repeated points would make them overlap
+     */
+    private static List<Object> ascending(List<?> splitPoints) {
+        SortedSet<Object> ascending = new TreeSet<Object>();
+        for (Object splitPoint : splitPoints) {
+            Preconditions.checkArgument(splitPoint instanceof Comparable, "split point %s is not comparable",
+                    splitPoint);
+            try {
+                ascending.add(splitPoint);
+            } catch (ClassCastException ex) {
+                throw new IllegalArgumentException("split points " + splitPoints + " are not mutually comparable", ex);
+            }
+        }
+        return new ArrayList<Object>(ascending);
+    }
+
+    /**
+     * Loads the entities with the given primary keys. Keys are looked up in chunks of keyLookupChunkSize with row
+     * value constructor IN queries, which phoenix runs as skip scans.
+     * 
+     * @param entityClass
+     *            entity class, must declare its {@link com.eharmony.pho.annotations.PrimaryKey} columns
+     * @param keys
+     *            primary key values, a List or Object[] of the column values in key order for composite keys
+     * @param connectionProvider
+     *            provides a connection per chunk
+     * @param executorService
+     *            runs the chunks concurrently, when null the chunks run one after the other on a single connection
+     * @return entities found keyed by the key given for them, in key order
+     */
+    public <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys,
+            final ConnectionProvider connectionProvider, ExecutorService executorService) {
+        return findByKeys(entityClass, keys, connectionProvider, executorService, null);
+    }
+
+    /**
+     * Loads the entities with the given primary keys, every chunk bounded by the given deadline.
+     * 
+     * @see #findByKeys(Class, Collection, ConnectionProvider, ExecutorService)
+     */
+    public <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys,
+            final ConnectionProvider connectionProvider, ExecutorService executorService, Deadline deadline) {
+        List<EntityPropertyBinding> primaryKey = queryTranslator.getPrimaryKeyPropertyBindings(entityClass);
+        Preconditions.checkArgument(!primaryKey.isEmpty(), "no primary key declared for %s", entityClass);
+        String[] propertyNames = new String[primaryKey.size()];
+        for (int i = 0; i < propertyNames.length; i++) {
+            propertyNames[i] = primaryKey.get(i).getName();
+        }
+
+        Map<List<Object>, Object> requestedKeys = new LinkedHashMap<List<Object>, Object>();
+        List<Object[]> rows = new ArrayList<Object[]>(keys.size());
+        for (Object key : keys) {
+            Object[] row = keyValues(key, propertyNames.length);
+            if (!requestedKeys.containsKey(normalizedKey(row))) {
+                requestedKeys.put(normalizedKey(row), key);
+                rows.add(row);
+            }
+        }
+        List<QuerySelect<T, T>> chunkQueries = new ArrayList<QuerySelect<T, T>>();
+        for (List<Object[]> chunk : Lists.partition(rows, keyLookupChunkSize)) {
+            chunkQueries.add(QueryBuilder.builderFor(entityClass).select()
+                    .add(Restrictions.in(propertyNames, chunk)).deadline(deadline).build());
+        }
+
+        Map<List<Object>, T> found = new HashMap<List<Object>, T>();
+        for (Iterable<T> results : findConcurrently(chunkQueries, connectionProvider, executorService, deadline)) {
+            for (T entity : results) {
+                Object[] row = new Object[primaryKey.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = readProperty(entity, primaryKey.get(i).getNameFullPath());
+                }
+                found.put(normalizedKey(row), entity);
+            }
+        }
+        Map<Object, T> results = new LinkedHashMap<Object, T>();
+        for (Map.Entry<List<Object>, Object> requestedKey : requestedKeys.entrySet()) {
+            T entity = found.get(requestedKey.getKey());
+            if (entity != null) {
+                results.put(requestedKey.getValue(), entity);
+            }
+        }
+        return results;
+    }
+
+    private Object[] keyValues(Object key, int keySize) {
+        Object[] row;
+        if (key instanceof Object[]) {
+            row = (Object[]) key;
+        } else if (key instanceof List) {
+            row = ((List<?>) key).toArray();
+        } else {
+            row = new Object[] { key };
+        }
+        Preconditions.checkArgument(row.length == keySize, "key %s does not have %s columns", key, keySize);
+        return row;
+    }
+
+    /**
+     * Normalizes a key given to {@link #findByKeys(Class, Collection, ConnectionProvider, ExecutorService)}, keys
+     * normalized equal are looked up as the same row.
+     * 
+     * @param key
+     *            primary key value, a List or Object[] of the column values for composite keys
+     * @return the column values of the key, integral numbers as longs
+     */
+    public static List<Object> normalizeKey(Object key) {
+        if (key instanceof Object[]) {
+            return normalizedKey((Object[]) key);
+        }
+        if (key instanceof List) {
+            return normalizedKey(((List<?>) key).toArray());
+        }
+        return normalizedKey(new Object[] { key });
+    }
+
+    /*
+     * Integral numbers are compared as longs, so keys given as Long match an int primary key property.
+     */
+    private static List<Object> normalizedKey(Object[] row) {
+        List<Object> key = new ArrayList<Object>(row.length);
+        for (Object value : row) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                key.add(((Number) value).longValue());
+            } else {
+                key.add(value);
+            }
+        }
+        return key;
+    }
+
+    private Object readProperty(Object entity, String propertyPath) {
+        try {
+            return PropertyUtils.getProperty(entity, propertyPath);
+        } catch (Exception ex) {
+            throw new DataStoreException("unable to read property " + propertyPath + " of "
+                    + entity.getClass().getName(), ex);
+        }
+    }
+
+    /*
+     * Runs each query on its own connection, or all of them on a single connection when there is no executor, and
+     * returns their results in query order. The queries share the deadline, waiting on them included.
+     */
+    private <T, R> List<Iterable<R>> findConcurrently(List<QuerySelect<T, R>> queries,
+            final ConnectionProvider connectionProvider, ExecutorService executorService, final Deadline deadline) {
+        List<Iterable<R>> queryResults = new ArrayList<Iterable<R>>(queries.size());
+        if (executorService == null || queries.size() <= 1) {
+            Connection conn = null;
+            try {
+                conn = getConnection(connectionProvider, deadline);
+                for (QuerySelect<T, R> query : queries) {
+                    queryResults.add(find(query, conn));
+                }
+                return queryResults;
+            } catch (final DataStoreException hx) {
+                throw hx;
+            } catch (final Exception hx) {
+                throw dataStoreException(hx);
+            } finally {
+                releaseConnectionSafe(connectionProvider, conn);
+            }
+        }
+        List<Future<Iterable<R>>> futures = new ArrayList<Future<Iterable<R>>>(queries.size());
+        try {
+            for (final QuerySelect<T, R> query : queries) {
+                futures.add(executorService.submit(new Callable<Iterable<R>>() {
+                    @Override
+                    public Iterable<R> call() throws Exception {
+                        Connection conn = getConnection(connectionProvider, deadline);
+                        try {
+                            return find(query, conn);
+                        } finally {
+                            releaseConnectionSafe(connectionProvider, conn);
+                        }
+                    }
+                }));
+            }
+            for (Future<Iterable<R>> future : futures) {
+                if (deadline == null) {
+                    queryResults.add(future.get());
+                } else {
+                    queryResults.add(future.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+                }
+            }
+            return queryResults;
+        } catch (final ExecutionException ex) {
+            throw ex.getCause() instanceof Exception ? dataStoreException((Exception) ex.getCause())
+                    : new DataStoreException(ex.getCause().getMessage(), ex.getCause());
+        } catch (final TimeoutException ex) {
+            throw new DataStoreTimeoutException("Deadline exceeded waiting for " + queries.size() + " queries", ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException(ex.getMessage(), ex);
+        } catch (final RejectedExecutionException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        } finally {
+            for (Future<Iterable<R>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T, R> QuerySelect<T, R> rangeQuery(QuerySelect<T, R> query, String splitProperty, Object lower,
+            Object upper) {
+        List<Criterion> criteria = new ArrayList<Criterion>(3);
+        if (query.getCriteria() != null) {
+            criteria.add(query.getCriteria());
+        }
+        if (lower != null) {
+            criteria.add(Restrictions.gte(splitProperty, lower));
+        }
+        if (upper != null) {
+            criteria.add(Restrictions.lt(splitProperty, upper));
+        }
+        Criterion rangeCriteria = criteria.size() == 1 ? criteria.get(0) : Restrictions.and(criteria
+                .toArray(new Criterion[criteria.size()]));
+        return new QuerySelectImpl<T, R>(query.getEntityClass(), query.getReturnType(), rangeCriteria,
+                query.getOrder(), query.getMaxResults(), query.getReturnFields(), query.getQueryOperationType(),
+                query.getQueryHint(), query.getProjections(), query.getGroupBy(), query.isDistinct(),
+                query.getDeadline(), query.getQueryHints());
+    }
+
+    private <R> List<R> merge(List<Iterable<R>> rangeResults, Orderings orderings, Integer maxResults) {
+        int limit = maxResults != null && maxResults > 0 ? maxResults : Integer.MAX_VALUE;
+        List<R> merged = new ArrayList<R>();
+        if (orderings == null || orderings.get().isEmpty()) {
+            for (Iterable<R> results : rangeResults) {
+                for (R result : results) {
+                    if (merged.size() >= limit) {
+                        return merged;
+                    }
+                    merged.add(result);
+                }
+            }
+            return merged;
+        }
+        final Comparator<R> comparator = new ResultOrderingComparator<R>(orderings);
+        PriorityQueue<PeekingIterator<R>> heads = new PriorityQueue<PeekingIterator<R>>(rangeResults.size(),
+                new Comparator<PeekingIterator<R>>() {
+                    @Override
+                    public int compare(PeekingIterator<R> o1, PeekingIterator<R> o2) {
+                        return comparator.compare(o1.peek(), o2.peek());
+                    }
+                });
+        for (Iterable<R> results : rangeResults) {
+            PeekingIterator<R> iterator = Iterators.peekingIterator(results.iterator());
+            if (iterator.hasNext()) {
+                heads.add(iterator);
+            }
+        }
+        while (!heads.isEmpty() && merged.size() < limit) {
+            PeekingIterator<R> head = heads.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private Connection getConnection(ConnectionProvider connectionProvider, Deadline deadline) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return PhoenixConnectionManager.getConnection(connectionProvider, deadline);
+        } finally {
+            queryMetrics.recordConnectionAcquire(System.nanoTime() - start);
+        }
+    }
+
+    private void releaseConnectionSafe(ConnectionProvider connectionProvider, Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            connectionProvider.releaseConnection(conn);
+        } catch (Exception ex) {
+            log.warn("Exception while closing the connection...", ex);
+        }
+    }
+
+    /**
+     * Fetches a page of the query results, maxResults rows of the query starting after the row the token was taken
+     * from. Instead of skipping the rows of the previous pages, the pages after the first seek past the ordering values
+     * of that row with a <code>(a, b) &gt; (?, ?)</code> row value constructor, or its OR expansion when the orderings
+     * mix directions. Orderings are completed with the primary key columns so that every row has a distinct position;
+     * the ordering properties must not be null and must be readable from the result type.
+     * 
+     * @param query
+     *            QuerySelect with the page size as maxResults
+     * @param pageToken
+     *            token of the previous page, null for the first page
+     * @param conn
+     *            Connection
+     * @return the page, with the token of the next one if there are more rows
+     */
+    public <T, R> Page<R> findPage(QuerySelect<T, R> query, PageToken pageToken, Connection conn) {
+        Integer pageSize = query.getMaxResults();
+        Preconditions.checkArgument(pageSize != null && pageSize > 0, "maxResults must be set to the page size");
+        List<Ordering> orderings = pageOrderings(query);
+        Preconditions.checkArgument(!orderings.isEmpty(), "paged queries need an ordering or a primary key");
+        List<String> propertyNames = new ArrayList<String>(orderings.size());
+        for (Ordering ordering : orderings) {
+            propertyNames.add(ordering.getPropertyName());
+        }
+
+        Criterion criteria = query.getCriteria();
+        if (pageToken != null) {
+            Preconditions.checkArgument(propertyNames.equals(pageToken.getPropertyNames()),
+                    "page token does not match the query orderings %s", propertyNames);
+            Criterion seek = seekCriterion(orderings, pageToken.getValues());
+            criteria = criteria != null ? Restrictions.and(criteria, seek) : seek;
+        }
+        // one more row tells whether there is a next page
+        QuerySelect<T, R> pageQuery = new QuerySelectImpl<T, R>(query.getEntityClass(), query.getReturnType(),
+                criteria, new Orderings(orderings.toArray(new Ordering[orderings.size()])), pageSize + 1,
+                query.getReturnFields(), query.getQueryOperationType(), query.getQueryHint(), query.getProjections(),
+                query.getGroupBy(), query.isDistinct(), query.getDeadline(), query.getQueryHints());
+        List<R> results = new ArrayList<R>(pageSize + 1);
+        try {
+            for (R result : find(pageQuery, conn)) {
+                results.add(result);
+            }
+        } catch (final DataStoreException hx) {
+            throw hx;
+        } catch (final Exception hx) {
+            throw dataStoreException(hx);
+        }
+        if (results.size() <= pageSize) {
+            return new Page<R>(results, null);
+        }
+        results.remove(pageSize.intValue());
+        R last = results.get(pageSize - 1);
+        List<Object> lastValues = new ArrayList<Object>(propertyNames.size());
+        for (String propertyName : propertyNames) {
+            Object value = readProperty(last, propertyName);
+            if (value == null) {
+                throw new DataStoreException("ordering property " + propertyName
+                        + " is null, paged queries can not seek past null values");
+            }
+            lastValues.add(value);
+        }
+        return new Page<R>(results, new PageToken(propertyNames, lastValues));
+    }
+
+    private <T, R> List<Ordering> pageOrderings(QuerySelect<T, R> query) {
+        List<Ordering> orderings = new ArrayList<Ordering>();
+        Set<String> orderedProperties = new HashSet<String>();
+        if (query.getOrder() != null) {
+            for (Ordering ordering : query.getOrder().get()) {
+                orderings.add(ordering);
+                orderedProperties.add(ordering.getPropertyName());
+            }
+        }
+        if (query.getGroupBy().isEmpty()) {
+            Ordering.Order order = orderings.isEmpty() ? Ordering.Order.ASCENDING : orderings.get(
+                    orderings.size() - 1).getOrder();
+            for (EntityPropertyBinding binding : queryTranslator.getPrimaryKeyPropertyBindings(query.getEntityClass())) {
+                if (!orderedProperties.contains(binding.getName())) {
+                    orderings.add(new Ordering(binding.getName(), order, Ordering.NullOrdering.FIRST));
+                }
+            }
+        }
+        return orderings;
+    }
+
+    /*
+     * Rows after the given ordering values: a single row value comparison when all orderings share a direction,
+     * otherwise (a > ?) OR (a = ? AND b < ?) ...
+     */
+    private Criterion seekCriterion(List<Ordering> orderings, List<Object> values) {
+        String[] propertyNames = new String[orderings.size()];
+        boolean uniform = true;
+        for (int i = 0; i < propertyNames.length; i++) {
+            propertyNames[i] = orderings.get(i).getPropertyName();
+            uniform &= orderings.get(i).getOrder() == orderings.get(0).getOrder();
+        }
+        if (uniform) {
+            return orderings.get(0).getOrder() == Ordering.Order.DESCENDING ? Restrictions.lt(propertyNames,
+                    values.toArray()) : Restrictions.gt(propertyNames, values.toArray());
+        }
+        Criterion[] alternatives = new Criterion[propertyNames.length];
+        for (int i = 0; i < propertyNames.length; i++) {
+            Criterion[] terms = new Criterion[i + 1];
+            for (int j = 0; j < i; j++) {
+                terms[j] = Restrictions.eq(propertyNames[j], values.get(j));
+            }
+            terms[i] = orderings.get(i).getOrder() == Ordering.Order.DESCENDING ? Restrictions.lt(propertyNames[i],
+                    values.get(i)) : Restrictions.gt(propertyNames[i], values.get(i));
+            alternatives[i] = terms.length == 1 ? terms[0] : Restrictions.and(terms);
+        }
+        return Restrictions.or(alternatives);
+    }
+
     public <T, R> R findOne(QuerySelect<T, R> query, Connection conn) {
         try {
             Iterable<R> results = find(query, conn);
@@ -91,48 +868,44 @@ public class PhoenixHBaseQueryExecutor {
                 return results.iterator().next();
             }
         } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
+            throw dataStoreException(hx);
         }
         return null;
     }
 
     public <T> T save(QueryUpdate<T> query, Connection conn) {
-        PreparedStatement ps = null;
-        try {
-            String queryStr = queryTranslator.translate(query);
-            if (showSQL) {
-                log.info("Query String {}", queryStr);
-            }
-            ps = createPreparedStatement(conn, queryStr);
-            
-            int result = ps.executeUpdate();
-            if (result == 0) {
-                throw new DataStoreException("Save Failed for query...");
-            }
-            return null;
-        } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
-        } finally {
-            closeStatementSafe(ps);
-        }
+        executeUpsert(query, conn);
+        return null;
     }
 
     public <T> T save(T entity, Connection conn) {
+        executeUpsert(QueryUpdateBuilder.builderFor(entity).build(), conn);
+        return entity;
+    }
+
+    private <T> void executeUpsert(QueryUpdate<T> query, Connection conn) {
+        Class<?> entityClass = query.getEntity().getClass();
+        long start = System.nanoTime();
         PreparedStatement ps = null;
         try {
-            QueryUpdate<T> query = QueryUpdateBuilder.builderFor(entity).build();
             String queryStr = queryTranslator.translate(query);
+            long translated = System.nanoTime();
+            queryMetrics.recordLatency(entityClass, UPSERT_FINGERPRINT, QueryPhase.TRANSLATE, translated - start);
             if (showSQL) {
                 log.info("Query String {}", queryStr);
             }
-            ps = createPreparedStatement(conn, queryStr);
+            ps = createPreparedStatement(conn, queryStr, query.getDeadline());
             int result = ps.executeUpdate();
+            long executed = System.nanoTime();
+            queryMetrics.recordLatency(entityClass, UPSERT_FINGERPRINT, QueryPhase.EXECUTE, executed - translated);
+            queryMetrics.recordRows(entityClass, UPSERT_FINGERPRINT, result);
+            slowQueryLog.log(queryStr, executed - start);
             if (result == 0) {
                 throw new DataStoreException("Save Failed for query...");
             }
-            return entity;
         } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
+            queryMetrics.recordError(entityClass, UPSERT_FINGERPRINT, hx);
+            throw dataStoreException(hx);
         } finally {
             closeStatementSafe(ps);
         }
@@ -146,22 +919,203 @@ public class PhoenixHBaseQueryExecutor {
             }
             return saved;
         } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
+            throw dataStoreException(hx);
         }
     }
 
+    /**
+     * Saves the entities through one parameterized upsert statement per entity class and set of non null fields.
+     * Each statement is executed every batchSize rows and the connection is committed every commitInterval rows, the
+     * rows after the last commit interval are left for the caller to commit.
+     * 
+     * @param entities
+     *            entities to save
+     * @param conn
+     *            Connection
+     * @return update counts of the executed batches
+     */
     public <T> int[] saveBatch(Iterable<T> entities, Connection conn) {
-        PreparedStatement ps = null;
+        return saveBatch(entities, conn, null);
+    }
+
+    /**
+     * Saves the entities in batches, every batch bounded by what is left of the deadline.
+     * 
+     * @see #saveBatch(Iterable, Connection)
+     */
+    public <T> int[] saveBatch(Iterable<T> entities, Connection conn, Deadline deadline) {
+        return executeBatch(entities, conn, deadline, new Function<T, ParameterizedQuery>() {
+            @Override
+            public ParameterizedQuery apply(T entity) {
+                return queryTranslator.translateParameterized(QueryUpdateBuilder.builderFor(entity).build());
+            }
+        });
+    }
+
+    /**
+     * Deletes the rows matching the criteria of the query, built with the DELETE operation type. The delete runs with
+     * auto commit enabled so phoenix can execute it on the region servers without bringing the rows to the client.
+     * 
+     * @param query
+     *            QuerySelect with DELETE operation type
+     * @param conn
+     *            Connection
+     * @return number of rows deleted
+     */
+    public <T, R> int delete(QuerySelect<T, R> query, Connection conn) {
+        Preconditions.checkArgument(QueryOperationType.DELETE.equals(query.getQueryOperationType()),
+                "query must be built with the DELETE operation type");
+        ParameterizedQuery translated = parameterized ? queryTranslator.translateParameterized(query)
+                : new ParameterizedQuery(queryTranslator.translate(query), null);
+        String fingerprint = fingerprint(query, translated);
+        explain(query, fingerprint, translated.getQueryString(), translated.getParameters(), conn);
+        return executeServerSide(query.getEntityClass(), fingerprint, translated, parameterized,
+                query.getDeadline(), conn);
+    }
+
+    /**
+     * Updates the selected fields of every row matching the query criteria to the values of the query entity, through
+     * an <code>UPSERT SELECT</code> run on the region servers. The connection is switched to auto commit while the
+     * statement runs, so the rows are not buffered on the client.
+     * 
+     * @param query
+     *            update query with criteria and the fields to update
+     * @param conn
+     *            Connection
+     * @return the number of rows updated
+     */
+    public <T> int update(QueryUpdate<T> query, Connection conn) {
+        Preconditions.checkArgument(query.getCriteria() != null, "query must have criteria");
+        ParameterizedQuery translated = parameterized ? queryTranslator.translateParameterized(query)
+                : new ParameterizedQuery(queryTranslator.translate(query), null);
+        return executeServerSide(query.getEntity().getClass(), UPSERT_SELECT_FINGERPRINT, translated, parameterized,
+                query.getDeadline(), conn);
+    }
+
+    /**
+     * Runs the mutation with auto commit on, so Phoenix executes it on the region servers, and restores the auto commit
+     * mode of the connection afterwards. A plain statement is used unless the query is parameterized.
+     */
+    private int executeServerSide(Class<?> entityClass, String fingerprint, ParameterizedQuery query,
+            boolean prepared, Deadline deadline, Connection conn) {
+        Statement statement = null;
+        Boolean autoCommit = null;
         try {
-            ps = buildStatementWithBatch(entities, conn);
-            return ps.executeBatch();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(true);
+            if (showSQL) {
+                log.info("Query String: {}", query);
+            }
+            long start = System.nanoTime();
+            int updated;
+            if (prepared) {
+                PreparedStatement preparedStatement = createPreparedStatement(conn, query.getQueryString(), deadline);
+                statement = preparedStatement;
+                bind(preparedStatement, query.getParameters());
+                updated = preparedStatement.executeUpdate();
+            } else {
+                statement = createStatement(conn, deadline);
+                updated = statement.executeUpdate(query.getQueryString());
+            }
+            long elapsed = System.nanoTime() - start;
+            queryMetrics.recordLatency(entityClass, fingerprint, QueryPhase.EXECUTE, elapsed);
+            queryMetrics.recordRows(entityClass, fingerprint, updated);
+            slowQueryLog.log(query, elapsed);
+            return updated;
         } catch (final Exception hx) {
-            throw new DataStoreException(hx.getMessage(), hx);
+            queryMetrics.recordError(entityClass, fingerprint, hx);
+            throw dataStoreException(hx);
         } finally {
-            closeStatementSafe(ps);
+            closeStatementSafe(statement);
+            if (autoCommit != null) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException ex) {
+                    log.warn("Exception while restoring auto commit...", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the entities by their mapped primary key through one parameterized delete per entity class, executed
+     * every batchSize rows and committed every commitInterval rows. The final commit is left to the caller.
+     * 
+     * @param entities
+     *            entities whose classes declare their primary key columns
+     * @param conn
+     *            Connection
+     * @return update counts of the executed batches
+     */
+    public <T> int[] deleteBatch(Iterable<T> entities, Connection conn) {
+        return deleteBatch(entities, conn, null);
+    }
+
+    /**
+     * Deletes the entities in batches, every batch bounded by what is left of the deadline.
+     * 
+     * @see #deleteBatch(Iterable, Connection)
+     */
+    public <T> int[] deleteBatch(Iterable<T> entities, Connection conn, Deadline deadline) {
+        return executeBatch(entities, conn, deadline, new Function<T, ParameterizedQuery>() {
+            @Override
+            public ParameterizedQuery apply(T entity) {
+                return queryTranslator.translateDeleteByKey(entity);
+            }
+        });
+    }
+
+    private <T> int[] executeBatch(Iterable<T> entities, Connection conn, Deadline deadline,
+            Function<T, ParameterizedQuery> translation) {
+        Map<String, PendingBatch> batches = new LinkedHashMap<String, PendingBatch>();
+        List<Integer> updateCounts = new ArrayList<Integer>();
+        try {
+            int uncommitted = 0;
+            for (final T entity : entities) {
+                ParameterizedQuery parameterizedQuery = translation.apply(entity);
+                PendingBatch batch = batches.get(parameterizedQuery.getQueryString());
+                if (batch == null) {
+                    if (showSQL) {
+                        log.info("Query String {}", parameterizedQuery.getQueryString());
+                    }
+                    batch = new PendingBatch(entity.getClass(), parameterizedQuery.getQueryString(),
+                            createPreparedStatement(conn, parameterizedQuery.getQueryString(), deadline));
+                    batches.put(parameterizedQuery.getQueryString(), batch);
+                }
+                bind(batch.statement, parameterizedQuery.getParameters());
+                batch.statement.addBatch();
+                if (++batch.size >= batchSize) {
+                    execute(batch, updateCounts, deadline);
+                }
+                if (commitInterval > 0 && ++uncommitted >= commitInterval) {
+                    for (PendingBatch pending : batches.values()) {
+                        execute(pending, updateCounts, deadline);
+                    }
+                    conn.commit();
+                    uncommitted = 0;
+                }
+            }
+            for (PendingBatch pending : batches.values()) {
+                execute(pending, updateCounts, deadline);
+            }
+            return Ints.toArray(updateCounts);
+        } catch (final Exception hx) {
+            for (PendingBatch pending : batches.values()) {
+                queryMetrics.recordError(pending.entityClass, pending.queryString, hx);
+            }
+            throw dataStoreException(hx);
+        } finally {
+            for (PendingBatch pending : batches.values()) {
+                closeStatementSafe(pending.statement);
+            }
         }
     }
 
+    /**
+     * @deprecated adds literal upsert strings to a single statement, use {@link #saveBatch(Iterable, Connection)}
+     *             which binds all the entities of the same shape to one parameterized upsert.
+     */
+    @Deprecated
     public <T> PreparedStatement buildStatementWithBatch(Iterable<T> entities, Connection conn) throws SQLException {
         PreparedStatement preparedStatement = null;
         for (final T entity : entities) {
@@ -171,45 +1125,170 @@ public class PhoenixHBaseQueryExecutor {
                 log.info("Query String {}", queryStr);
             }
             if (preparedStatement == null) {
-                preparedStatement = createPreparedStatement(conn, queryStr);
+                preparedStatement = createPreparedStatement(conn, queryStr, null);
             }
             preparedStatement.addBatch(queryStr);
         }
         return preparedStatement;
     }
 
-    private Statement createStatement(final Connection conn) throws SQLException {
-    	Statement statement = conn.createStatement();
-    	if(statementProperties.containsKey(QUERY_TIMEOUT_SEC)) {
-    		String queryTimeOutValue = statementProperties.get(QUERY_TIMEOUT_SEC);
-    		try {
-    			statement.setQueryTimeout(Integer.valueOf(queryTimeOutValue));
-    		} catch(Exception ig) {
-        		log.warn("Ignoring invalid queryTimeout {}", queryTimeOutValue, ig);
-        	}
-    	}
-    	return statement;
-    	
+    private Statement createStatement(final Connection conn, final Deadline deadline) throws SQLException {
+        checkDeadline(deadline);
+        Statement statement = conn.createStatement();
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        applyQueryTimeout(statement, deadline);
+        return statement;
     }
-    
-    private PreparedStatement createPreparedStatement(final Connection conn, final String queryStr) throws SQLException {
-    	PreparedStatement statement = conn.prepareStatement(queryStr);
-    	if(statementProperties.containsKey(QUERY_TIMEOUT_SEC)) {
-    		String queryTimeOutValue = statementProperties.get(QUERY_TIMEOUT_SEC);
-    		try {
-    			statement.setQueryTimeout(Integer.valueOf(queryTimeOutValue));
-    		} catch(Exception ig) {
-        		log.warn("Ignoring invalid queryTimeout {}", queryTimeOutValue, ig);
-        	}
-    	}
-    	return statement;
-    	
+
+    private PreparedStatement createPreparedStatement(final Connection conn, final String queryStr,
+            final Deadline deadline) throws SQLException {
+        checkDeadline(deadline);
+        PreparedStatement statement = conn.prepareStatement(queryStr);
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        applyQueryTimeout(statement, deadline);
+        return statement;
     }
-    
+
+    private void checkDeadline(Deadline deadline) {
+        if (deadline != null) {
+            deadline.check("starting a statement");
+        }
+    }
+
+    /*
+     * The statement gets the configured queryTimeoutSec or the time left before the deadline, whichever is shorter.
+     * JDBC timeouts are in whole seconds, so the remaining budget is rounded up.
+     */
+    private void applyQueryTimeout(Statement statement, Deadline deadline) throws SQLException {
+        int timeoutSec = queryTimeoutSec;
+        if (deadline != null) {
+            long remainingMillis = deadline.remaining(TimeUnit.MILLISECONDS);
+            int remainingSec = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000));
+            timeoutSec = timeoutSec > 0 ? Math.min(timeoutSec, remainingSec) : remainingSec;
+        }
+        if (timeoutSec > 0) {
+            statement.setQueryTimeout(timeoutSec);
+        }
+    }
+
+    private void execute(PendingBatch batch, List<Integer> updateCounts, Deadline deadline) throws SQLException {
+        if (batch.size == 0) {
+            return;
+        }
+        if (deadline != null) {
+            checkDeadline(deadline);
+            applyQueryTimeout(batch.statement, deadline);
+        }
+        int rows = batch.size;
+        long start = System.nanoTime();
+        batch.execute(updateCounts);
+        long elapsed = System.nanoTime() - start;
+        queryMetrics.recordLatency(batch.entityClass, batch.queryString, QueryPhase.EXECUTE, elapsed);
+        queryMetrics.recordRows(batch.entityClass, batch.queryString, rows);
+        slowQueryLog.log(batch.queryString, elapsed);
+    }
+
+    /*
+     * Statement timeouts and exhausted deadlines surface as DataStoreTimeoutException, anything else is wrapped in a
+     * DataStoreException.
+     */
+    private static DataStoreException dataStoreException(Exception ex) {
+        if (ex instanceof DataStoreTimeoutException) {
+            return (DataStoreException) ex;
+        }
+        if (ex instanceof SQLTimeoutException) {
+            return new DataStoreTimeoutException(ex.getMessage(), ex);
+        }
+        return new DataStoreException(ex.getMessage(), ex);
+    }
+
+    private static class PendingBatch {
+
+        private final Class<?> entityClass;
+        private final String queryString;
+        private final PreparedStatement statement;
+        private int size;
+
+        private PendingBatch(Class<?> entityClass, String queryString, PreparedStatement statement) {
+            this.entityClass = entityClass;
+            this.queryString = queryString;
+            this.statement = statement;
+        }
+
+        private void execute(List<Integer> updateCounts) throws SQLException {
+            if (size > 0) {
+                updateCounts.addAll(Ints.asList(statement.executeBatch()));
+                size = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the table the entity class is mapped to
+     */
+    public String resolveTableName(Class<?> entityClass) {
+        return queryTranslator.resolveTableName(entityClass);
+    }
+
     protected PhoenixProjectedResultMapper getMapper() {
         return resultMapper;
     }
 
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Sets where query timings are recorded, {@link QueryMetrics#NOOP} skips the recording and the query fingerprints.
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = Preconditions.checkNotNull(queryMetrics);
+    }
+
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * @param slowQueryThresholdMillis
+     *            queries taking at least this long are logged, negative disables the slow query log
+     */
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        slowQueryLog.setThresholdMillis(slowQueryThresholdMillis);
+    }
+
+    /**
+     * @param slowQuerySampleRate
+     *            fraction of the slow queries considered for logging, between 0 and 1
+     */
+    public void setSlowQuerySampleRate(double slowQuerySampleRate) {
+        slowQueryLog.setSampleRate(slowQuerySampleRate);
+    }
+
+    /**
+     * @param slowQueryMaxPerSecond
+     *            maximum number of slow queries logged per second
+     */
+    public void setSlowQueryMaxPerSecond(int slowQueryMaxPerSecond) {
+        slowQueryLog.setMaxPerSecond(slowQueryMaxPerSecond);
+    }
+
+    public ExplainGuard getExplainGuard() {
+        return explainGuard;
+    }
+
+    /**
+     * @param explainGuard
+     *            checks the query plans against scan policies, null turns the check off
+     */
+    public void setExplainGuard(ExplainGuard explainGuard) {
+        this.explainGuard = explainGuard;
+    }
+
     public boolean isShowSQL() {
         return showSQL;
     }
@@ -218,4 +1297,51 @@ public class PhoenixHBaseQueryExecutor {
         this.showSQL = showSQL;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        this.batchSize = batchSize;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * @param commitInterval
+     *            number of rows saved by {@link #saveBatch(Iterable, Connection)} between commits, 0 leaves the whole
+     *            batch to the caller's commit
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    public int getKeyLookupChunkSize() {
+        return keyLookupChunkSize;
+    }
+
+    public void setKeyLookupChunkSize(int keyLookupChunkSize) {
+        Preconditions.checkArgument(keyLookupChunkSize > 0, "keyLookupChunkSize must be positive");
+        this.keyLookupChunkSize = keyLookupChunkSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    public void setParameterized(boolean parameterized) {
+        this.parameterized = parameterized;
+    }
+
 }
@@ -0,0 +1,108 @@
+package com.eharmony.pho.hbase.query;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.api.CloseableIterator;
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+
+/**
+ * Maps the rows of an open result set one at a time as they are iterated. The result set and its statement are closed
+ * when the iterator is closed, exhausted or fails, after which the optional close callback is run.
+ *
+ * @param <R>
+ *            the mapped result type
+ */
+public class PhoenixHBaseResultIterator<R> implements CloseableIterator<R> {
+
+    private static final Logger log = LoggerFactory.getLogger(PhoenixHBaseResultIterator.class);
+
+    private final ResultSet resultSet;
+    private final Statement statement;
+    private final PhoenixProjectedResultMapper resultMapper;
+    private final Class<R> returnType;
+    private final Runnable onClose;
+    private Set<String> metadataColumns;
+    private boolean fetched;
+    private boolean hasNext;
+    private boolean closed;
+
+    public PhoenixHBaseResultIterator(final ResultSet resultSet, final Statement statement,
+            final PhoenixProjectedResultMapper resultMapper, final Class<R> returnType, final Runnable onClose) {
+        this.resultSet = resultSet;
+        this.statement = statement;
+        this.resultMapper = resultMapper;
+        this.returnType = returnType;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                hasNext = resultSet.next();
+                fetched = true;
+            } catch (Exception ex) {
+                close();
+                throw new DataStoreException(ex.getMessage(), ex);
+            }
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            if (metadataColumns == null) {
+                metadataColumns = resultMapper.extractColumnNames(resultSet);
+            }
+            return resultMapper.mapResult(resultSet, metadataColumns, returnType);
+        } catch (Exception ex) {
+            close();
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            resultSet.close();
+        } catch (Exception ex) {
+            log.warn("Exception while closing the ResultSet...", ex);
+        }
+        try {
+            statement.close();
+        } catch (Exception ex) {
+            log.warn("Exception while closing the Statement...", ex);
+        }
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.google.common.base.Preconditions;
+
+/**
+ * Coalesces identical concurrent queries: the first caller runs the query, callers arriving with the same key while it
+ * is in flight wait for it and share its result, or its failure. Only the queries of the opted in entity classes are
+ * coalesced.
+ * 
+ * A waiting caller is bounded by its own deadline, the execution by the deadline of the caller running it.
+ *
+ * Writes must {@link #invalidate(String)} the written table: its in flight executions, of any entity class, are
+ * detached so callers arriving after the write run the query again rather than share a result read before the write.
+ */
+public class QueryCoalescer {
+
+    private Set<Class<?>> entityClasses = Collections.emptySet();
+    private final ConcurrentMap<Object, Execution> inFlight = new ConcurrentHashMap<Object, Execution>();
+    private final ConcurrentMap<Class<?>, Counters> counters = new ConcurrentHashMap<Class<?>, Counters>();
+
+    /**
+     * @return true if the queries of the entity class are coalesced
+     */
+    public boolean isCoalesced(Class<?> entityClass) {
+        return entityClasses.contains(entityClass);
+    }
+
+    /**
+     * Runs the query unless an identical one is in flight, in which case its result is awaited.
+     * 
+     * @param entityClass
+     *            entity class of the query
+     * @param tableName
+     *            table the query reads
+     * @param key
+     *            translated query and parameters
+     * @param deadline
+     *            bounds the wait for an in flight execution, may be null
+     * @param execution
+     *            runs the query
+     * @return the query result
+     * @throws Exception
+     *             if the query fails
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Class<?> entityClass, String tableName, Object key, Deadline deadline, Callable<V> execution)
+            throws Exception {
+        Counters entityCounters = counters(entityClass);
+        Execution execute = new Execution(tableName);
+        Execution running = inFlight.putIfAbsent(key, execute);
+        if (running != null) {
+            entityCounters.coalesced.incrementAndGet();
+            return (V) await(running.result, deadline);
+        }
+        entityCounters.executions.incrementAndGet();
+        try {
+            V result = execution.call();
+            execute.result.complete(result);
+            return result;
+        } catch (Exception ex) {
+            execute.result.completeExceptionally(ex);
+            throw ex;
+        } catch (Error err) {
+            execute.result.completeExceptionally(err);
+            throw err;
+        } finally {
+            inFlight.remove(key, execute);
+        }
+    }
+
+    /**
+     * Detaches the in flight executions reading the table, to be called once a write of the table is committed. The
+     * callers already waiting still share the detached results, later callers run their own execution.
+     */
+    public void invalidate(String tableName) {
+        for (Map.Entry<Object, Execution> entry : inFlight.entrySet()) {
+            if (entry.getValue().tableName.equals(tableName)) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Detaches every in flight execution.
+     */
+    public void invalidateAll() {
+        inFlight.clear();
+    }
+
+    private static Object await(CompletableFuture<Object> running, Deadline deadline) throws Exception {
+        try {
+            if (deadline == null) {
+                return running.get();
+            }
+            return running.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new DataStoreTimeoutException("deadline " + deadline + " expired waiting for an identical query", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+    }
+
+    private Counters counters(Class<?> entityClass) {
+        Counters entityCounters = counters.get(entityClass);
+        if (entityCounters == null) {
+            Counters created = new Counters();
+            entityCounters = counters.putIfAbsent(entityClass, created);
+            if (entityCounters == null) {
+                entityCounters = created;
+            }
+        }
+        return entityCounters;
+    }
+
+    /**
+     * @return number of queries of the entity class executed through this coalescer
+     */
+    public long getExecutionCount(Class<?> entityClass) {
+        Counters entityCounters = counters.get(entityClass);
+        return entityCounters != null ? entityCounters.executions.get() : 0;
+    }
+
+    /**
+     * @return number of executions of the entity class saved by sharing an in flight query
+     */
+    public long getCoalescedCount(Class<?> entityClass) {
+        Counters entityCounters = counters.get(entityClass);
+        return entityCounters != null ? entityCounters.coalesced.get() : 0;
+    }
+
+    public Set<Class<?>> getEntityClasses() {
+        return entityClasses;
+    }
+
+    /**
+     * @param entityClasses
+     *            entity classes whose queries are coalesced
+     */
+    public void setEntityClasses(Set<Class<?>> entityClasses) {
+        this.entityClasses = Collections.unmodifiableSet(new HashSet<Class<?>>(Preconditions
+                .checkNotNull(entityClasses)));
+    }
+
+    private static final class Execution {
+        private final String tableName;
+        private final CompletableFuture<Object> result = new CompletableFuture<Object>();
+
+        private Execution(String tableName) {
+            this.tableName = Preconditions.checkNotNull(tableName);
+        }
+    }
+
+    private static final class Counters {
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+    }
+
+}
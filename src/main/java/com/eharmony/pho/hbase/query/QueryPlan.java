@@ -0,0 +1,104 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of a phoenix <code>EXPLAIN</code> plan the scan guard looks at: how the table is scanned, over how many
+ * chunks, and which index if any.
+ */
+public class QueryPlan {
+
+    public enum ScanType {
+        FULL_SCAN, RANGE_SCAN, SKIP_SCAN, POINT_LOOKUP, UNKNOWN
+    }
+
+    private static final Pattern CHUNKS = Pattern.compile("CLIENT (\\d+)-CHUNK");
+    private static final Pattern SCAN = Pattern
+            .compile("(FULL SCAN|RANGE SCAN|SKIP SCAN|POINT LOOKUP).*? OVER ([^\\s\\[]+)");
+
+    private final ScanType scanType;
+    private final int chunks;
+    private final String tableName;
+    private final String indexName;
+    private final List<String> steps;
+
+    public QueryPlan(ScanType scanType, int chunks, String tableName, String indexName, List<String> steps) {
+        this.scanType = scanType;
+        this.chunks = chunks;
+        this.tableName = tableName;
+        this.indexName = indexName;
+        this.steps = steps != null ? Collections.unmodifiableList(steps) : Collections.<String> emptyList();
+    }
+
+    /**
+     * Parses the rows returned by <code>EXPLAIN</code>, reading the first scan step of the plan.
+     * 
+     * @param steps
+     *            plan rows
+     * @param dataTableName
+     *            table the query was written against, a scan over another table is an index scan
+     * @return QueryPlan
+     */
+    public static QueryPlan parse(List<String> steps, String dataTableName) {
+        ScanType scanType = ScanType.UNKNOWN;
+        int chunks = -1;
+        String tableName = null;
+        for (String step : steps) {
+            Matcher scan = SCAN.matcher(step);
+            if (scan.find()) {
+                scanType = ScanType.valueOf(scan.group(1).replace(' ', '_'));
+                tableName = scan.group(2).replace("\"", "");
+                Matcher chunkCount = CHUNKS.matcher(step);
+                if (chunkCount.find()) {
+                    chunks = Integer.parseInt(chunkCount.group(1));
+                }
+                break;
+            }
+        }
+        String indexName = tableName != null && dataTableName != null && !tableName.equalsIgnoreCase(dataTableName)
+                ? tableName : null;
+        return new QueryPlan(scanType, chunks, tableName, indexName, steps);
+    }
+
+    public ScanType getScanType() {
+        return scanType;
+    }
+
+    public boolean isFullScan() {
+        return scanType == ScanType.FULL_SCAN;
+    }
+
+    /**
+     * @return number of chunks the scan is split in, -1 if the plan does not tell
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return table or index scanned
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return index scanned instead of the data table, null if none
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public List<String> getSteps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return steps.isEmpty() ? scanType.name() : steps.get(0);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.eharmony.pho.hbase.query;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.hbase.translator.MorphiaEntityResolver;
+import com.eharmony.pho.translator.EntityResolver;
+
+/**
+ * Splits on the region boundaries of the table, decoding the leading primary key column from each region start key.
+ * Salted tables spread every key range over all regions, so no split points are returned for them.
+ */
+public class RegionSplitPointResolver implements SplitPointResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionSplitPointResolver.class);
+
+    private static final byte DESC_SEPARATOR_BYTE = SortOrder.invert(QueryConstants.SEPARATOR_BYTE);
+
+    private final EntityResolver entityResolver;
+
+    public RegionSplitPointResolver() {
+        this(new MorphiaEntityResolver());
+    }
+
+    public RegionSplitPointResolver(final EntityResolver entityResolver) {
+        this.entityResolver = entityResolver;
+    }
+
+    @Override
+    public List<Object> resolveSplitPoints(Class<?> entityClass, Connection conn) throws SQLException {
+        PhoenixConnection phoenixConnection = conn.unwrap(PhoenixConnection.class);
+        PTable table = PhoenixRuntime.getTable(phoenixConnection, entityResolver.resolve(entityClass));
+        if (table.getBucketNum() != null) {
+            log.debug("table {} is salted, scanning it without splits", table.getName());
+            return Collections.emptyList();
+        }
+        PColumn leadingColumn = table.getPKColumns().get(0);
+        List<HRegionLocation> regions = phoenixConnection.getQueryServices().getAllTableRegions(
+                table.getPhysicalName().getBytes());
+        List<byte[]> startKeys = new ArrayList<byte[]>(regions.size());
+        for (HRegionLocation region : regions) {
+            startKeys.add(region.getRegionInfo().getStartKey());
+        }
+        return decodeSplitPoints(startKeys, leadingColumn.getDataType(), leadingColumn.getSortOrder());
+    }
+
+    /**
+     * Decodes the leading column value of each region start key. Regions are listed in row key order, which is the
+     * descending value order for a DESC column, so the values are sorted, regions split within the same leading value
+     * yielding it once.
+     */
+    static List<Object> decodeSplitPoints(List<byte[]> startKeys, PDataType dataType, SortOrder sortOrder) {
+        SortedSet<Object> splitPoints = new TreeSet<Object>();
+        for (byte[] startKey : startKeys) {
+            if (startKey == null || startKey.length == 0) {
+                continue;
+            }
+            int length = leadingColumnLength(startKey, dataType, sortOrder);
+            if (length <= 0) {
+                continue;
+            }
+            Object splitPoint = dataType.toObject(startKey, 0, length, dataType, sortOrder);
+            if (splitPoint != null) {
+                splitPoints.add(splitPoint);
+            }
+        }
+        return new ArrayList<Object>(splitPoints);
+    }
+
+    private static int leadingColumnLength(byte[] startKey, PDataType dataType, SortOrder sortOrder) {
+        if (dataType.isFixedWidth()) {
+            Integer byteSize = dataType.getByteSize();
+            // partial start keys do not decode to a value of the column
+            return byteSize != null && startKey.length >= byteSize ? byteSize : -1;
+        }
+        // variable width DESC values are terminated by the inverted separator, DESC_SEPARATOR_BYTE in later phoenix
+        byte separator = sortOrder == SortOrder.DESC ? DESC_SEPARATOR_BYTE : QueryConstants.SEPARATOR_BYTE;
+        for (int i = 0; i < startKey.length; i++) {
+            if (startKey[i] == separator) {
+                return i;
+            }
+        }
+        return startKey.length;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.Comparator;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.query.criterion.Ordering;
+import com.eharmony.pho.query.criterion.Orderings;
+
+/**
+ * Compares mapped results on the properties of the query orderings, the way the store sorted them.
+ * 
+ * @param <R>
+ *            result type
+ */
+class ResultOrderingComparator<R> implements Comparator<R> {
+
+    private final Orderings orderings;
+
+    ResultOrderingComparator(final Orderings orderings) {
+        this.orderings = orderings;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public int compare(R o1, R o2) {
+        for (Ordering ordering : orderings.get()) {
+            Object v1 = property(o1, ordering.getPropertyName());
+            Object v2 = property(o2, ordering.getPropertyName());
+            int result;
+            if (v1 == null || v2 == null) {
+                if (v1 == v2) {
+                    continue;
+                }
+                boolean nullsFirst = ordering.getNullOrdering() == Ordering.NullOrdering.FIRST;
+                result = (v1 == null) == nullsFirst ? -1 : 1;
+            } else {
+                result = ((Comparable) v1).compareTo(v2);
+                if (ordering.getOrder() == Ordering.Order.DESCENDING) {
+                    result = -result;
+                }
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private Object property(R result, String propertyName) {
+        try {
+            return PropertyUtils.getProperty(result, propertyName);
+        } catch (Exception ex) {
+            throw new DataStoreException("unable to read ordering property " + propertyName + " of "
+                    + result.getClass().getName(), ex);
+        }
+    }
+
+}
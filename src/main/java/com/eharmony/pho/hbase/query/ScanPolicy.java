@@ -0,0 +1,71 @@
+package com.eharmony.pho.hbase.query;
+
+/**
+ * What the {@link ExplainGuard} does with the query shapes of an entity whose plan is a full table scan, unless
+ * allowed, or runs over more than maxChunks chunks.
+ */
+public class ScanPolicy {
+
+    public enum Action {
+        /** count the offending queries */
+        COUNT,
+        /** count them and log each offending shape once */
+        LOG,
+        /** count them and fail them with a DataStoreException */
+        REJECT
+    }
+
+    private Action action = Action.LOG;
+    private boolean allowFullScan;
+    private int maxChunks;
+
+    public ScanPolicy() {
+    }
+
+    public ScanPolicy(Action action, boolean allowFullScan, int maxChunks) {
+        this.action = action;
+        this.allowFullScan = allowFullScan;
+        this.maxChunks = maxChunks;
+    }
+
+    /**
+     * @return true if the plan breaks this policy
+     */
+    public boolean isViolatedBy(QueryPlan plan) {
+        return (plan.isFullScan() && !allowFullScan) || (maxChunks > 0 && plan.getChunks() > maxChunks);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public boolean isAllowFullScan() {
+        return allowFullScan;
+    }
+
+    public void setAllowFullScan(boolean allowFullScan) {
+        this.allowFullScan = allowFullScan;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    /**
+     * @param maxChunks
+     *            largest chunk estimate allowed, 0 for no limit
+     */
+    public void setMaxChunks(int maxChunks) {
+        this.maxChunks = maxChunks;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanPolicy [action=" + action + ", allowFullScan=" + allowFullScan + ", maxChunks=" + maxChunks + "]";
+    }
+
+}
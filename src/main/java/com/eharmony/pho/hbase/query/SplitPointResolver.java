@@ -0,0 +1,23 @@
+package com.eharmony.pho.hbase.query;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Resolves the values of the leading primary key column at which a table scan is split for parallel execution.
+ */
+public interface SplitPointResolver {
+
+    /**
+     * @param entityClass
+     *            entity mapped to the table
+     * @param conn
+     *            Connection
+     * @return split points in ascending key order, empty if the table can not be split
+     * @throws SQLException
+     *             if the table metadata can not be read
+     */
+    List<Object> resolveSplitPoints(Class<?> entityClass, Connection conn) throws SQLException;
+
+}
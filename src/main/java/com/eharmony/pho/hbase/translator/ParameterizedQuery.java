@@ -0,0 +1,75 @@
+package com.eharmony.pho.hbase.translator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Phoenix query string with <code>?</code> placeholders and the values to bind to them, in placeholder order.
+ */
+public class ParameterizedQuery {
+
+    private final String queryString;
+    private final List<Object> parameters;
+    private final String fingerprint;
+
+    public ParameterizedQuery(String queryString, List<Object> parameters) {
+        this(queryString, parameters, null);
+    }
+
+    /**
+     * @param fingerprint
+     *            {@link QueryFingerprint} of the query translated, null if it was not computed
+     */
+    public ParameterizedQuery(String queryString, List<Object> parameters, String fingerprint) {
+        this.queryString = queryString;
+        this.parameters = parameters != null ? Collections.unmodifiableList(parameters) : Collections.<Object> emptyList();
+        this.fingerprint = fingerprint;
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the shape of the query computed by the translation, null if it was not, not part of equality
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return queryString + " " + parameters;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((queryString == null) ? 0 : queryString.hashCode());
+        result = prime * result + parameters.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ParameterizedQuery other = (ParameterizedQuery) obj;
+        if (queryString == null) {
+            if (other.queryString != null)
+                return false;
+        } else if (!queryString.equals(other.queryString))
+            return false;
+        return parameters.equals(other.parameters);
+    }
+
+}
@@ -8,6 +8,7 @@ import com.eharmony.pho.query.criterion.Symbolic;
 public enum PhoenixHBaseClauses implements Symbolic {
     FROM("FROM"),
     WHERE("WHERE"),
+    GROUP_BY("GROUP BY"),
     ORDER_BY("ORDER BY"), 
     LIMIT("LIMIT");
 
@@ -19,6 +19,11 @@ public enum PhoenixHBaseOperator implements Symbolic {
     LIKE("LIKE"),
     LIKE_CASE_INSENSITIVE("ILIKE"),
     
+    IN("IN"),
+    NOT_IN("NOT IN"),
+    BETWEEN("BETWEEN"),
+    ANY("ANY"),
+
     IS_NULL("IS NULL"),
     IS_NOT_NULL("IS NOT NULL");
 
@@ -3,7 +3,9 @@ package com.eharmony.pho.hbase.translator;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -17,24 +19,42 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.eharmony.pho.annotations.QueryHints;
 import com.eharmony.pho.api.DataStoreException;
-import com.eharmony.pho.hbase.util.PhoenixDateFormatUtil;
+import com.eharmony.pho.hbase.codec.ValueCodecRegistry;
+import com.eharmony.pho.mapper.EntityIndex;
 import com.eharmony.pho.mapper.EntityPropertiesResolver;
 import com.eharmony.pho.mapper.EntityPropertyBinding;
 import com.eharmony.pho.mapper.EntityPropertyValueBinding;
+import com.eharmony.pho.query.QueryHint;
+import com.eharmony.pho.query.QueryOperationType;
 import com.eharmony.pho.query.QuerySelect;
 import com.eharmony.pho.query.QueryUpdate;
 import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.CriterionVisitor;
+import com.eharmony.pho.query.criterion.Operator;
+import com.eharmony.pho.query.criterion.WithOperator;
+import com.eharmony.pho.query.criterion.WithProperty;
 import com.eharmony.pho.query.criterion.Ordering;
 import com.eharmony.pho.query.criterion.Orderings;
 import com.eharmony.pho.query.criterion.Ordering.NullOrdering;
 import com.eharmony.pho.query.criterion.Ordering.Order;
+import com.eharmony.pho.query.criterion.expression.EqualityExpression;
 import com.eharmony.pho.query.criterion.expression.NativeExpression;
+import com.eharmony.pho.query.criterion.expression.RangeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
+import com.eharmony.pho.query.criterion.expression.SetExpression;
+import com.eharmony.pho.query.criterion.expression.UnaryExpression;
+import com.eharmony.pho.query.criterion.junction.Junction;
+import com.eharmony.pho.query.projection.Projection;
 import com.eharmony.pho.translator.AbstractQueryTranslator;
 import com.eharmony.pho.translator.QueryTranslator;
-import com.google.common.base.Function;
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Sets;
 
 /**
  * Translates the entity to Phoenix query to execute on HBase.
@@ -51,64 +71,412 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
     
     private final MorphiaEntityResolver entityResolver = new MorphiaEntityResolver();
     private EntityPropertiesResolver entityPropertiesResolver;
+    private ValueCodecRegistry valueCodecRegistry;
+    // collects the values replaced by bind parameters, null when values are inlined as literals
+    private final List<Object> bindParameters;
     private static final String PROJECTION_ALL = "*";
-    private static final String SELECT = "SELECT";    
+    private static final int QUERY_BUFFER_CAPACITY = 256;
+    // rendered in place of the values collected as bind parameters
+    private static final Object BIND_PARAMETER = new Object() {
+        @Override
+        public String toString() {
+            return "?";
+        }
+    };
+    private static final String SELECT = "SELECT";
+    private static final String DELETE = "DELETE";
+    private static final String DISTINCT = "DISTINCT";    
+    private static final String UPSERT_INTO = "UPSERT INTO";
+    private static final String NULL = "NULL";
+    private static final String HINT_START = "/*+";
+    // operators a leading index column can seek or range scan on
+    private static final Set<Operator> SEEKABLE_OPERATORS = Sets.immutableEnumSet(Operator.EQUAL,
+            Operator.GREATER_THAN, Operator.GREATER_THAN_OR_EQUAL, Operator.LESS_THAN, Operator.LESS_THAN_OR_EQUAL,
+            Operator.BETWEEN, Operator.IN);
+    private static final String HINT_END = "*/";
     private static final String STRING_OPERAND_WITH_WILDCARD = "%%%s%%";
     
     private static final Logger logger = LoggerFactory.getLogger(PhoenixHBaseQueryTranslator.class);
     
     private static final int ORDER_EXPRESSION_SUFFIX_MAX_LENGTH = "DESC NULLS FIRST".length();
 
+    public static final int DEFAULT_TEMPLATE_CACHE_SIZE = 1024;
+    // parameterized query strings by query fingerprint, null when disabled
+    private volatile Cache<String, QueryTemplate> templateCache;
+
     public PhoenixHBaseQueryTranslator(Class<String> queryClass, Class<String> orderClass,
             EntityPropertiesResolver propertyResolver) {
         super(queryClass, orderClass, propertyResolver);
         this.entityPropertiesResolver = propertyResolver;
+        this.valueCodecRegistry = new ValueCodecRegistry();
+        this.bindParameters = null;
+        this.templateCache = newTemplateCache(DEFAULT_TEMPLATE_CACHE_SIZE);
     }
 
     public PhoenixHBaseQueryTranslator(final EntityPropertiesResolver propertyResolver) {
+        this(String.class, String.class, propertyResolver);
+    }
+
+    private PhoenixHBaseQueryTranslator(final EntityPropertiesResolver propertyResolver,
+            final ValueCodecRegistry valueCodecRegistry, final List<Object> bindParameters) {
         super(String.class, String.class, propertyResolver);
         this.entityPropertiesResolver = propertyResolver;
+        this.valueCodecRegistry = valueCodecRegistry;
+        this.bindParameters = bindParameters;
+        this.templateCache = null;
     }
 
     /**
-     *  translates given QuerySelect object to select query string
+     *  translates given QuerySelect object to select query string, or to a delete query string for queries built with
+     *  the DELETE operation type
      *  @param query QuerySelect
      *  @return String
      */
     @Override
     public <T, R> String translate(QuerySelect<T, R> query) {
-        return translateSelectQuery(query);
+        return translateQuery(query, optimize(query.getCriteria()));
+    }
+
+    /**
+     * translates given QuerySelect object to select query string with <code>?</code> placeholders in place of the
+     * criteria values, phoenix can reuse the compiled statement for every query of the same shape.
+     * 
+     * @param query QuerySelect
+     * @return ParameterizedQuery query string and the values to bind, in placeholder order
+     */
+    public <T, R> ParameterizedQuery translateParameterized(QuerySelect<T, R> query) {
+        Cache<String, QueryTemplate> cache = templateCache;
+        // the optimized criteria may differ in shape for queries of the same shape, they are fingerprinted instead
+        Criterion criteria = optimize(query.getCriteria());
+        String fingerprint = null;
+        if (cache != null) {
+            fingerprint = QueryFingerprint.of(query, criteria);
+            QueryTemplate template = cache.getIfPresent(fingerprint);
+            if (template != null) {
+                List<Object> parameters = new ArrayList<Object>(template.parameterCount);
+                collectParameters(criteria, parameters);
+                if (parameters.size() == template.parameterCount) {
+                    return new ParameterizedQuery(template.queryString, parameters, fingerprint);
+                }
+                logger.warn("Parameter count mismatch for cached query {}, translating again", template.queryString);
+            }
+        }
+        List<Object> parameters = new ArrayList<Object>();
+        String queryString = new PhoenixHBaseQueryTranslator(entityPropertiesResolver, valueCodecRegistry, parameters)
+                .translateQuery(query, criteria);
+        if (cache != null) {
+            cache.put(fingerprint, new QueryTemplate(queryString, parameters.size()));
+        }
+        return new ParameterizedQuery(queryString, parameters, fingerprint);
+    }
+
+    /*
+     * Collects the criteria values in the same order the translation emits their placeholders.
+     */
+    private void collectParameters(Criterion criterion, List<Object> parameters) {
+        if (criterion != null) {
+            criterion.accept(new ParameterCollector(parameters));
+        }
+    }
+
+    /**
+     * Sets the maximum number of query shapes whose parameterized query string is kept, 0 disables the cache.
+     * 
+     * @param templateCacheSize maximum number of cached query strings
+     */
+    public void setTemplateCacheSize(int templateCacheSize) {
+        this.templateCache = templateCacheSize > 0 ? newTemplateCache(templateCacheSize) : null;
+    }
+
+    /**
+     * Sets the codecs rendering the literals, and binding the parameters of the executor using this translator.
+     * 
+     * @param valueCodecRegistry codecs by value type
+     */
+    public void setValueCodecRegistry(ValueCodecRegistry valueCodecRegistry) {
+        this.valueCodecRegistry = Preconditions.checkNotNull(valueCodecRegistry);
+    }
+
+    public ValueCodecRegistry getValueCodecRegistry() {
+        return valueCodecRegistry;
+    }
+
+    /**
+     * @return hit and miss statistics of the parameterized query string cache
+     */
+    public CacheStats getTemplateCacheStats() {
+        Cache<String, QueryTemplate> cache = templateCache;
+        return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return the primary key property bindings of the entity, ordered by key position
+     */
+    public <T> List<EntityPropertyBinding> getPrimaryKeyPropertyBindings(Class<T> entityClass) {
+        return entityPropertiesResolver.getPrimaryKeyPropertyBindings(entityClass);
     }
 
-    private <T, R> String translateSelectQuery(QuerySelect<T, R> query) {
+    /**
+     * @return the table name the entity is mapped to
+     */
+    public String resolveTableName(Class<?> entityClass) {
+        return entityResolver.resolve(entityClass);
+    }
+
+    private static Cache<String, QueryTemplate> newTemplateCache(int maximumSize) {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    private <T, R> String translateQuery(QuerySelect<T, R> query, Criterion criteria) {
+        if (QueryOperationType.DELETE.equals(query.getQueryOperationType())) {
+            return translateDeleteQuery(query, criteria);
+        }
+        return translateSelectQuery(query, criteria);
+    }
+
+    private <T, R> String translateDeleteQuery(QuerySelect<T, R> query, Criterion criteria) {
+        Class<T> entityClass = query.getEntityClass();
+        StringBuilder builder = new StringBuilder(QUERY_BUFFER_CAPACITY);
+        builder.append(DELETE).append(' ').append(PhoenixHBaseClauses.FROM.symbol()).append(' ')
+                .append(entityResolver.resolve(entityClass));
+        appendWhere(builder, criteria, entityClass);
+        appendOrderAndLimit(builder, query);
+        return builder.toString();
+    }
+
+    /*
+     * The whole statement is appended to a single buffer, the criteria are rendered into it by a CriteriaWriter.
+     */
+    private <T, R> String translateSelectQuery(QuerySelect<T, R> query, Criterion criteria) {
         List<String> fields = query.getReturnFields();
-        Criterion rootCriterion = query.getCriteria();
-        Orderings orders = query.getOrder();
-        Integer maxResults = query.getMaxResults();
         Class<T> entityClass = query.getEntityClass();
-        Joiner spaceJoiner = Joiner.on(" ");
-        String projection = PROJECTION_ALL;
-        if (CollectionUtils.isNotEmpty(fields)) {
-            projection = Joiner.on(", ").join(
-                    entityPropertiesResolver.resolveEntityMappingPropertyNames(fields, entityClass));
+        StringBuilder builder = new StringBuilder(QUERY_BUFFER_CAPACITY);
+        builder.append(SELECT).append(' ');
+        String hints = translateHints(query, criteria);
+        if (hints != null) {
+            builder.append(hints).append(' ');
+        }
+        if (query.isDistinct()) {
+            builder.append(DISTINCT).append(' ');
+        }
+        if (CollectionUtils.isNotEmpty(query.getProjections())) {
+            appendProjections(builder, query.getProjections(), entityClass);
+        } else if (CollectionUtils.isNotEmpty(fields)) {
+            appendColumns(builder, entityPropertiesResolver.resolveEntityMappingPropertyNames(fields, entityClass));
+        } else {
+            builder.append(PROJECTION_ALL);
         }
-        //Add query hint if available
-        projection = Strings.isNullOrEmpty(query.getQueryHint()) ? projection : spaceJoiner.join(query.getQueryHint(), PROJECTION_ALL);
-        String queryString = spaceJoiner.join(new String[] { SELECT, projection, PhoenixHBaseClauses.FROM.symbol(),
-                entityResolver.resolve(entityClass) });
+        builder.append(' ').append(PhoenixHBaseClauses.FROM.symbol()).append(' ')
+                .append(entityResolver.resolve(entityClass));
+        appendWhere(builder, criteria, entityClass);
 
+        if (CollectionUtils.isNotEmpty(query.getGroupBy())) {
+            builder.append(' ').append(PhoenixHBaseClauses.GROUP_BY.symbol()).append(' ');
+            appendColumns(builder,
+                    entityPropertiesResolver.resolveEntityMappingPropertyNames(query.getGroupBy(), entityClass));
+        }
+        appendOrderAndLimit(builder, query);
+        return builder.toString();
+    }
+
+    private void appendWhere(StringBuilder builder, Criterion rootCriterion, Class<?> entityClass) {
         if (rootCriterion != null) {
-            queryString = spaceJoiner.join(queryString, PhoenixHBaseClauses.WHERE.symbol(), translate(rootCriterion, entityClass));
+            builder.append(' ').append(PhoenixHBaseClauses.WHERE.symbol()).append(' ');
+            rootCriterion.accept(new CriteriaWriter(builder, entityClass));
         }
+    }
 
+    private <T, R> void appendOrderAndLimit(StringBuilder builder, QuerySelect<T, R> query) {
+        Orderings orders = query.getOrder();
         if (orders != null && CollectionUtils.isNotEmpty(orders.get())) {
-            queryString = spaceJoiner.join(queryString, PhoenixHBaseClauses.ORDER_BY.symbol(), translateOrder(query));
+            builder.append(' ').append(PhoenixHBaseClauses.ORDER_BY.symbol()).append(' ')
+                    .append(translateOrder(query));
         }
-        
-        if(maxResults != null && maxResults > 0) {
-            queryString = spaceJoiner.join(queryString, PhoenixHBaseClauses.LIMIT.symbol(), maxResults);
+        Integer maxResults = query.getMaxResults();
+        if (maxResults != null && maxResults > 0) {
+            builder.append(' ').append(PhoenixHBaseClauses.LIMIT.symbol()).append(' ').append(maxResults);
+        }
+    }
+
+    private static void appendColumns(StringBuilder builder, List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(columns.get(i));
+        }
+    }
+
+    /*
+     * Renders the entity hints not replaced by a query hint of the same type, the query hints and the raw query hint in
+     * one hint comment. Returns null when there is no hint.
+     */
+    private <T, R> String translateHints(QuerySelect<T, R> query, Criterion criteria) {
+        List<QueryHint> queryHints = query.getQueryHints();
+        Set<QueryHint.Type> queryHintTypes = EnumSet.noneOf(QueryHint.Type.class);
+        for (QueryHint hint : queryHints) {
+            queryHintTypes.add(hint.getType());
+        }
+        List<String> hints = new ArrayList<String>();
+        boolean indexHinted = queryHintTypes.contains(QueryHint.Type.INDEX);
+        for (QueryHint hint : resolveEntityHints(query.getEntityClass())) {
+            if (!queryHintTypes.contains(hint.getType())) {
+                hints.add(translateHint(hint, query.getEntityClass()));
+                indexHinted |= hint.getType() == QueryHint.Type.INDEX;
+            }
+        }
+        for (QueryHint hint : queryHints) {
+            hints.add(translateHint(hint, query.getEntityClass()));
+        }
+        String rawHint = Strings.nullToEmpty(query.getQueryHint()).trim();
+        if (rawHint.startsWith(HINT_START) && rawHint.endsWith(HINT_END)) {
+            rawHint = rawHint.substring(HINT_START.length(), rawHint.length() - HINT_END.length()).trim();
+        }
+        if (!rawHint.isEmpty()) {
+            hints.add(rawHint);
+            indexHinted |= rawHint.toUpperCase().contains(QueryHint.Type.INDEX.name() + "(");
+        }
+        if (!indexHinted) {
+            EntityIndex index = selectCoveringIndex(query, criteria);
+            if (index != null) {
+                hints.add(0, translateHint(QueryHint.index(index.getName()), query.getEntityClass()));
+            }
+        }
+        return hints.isEmpty() ? null : HINT_START + " " + Joiner.on(' ').join(hints) + " " + HINT_END;
+    }
+
+    private String translateHint(QueryHint hint, Class<?> entityClass) {
+        if (hint.getType() == QueryHint.Type.INDEX) {
+            return hint.getType().name() + "(" + entityResolver.resolve(entityClass) + " "
+                    + Joiner.on(' ').join(hint.getIndexNames()) + ")";
+        }
+        return hint.getType().name();
+    }
+
+    /*
+     * Picks the declared index matching the most leading properties constrained by the top level conjuncts of the
+     * criteria, among the indexes covering every property read by the query. Queries constraining the leading primary
+     * key property are left to the data table.
+     */
+    private <T, R> EntityIndex selectCoveringIndex(QuerySelect<T, R> query, Criterion criteria) {
+        Class<T> entityClass = query.getEntityClass();
+        List<EntityIndex> indexes = entityPropertiesResolver.getIndexes(entityClass);
+        if (indexes.isEmpty() || criteria == null) {
+            return null;
+        }
+        Set<String> constrained = new HashSet<String>();
+        Set<String> referenced = new HashSet<String>();
+        if (!collectProperties(criteria, true, constrained, referenced)) {
+            return null;
+        }
+        List<EntityPropertyBinding> primaryKey = entityPropertiesResolver.getPrimaryKeyPropertyBindings(entityClass);
+        if (!primaryKey.isEmpty() && constrained.contains(primaryKey.get(0).getName())) {
+            return null;
+        }
+        if (CollectionUtils.isNotEmpty(query.getProjections())) {
+            for (Projection projection : query.getProjections()) {
+                if (projection.getPropertyName() != null) {
+                    referenced.add(projection.getPropertyName());
+                }
+            }
+        } else if (CollectionUtils.isNotEmpty(query.getReturnFields())) {
+            referenced.addAll(query.getReturnFields());
+        } else {
+            referenced.addAll(entityPropertiesResolver.getEntityPropertyNamePropertyBindingMap(entityClass).keySet());
+        }
+        referenced.addAll(query.getGroupBy());
+        if (query.getOrder() != null) {
+            for (Ordering ordering : query.getOrder().get()) {
+                referenced.add(ordering.getPropertyName());
+            }
+        }
+        EntityIndex selected = null;
+        int selectedPrefixLength = 0;
+        for (EntityIndex index : indexes) {
+            int prefixLength = index.matchingPrefixLength(constrained);
+            if (prefixLength > selectedPrefixLength && index.covers(referenced)) {
+                selected = index;
+                selectedPrefixLength = prefixLength;
+            }
+        }
+        return selected;
+    }
+
+    /*
+     * Collects the properties referenced by the criterion, and those an index can seek on when the criterion is a top
+     * level conjunct. Returns false for native expressions, whose properties are unknown.
+     */
+    private static boolean collectProperties(Criterion criterion, boolean conjunct, Set<String> constrained,
+            Set<String> referenced) {
+        if (criterion instanceof Junction) {
+            Junction junction = (Junction) criterion;
+            boolean conjunction = conjunct && junction.getOperator() == Operator.AND;
+            for (Criterion child : junction.getCriteria()) {
+                if (!collectProperties(child, conjunction, constrained, referenced)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (criterion instanceof RowValueExpression) {
+            referenced.addAll(((RowValueExpression) criterion).getPropertyNames());
+            return true;
+        }
+        if (criterion instanceof WithProperty && criterion instanceof WithOperator) {
+            String propertyName = ((WithProperty) criterion).getPropertyName();
+            referenced.add(propertyName);
+            if (conjunct && SEEKABLE_OPERATORS.contains(((WithOperator) criterion).getOperator())) {
+                constrained.add(propertyName);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static List<QueryHint> resolveEntityHints(Class<?> entityClass) {
+        QueryHints entityHints = entityClass.getAnnotation(QueryHints.class);
+        if (entityHints == null) {
+            return Collections.emptyList();
+        }
+        List<QueryHint> hints = new ArrayList<QueryHint>();
+        if (entityHints.indexes().length > 0) {
+            hints.add(QueryHint.index(entityHints.indexes()));
+        }
+        for (QueryHint.Type type : entityHints.value()) {
+            hints.add(QueryHint.of(type));
+        }
+        return hints;
+    }
+
+    /*
+     * Aggregates are aliased only when an alias is given, plain properties default to their property name so they map
+     * back to the result properties of the same name. Aliases are quoted to keep their case.
+     */
+    private <T> void appendProjections(StringBuilder column, List<Projection> projections, Class<T> entityClass) {
+        for (int i = 0; i < projections.size(); i++) {
+            Projection projection = projections.get(i);
+            if (i > 0) {
+                column.append(", ");
+            }
+            String fieldName = projection.getPropertyName() != null ? entityPropertiesResolver.resolve(
+                    projection.getPropertyName(), entityClass) : PROJECTION_ALL;
+            if (projection.isAggregate()) {
+                column.append(projection.getFunction().symbol()).append('(');
+                if (projection.isDistinct()) {
+                    column.append(DISTINCT).append(' ');
+                }
+                column.append(fieldName).append(')');
+            } else {
+                column.append(fieldName);
+            }
+            String alias = projection.getAlias();
+            if (alias == null && !projection.isAggregate()) {
+                alias = projection.getPropertyName();
+            }
+            if (alias != null) {
+                column.append(" AS \"").append(alias.replace("\"", "\"\"")).append('"');
+            }
         }
-        return queryString;
     }
 
     private String resolveMappingName(String fieldName) {
@@ -117,67 +485,89 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
 
     @Override
     public String eq(String fieldName, Object value) {
-
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.EQUAL, value);
+        return comparison(fieldName, PhoenixHBaseOperator.EQUAL, value);
     }
 
     @Override
     public String ne(String fieldName, Object value) {
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.NOT_EQUAL, value);
+        return comparison(fieldName, PhoenixHBaseOperator.NOT_EQUAL, value);
     }
 
     @Override
     public String lt(String fieldName, Object value) {
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.LESS_THAN, value);
+        return comparison(fieldName, PhoenixHBaseOperator.LESS_THAN, value);
     }
 
     @Override
     public String lte(String fieldName, Object value) {
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.LESS_THAN_OR_EQUAL, value);
+        return comparison(fieldName, PhoenixHBaseOperator.LESS_THAN_OR_EQUAL, value);
     }
 
     @Override
     public String gt(String fieldName, Object value) {
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.GREATER_THAN, value);
+        return comparison(fieldName, PhoenixHBaseOperator.GREATER_THAN, value);
     }
 
     @Override
     public String gte(String fieldName, Object value) {
-        return join(resolveMappingName(fieldName), PhoenixHBaseOperator.GREATER_THAN_OR_EQUAL, value);
+        return comparison(fieldName, PhoenixHBaseOperator.GREATER_THAN_OR_EQUAL, value);
     }
-    
-	@Override
+
+    @Override
     public String insensitiveLike(String fieldName, Object value) {
-		return join(resolveMappingName(fieldName), 
-					PhoenixHBaseOperator.LIKE_CASE_INSENSITIVE, 
-					String.format(STRING_OPERAND_WITH_WILDCARD, value));
-	}
+        return comparison(fieldName, PhoenixHBaseOperator.LIKE_CASE_INSENSITIVE,
+                String.format(STRING_OPERAND_WITH_WILDCARD, value));
+    }
 
-	@Override
+    @Override
     public String like(String fieldName, Object value) {
-		return join(resolveMappingName(fieldName), 
-					PhoenixHBaseOperator.LIKE, 
-					String.format(STRING_OPERAND_WITH_WILDCARD, value));	
-	}
+        return comparison(fieldName, PhoenixHBaseOperator.LIKE, String.format(STRING_OPERAND_WITH_WILDCARD, value));
+    }
+
+    private String comparison(String fieldName, PhoenixHBaseOperator operator, Object value) {
+        return appendComparison(new StringBuilder(), resolveMappingName(fieldName), operator, value).toString();
+    }
 
     @Override
     public String between(String fieldName, Object from, Object to) {
-        throw new UnsupportedOperationException("BETWEEN operator is not supported in phoenix hbase library...");
+        return appendBetween(new StringBuilder(), resolveMappingName(fieldName), from, to).toString();
     }
 
     @Override
     public String in(String fieldName, Object[] values) {
-        throw new UnsupportedOperationException("IN operator is not supported in phoenix hbase library...");
+        return appendValueList(new StringBuilder(), resolveMappingName(fieldName), PhoenixHBaseOperator.IN, values)
+                .toString();
     }
 
     @Override
     public String notIn(String fieldName, Object[] values) {
-        throw new UnsupportedOperationException("NOTIN operator is not supported in phoenix hbase library...");
+        return appendValueList(new StringBuilder(), resolveMappingName(fieldName), PhoenixHBaseOperator.NOT_IN,
+                values).toString();
     }
 
+    @Override
+    public String in(String[] fieldNames, List<Object[]> rows) {
+        return appendRowValueIn(new StringBuilder(), Arrays.asList(fieldNames), rows).toString();
+    }
+
+    @Override
+    public String gt(String[] fieldNames, Object[] values) {
+        return appendRowValueComparison(new StringBuilder(), Arrays.asList(fieldNames),
+                PhoenixHBaseOperator.GREATER_THAN, values).toString();
+    }
+
+    @Override
+    public String lt(String[] fieldNames, Object[] values) {
+        return appendRowValueComparison(new StringBuilder(), Arrays.asList(fieldNames),
+                PhoenixHBaseOperator.LESS_THAN, values).toString();
+    }
+
+    /**
+     * Array column containing every value, <code>v = ANY(array_col)</code> per value.
+     */
     @Override
     public String contains(String fieldName, Object[] values) {
-        throw new UnsupportedOperationException("CONTAINS operator is not supported in phoenix hbase library...");
+        return appendContains(new StringBuilder(), resolveMappingName(fieldName), values).toString();
     }
 
     @Override
@@ -205,6 +595,105 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
         return e.getExpression().toString();
     }
 
+    /*
+     * Renders the criteria with a CriteriaWriter rather than translating every subquery to its own string.
+     */
+    @Override
+    protected <T> String translate(Criterion c, Class<T> entityClass) {
+        return c.accept(new CriteriaWriter(new StringBuilder(), entityClass)).toString();
+    }
+
+    private StringBuilder appendComparison(StringBuilder builder, String fieldName, PhoenixHBaseOperator operator,
+            Object value) {
+        builder.append(fieldName).append(' ').append(operator.symbol()).append(' ');
+        return appendLiteral(builder, value(value));
+    }
+
+    private StringBuilder appendBetween(StringBuilder builder, String fieldName, Object from, Object to) {
+        builder.append(fieldName).append(' ').append(PhoenixHBaseOperator.BETWEEN.symbol()).append(' ');
+        appendLiteral(builder, value(from)).append(' ').append(PhoenixHBaseOperator.AND.symbol()).append(' ');
+        return appendLiteral(builder, value(to));
+    }
+
+    /*
+     * Renders field IN (v1, v2, ...), single column IN lists on a leading key column are run as skip scans. Phoenix
+     * does not accept an empty list, an empty IN matches no rows and an empty NOT IN every row.
+     */
+    private StringBuilder appendValueList(StringBuilder builder, String fieldName, PhoenixHBaseOperator operator,
+            Object[] values) {
+        if (values.length == 0) {
+            return builder.append(operator == PhoenixHBaseOperator.IN ? "1 = 0" : "1 = 1");
+        }
+        builder.append(fieldName).append(' ').append(operator.symbol()).append(" (");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendLiteral(builder, value(values[i]));
+        }
+        return builder.append(')');
+    }
+
+    private StringBuilder appendRowValueIn(StringBuilder builder, List<String> fieldNames, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            // matches no rows, phoenix does not accept an empty IN list
+            return builder.append("1 = 0");
+        }
+        appendRowValue(builder, fieldNames.toArray(), false);
+        builder.append(' ').append(PhoenixHBaseOperator.IN.symbol()).append(" (");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendRowValue(builder, rows.get(i), true);
+        }
+        return builder.append(')');
+    }
+
+    private StringBuilder appendRowValueComparison(StringBuilder builder, List<String> fieldNames,
+            PhoenixHBaseOperator operator, Object[] values) {
+        appendRowValue(builder, fieldNames.toArray(), false);
+        builder.append(' ').append(operator.symbol()).append(' ');
+        return appendRowValue(builder, values, true);
+    }
+
+    /*
+     * Appends a single value as is, a tuple of values wrapped in parentheses.
+     */
+    private StringBuilder appendRowValue(StringBuilder builder, Object[] parts, boolean values) {
+        if (parts.length > 1) {
+            builder.append('(');
+        }
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (values) {
+                appendLiteral(builder, value(parts[i]));
+            } else {
+                builder.append(parts[i]);
+            }
+        }
+        if (parts.length > 1) {
+            builder.append(')');
+        }
+        return builder;
+    }
+
+    private StringBuilder appendContains(StringBuilder builder, String fieldName, Object[] values) {
+        if (values.length == 0) {
+            return builder.append("1 = 1");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values.length > 1) {
+                builder.append(i > 0 ? ") " + PhoenixHBaseOperator.AND.symbol() + " (" : "(");
+            }
+            appendLiteral(builder, value(values[i])).append(' ').append(PhoenixHBaseOperator.EQUAL.symbol())
+                    .append(' ').append(PhoenixHBaseOperator.ANY.symbol()).append('(').append(fieldName).append(')');
+        }
+        return values.length > 1 ? builder.append(')') : builder;
+    }
+
     @Override
     public String order(String... orders) {
         return Joiner.on(", ").join(orders);
@@ -239,46 +728,57 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
     }
 
     protected String join(String fieldName, Object... parts) {
-        return fieldName + " " + Joiner.on(" ").join(Lists.transform(Arrays.asList(parts), toString));
+        StringBuilder builder = new StringBuilder(fieldName);
+        for (Object part : parts) {
+            builder.append(' ');
+            if (part instanceof PhoenixHBaseOperator) {
+                builder.append(((PhoenixHBaseOperator) part).symbol());
+            } else {
+                appendLiteral(builder, part);
+            }
+        }
+        return builder.toString();
     }
 
-    private final Function<Object, String> toString = new Function<Object, String>(){
-        @Override
-        public String apply(Object o) {
-            return string(o);
+    /**
+     * Collects a criteria value as bind parameter when translating a parameterized query.
+     * 
+     * @param o value
+     * @return the value itself to be inlined as literal, or a placeholder if it was collected
+     */
+    protected Object value(Object o) {
+        if (bindParameters == null) {
+            return o;
         }
-    };
+        bindParameters.add(o);
+        return BIND_PARAMETER;
+    }
 
     protected String string(Object o) {
-        if (o instanceof Object[]) {
-            return "[" + Joiner.on(",").join(Lists.transform(Arrays.asList((Object[]) o), toString)) + "]";
-        } else if (o instanceof String) {
-            return "'" + sanitizeString((String) o) + "'";
-        } else if (o instanceof Character) {
-            logger.debug("Converting char type, value {}", o);
-            return "'" + sanitizeString(o.toString()) + "'";
-        } else if (o instanceof Date) {
-            return PhoenixDateFormatUtil.formatDate((Date) o);
-        } else if (o != null) {
-            return o.toString();
+        if (o == null) {
+            logger.warn("Can't convert null object to String");
+            return null;
         }
-        logger.warn("Can't convert null object to String");
-        return null;
-
+        return appendLiteral(new StringBuilder(), o).toString();
     }
 
-    private String sanitizeString(String stringValue) {
-        if (stringValue.contains("'")) {
-            stringValue = stringValue.replace("'", "''");
-        }
-        if (stringValue.contains("\\")) {
-            stringValue = stringValue.replace("\\", "\\\\");
+    /*
+     * Appends the value as a phoenix literal with the codec of its type, or the placeholder of a collected parameter.
+     */
+    private StringBuilder appendLiteral(StringBuilder builder, Object o) {
+        if (o == BIND_PARAMETER) {
+            return builder.append('?');
+        } else if (o == null) {
+            logger.warn("Can't convert null object to String");
         }
-        return stringValue;
+        return valueCodecRegistry.appendLiteral(builder, o);
     }
 
     @Override
     public <T> String translate(QueryUpdate<T> updateQuery) {
+        if (updateQuery.getCriteria() != null) {
+            return translateUpsertSelect(updateQuery);
+        }
         T entity = updateQuery.getEntity();
         List<String> selectedFields = updateQuery.getSelectedFields();
         try {
@@ -297,11 +797,11 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
                     try {
                         if (StringUtils.isEmpty(columnsList)) {
                             columnsList = propertyValueBinding.getEntityPropertyBinding().getStoreFieldName();
-                            valuesList = string(propertyValueBinding.getValue());
+                            valuesList = string(value(propertyValueBinding.getValue()));
                         } else {
                             columnsList = joiner.join(columnsList, propertyValueBinding.getEntityPropertyBinding()
                                     .getStoreFieldName());
-                            valuesList = joiner.join(valuesList, string(propertyValueBinding.getValue()));
+                            valuesList = joiner.join(valuesList, string(value(propertyValueBinding.getValue())));
                         }
                     } catch (Exception ex) {
                         logger.warn("Exception while translating the update query for property {} and value {}",
@@ -329,6 +829,104 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
 
     }
 
+    /**
+     * translates a criteria driven update to an <code>UPSERT INTO t(pk..., col...) SELECT pk..., value... FROM t
+     * WHERE ...</code> query, so the matching rows are rewritten on the region servers. The selected fields of the
+     * entity are set on every matching row, null values included. The values are rendered as literals since Phoenix
+     * can not infer the type of a bind parameter in the select list; the criteria values are still bound.
+     * 
+     * @param updateQuery QueryUpdate with criteria and selected fields
+     * @return upsert select query string
+     */
+    protected <T> String translateUpsertSelect(QueryUpdate<T> updateQuery) {
+        T entity = updateQuery.getEntity();
+        Class<?> entityClass = entity.getClass();
+        if (CollectionUtils.isEmpty(updateQuery.getSelectedFields())) {
+            throw new DataStoreException("Criteria update requires the fields to update for entity "
+                    + entityClass.getSimpleName());
+        }
+        List<EntityPropertyBinding> primaryKey = entityPropertiesResolver.getPrimaryKeyPropertyBindings(entityClass);
+        if (primaryKey.isEmpty()) {
+            throw new DataStoreException("No primary key declared for entity " + entityClass.getSimpleName());
+        }
+        List<String> columns = new ArrayList<String>();
+        List<String> selections = new ArrayList<String>();
+        for (EntityPropertyBinding binding : primaryKey) {
+            columns.add(binding.getStoreFieldName());
+            selections.add(binding.getStoreFieldName());
+        }
+        try {
+            for (EntityPropertyValueBinding valueBinding : buildParameterBindings(entity,
+                    updateQuery.getSelectedFields())) {
+                EntityPropertyBinding binding = valueBinding.getEntityPropertyBinding();
+                if (binding.isPrimaryKey()) {
+                    throw new DataStoreException("Primary key property " + binding.getName()
+                            + " can not be updated by criteria");
+                }
+                columns.add(binding.getStoreFieldName());
+                selections.add(valueBinding.getValue() != null ? string(valueBinding.getValue()) : NULL);
+            }
+        } catch (DataStoreException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new DataStoreException(ex);
+        }
+        String tableName = entityResolver.resolve(entityClass);
+        Joiner commaJoiner = Joiner.on(", ");
+        return Joiner.on(" ").join(UPSERT_INTO, tableName + "(" + commaJoiner.join(columns) + ")", SELECT,
+                commaJoiner.join(selections), PhoenixHBaseClauses.FROM.symbol(), tableName,
+                PhoenixHBaseClauses.WHERE.symbol(), translate(optimize(updateQuery.getCriteria()), entityClass));
+    }
+
+    /**
+     * translates given QueryUpdate object to upsert query string with <code>?</code> placeholders in place of the
+     * entity values. Entities of the same class with the same non null fields translate to the same query string.
+     * 
+     * @param updateQuery QueryUpdate
+     * @return ParameterizedQuery query string and the values to bind, in placeholder order
+     */
+    public <T> ParameterizedQuery translateParameterized(QueryUpdate<T> updateQuery) {
+        List<Object> parameters = new ArrayList<Object>();
+        String queryString = new PhoenixHBaseQueryTranslator(entityPropertiesResolver, valueCodecRegistry, parameters)
+                .translate(updateQuery);
+        return new ParameterizedQuery(queryString, parameters);
+    }
+
+    /**
+     * translates the entity to a delete query matching its primary key, with <code>?</code> placeholders in place of
+     * the key values.
+     * 
+     * @param entity entity whose class declares its primary key columns
+     * @return ParameterizedQuery delete query string and the key values to bind
+     */
+    public <T> ParameterizedQuery translateDeleteByKey(T entity) {
+        Class<?> entityClass = entity.getClass();
+        List<EntityPropertyBinding> primaryKey = entityPropertiesResolver.getPrimaryKeyPropertyBindings(entityClass);
+        if (primaryKey.isEmpty()) {
+            throw new DataStoreException("No primary key declared for entity " + entityClass.getSimpleName());
+        }
+        List<String> predicates = new ArrayList<String>(primaryKey.size());
+        List<Object> parameters = new ArrayList<Object>(primaryKey.size());
+        for (EntityPropertyBinding binding : primaryKey) {
+            Object value;
+            try {
+                value = PropertyUtils.getProperty(entity, binding.getNameFullPath());
+            } catch (Exception ex) {
+                throw new DataStoreException(ex);
+            }
+            if (value == null) {
+                throw new DataStoreException("Primary key property " + binding.getName() + " is null for entity "
+                        + entityClass.getSimpleName());
+            }
+            predicates.add(join(binding.getStoreFieldName(), PhoenixHBaseOperator.EQUAL, BIND_PARAMETER));
+            parameters.add(value);
+        }
+        String queryString = Joiner.on(" ").join(DELETE, PhoenixHBaseClauses.FROM.symbol(),
+                entityResolver.resolve(entityClass), PhoenixHBaseClauses.WHERE.symbol(),
+                Joiner.on(" " + PhoenixHBaseOperator.AND + " ").join(predicates));
+        return new ParameterizedQuery(queryString, parameters);
+    }
+
     private <T> List<EntityPropertyValueBinding> buildParameterBindings(T entity, List<String> selectedFields)
             throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
 
@@ -387,6 +985,226 @@ public class PhoenixHBaseQueryTranslator extends AbstractQueryTranslator<String,
         }
     }
 
+    /**
+     * Renders a criteria tree into the buffer of the query being translated, in a single pass and without
+     * intermediate strings for the subqueries.
+     */
+    private class CriteriaWriter implements CriterionVisitor<StringBuilder> {
+
+        private final StringBuilder builder;
+        private final Class<?> entityClass;
+
+        private CriteriaWriter(StringBuilder builder, Class<?> entityClass) {
+            this.builder = builder;
+            this.entityClass = entityClass;
+        }
+
+        private String resolve(String propertyName) {
+            return resolveMappingName(entityPropertiesResolver.resolve(propertyName, entityClass));
+        }
+
+        @Override
+        public StringBuilder visit(EqualityExpression e) {
+            String fieldName = resolve(e.getPropertyName());
+            Operator operator = e.getOperator();
+            switch (operator) {
+            case EQUAL:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.EQUAL, e.getValue());
+            case NOT_EQUAL:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.NOT_EQUAL, e.getValue());
+            case GREATER_THAN:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.GREATER_THAN, e.getValue());
+            case GREATER_THAN_OR_EQUAL:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.GREATER_THAN_OR_EQUAL,
+                        e.getValue());
+            case LESS_THAN:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.LESS_THAN, e.getValue());
+            case LESS_THAN_OR_EQUAL:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.LESS_THAN_OR_EQUAL, e.getValue());
+            case LIKE:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.LIKE,
+                        String.format(STRING_OPERAND_WITH_WILDCARD, e.getValue()));
+            case ILIKE:
+                return appendComparison(builder, fieldName, PhoenixHBaseOperator.LIKE_CASE_INSENSITIVE,
+                        String.format(STRING_OPERAND_WITH_WILDCARD, e.getValue()));
+            default:
+                throw unsupported(operator, EqualityExpression.class);
+            }
+        }
+
+        @Override
+        public StringBuilder visit(RangeExpression e) {
+            String fieldName = resolve(e.getPropertyName());
+            if (e.getOperator() != Operator.BETWEEN) {
+                throw unsupported(e.getOperator(), RangeExpression.class);
+            }
+            return appendBetween(builder, fieldName, e.getFrom(), e.getTo());
+        }
+
+        @Override
+        public StringBuilder visit(SetExpression e) {
+            String fieldName = resolve(e.getPropertyName());
+            Operator operator = e.getOperator();
+            switch (operator) {
+            case IN:
+                return appendValueList(builder, fieldName, PhoenixHBaseOperator.IN, e.getValues());
+            case NOT_IN:
+                return appendValueList(builder, fieldName, PhoenixHBaseOperator.NOT_IN, e.getValues());
+            case CONTAINS:
+                return appendContains(builder, fieldName, e.getValues());
+            default:
+                throw unsupported(operator, SetExpression.class);
+            }
+        }
+
+        @Override
+        public StringBuilder visit(UnaryExpression e) {
+            String fieldName = resolve(e.getPropertyName());
+            Operator operator = e.getOperator();
+            switch (operator) {
+            case NULL:
+                return builder.append(fieldName).append(' ').append(PhoenixHBaseOperator.IS_NULL.symbol());
+            case NOT_NULL:
+                return builder.append(fieldName).append(' ').append(PhoenixHBaseOperator.IS_NOT_NULL.symbol());
+            case EMPTY:
+                return builder.append(isEmpty(fieldName));
+            case NOT_EMPTY:
+                return builder.append(notEmpty(fieldName));
+            default:
+                throw unsupported(operator, UnaryExpression.class);
+            }
+        }
+
+        @Override
+        public StringBuilder visit(RowValueExpression e) {
+            List<String> propertyNames = e.getPropertyNames();
+            List<String> fieldNames = new ArrayList<String>(propertyNames.size());
+            for (String propertyName : propertyNames) {
+                fieldNames.add(resolve(propertyName));
+            }
+            Operator operator = e.getOperator();
+            switch (operator) {
+            case IN:
+                return appendRowValueIn(builder, fieldNames, e.getRows());
+            case GREATER_THAN:
+                return appendRowValueComparison(builder, fieldNames, PhoenixHBaseOperator.GREATER_THAN, e.getRows()
+                        .get(0));
+            case LESS_THAN:
+                return appendRowValueComparison(builder, fieldNames, PhoenixHBaseOperator.LESS_THAN, e.getRows()
+                        .get(0));
+            default:
+                throw unsupported(operator, RowValueExpression.class);
+            }
+        }
+
+        @Override
+        public StringBuilder visit(NativeExpression e) {
+            return builder.append(translate(e, entityClass));
+        }
+
+        /*
+         * (a) AND (b), a junction of a single criterion is rendered as that criterion.
+         */
+        @Override
+        public StringBuilder visit(Junction j) {
+            PhoenixHBaseOperator operator;
+            if (j.getOperator() == Operator.AND) {
+                operator = PhoenixHBaseOperator.AND;
+            } else if (j.getOperator() == Operator.OR) {
+                operator = PhoenixHBaseOperator.OR;
+            } else {
+                throw unsupported(j.getClass());
+            }
+            List<Criterion> criteria = j.getCriteria();
+            if (criteria.isEmpty()) {
+                // an empty conjunction always holds, an empty disjunction never does
+                return builder.append(operator == PhoenixHBaseOperator.AND ? "1 = 1" : "1 = 0");
+            } else if (criteria.size() == 1) {
+                return criteria.get(0).accept(this);
+            }
+            for (int i = 0; i < criteria.size(); i++) {
+                builder.append(i > 0 ? ") " + operator.symbol() + " (" : "(");
+                criteria.get(i).accept(this);
+            }
+            return builder.append(')');
+        }
+    }
+
+    /**
+     * Collects the criteria values in the order the CriteriaWriter emits their placeholders.
+     */
+    private static class ParameterCollector implements CriterionVisitor<Void> {
+
+        private final List<Object> parameters;
+
+        private ParameterCollector(List<Object> parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Void visit(EqualityExpression e) {
+            switch (e.getOperator()) {
+            case LIKE:
+            case ILIKE:
+                parameters.add(String.format(STRING_OPERAND_WITH_WILDCARD, e.getValue()));
+                break;
+            default:
+                parameters.add(e.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(RangeExpression e) {
+            parameters.add(e.getFrom());
+            parameters.add(e.getTo());
+            return null;
+        }
+
+        @Override
+        public Void visit(SetExpression e) {
+            Collections.addAll(parameters, e.getValues());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnaryExpression e) {
+            return null;
+        }
+
+        @Override
+        public Void visit(RowValueExpression e) {
+            for (Object[] row : e.getRows()) {
+                Collections.addAll(parameters, row);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(NativeExpression e) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Junction j) {
+            for (Criterion criterion : j.getCriteria()) {
+                criterion.accept(this);
+            }
+            return null;
+        }
+    }
+
+    private static class QueryTemplate {
+
+        private final String queryString;
+        private final int parameterCount;
+
+        private QueryTemplate(String queryString, int parameterCount) {
+            this.queryString = queryString;
+            this.parameterCount = parameterCount;
+        }
+    }
+
     @Override
     public String limit(Integer value) {
        
@@ -0,0 +1,127 @@
+package com.eharmony.pho.hbase.translator;
+
+import java.util.List;
+
+import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.Ordering;
+import com.eharmony.pho.query.criterion.Orderings;
+import com.eharmony.pho.query.criterion.expression.Expression;
+import com.eharmony.pho.query.criterion.expression.NativeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
+import com.eharmony.pho.query.criterion.expression.SetExpression;
+import com.eharmony.pho.query.criterion.junction.Junction;
+
+/**
+ * Builds a key describing the shape of a query: operation type, entity class, projection, criteria structure,
+ * grouping, orderings, limit and hint. Criteria values are left out, so queries differing only in their values share the same
+ * fingerprint and translate to the same parameterized query string. Native expressions are part of the query string
+ * and are kept.
+ */
+public final class QueryFingerprint {
+
+    private QueryFingerprint() {
+    }
+
+    public static <T, R> String of(QuerySelect<T, R> query) {
+        return of(query, query.getCriteria());
+    }
+
+    /**
+     * Fingerprint of the query with the given criteria in place of its own, e.g. its optimized criteria.
+     */
+    public static <T, R> String of(QuerySelect<T, R> query, Criterion criteria) {
+        StringBuilder fingerprint = new StringBuilder(128);
+        fingerprint.append(query.getQueryOperationType()).append('|');
+        fingerprint.append(query.getEntityClass().getName()).append('|');
+        List<String> returnFields = query.getReturnFields();
+        if (returnFields != null) {
+            fingerprint.append(returnFields);
+        }
+        fingerprint.append('|').append(query.getProjections()).append(query.isDistinct() ? " DISTINCT" : "");
+        fingerprint.append('|');
+        append(fingerprint, criteria);
+        fingerprint.append('|').append(query.getGroupBy());
+        fingerprint.append('|');
+        Orderings orderings = query.getOrder();
+        if (orderings != null) {
+            for (Ordering ordering : orderings.get()) {
+                fingerprint.append(ordering.getPropertyName()).append(' ').append(ordering.getOrder()).append(' ')
+                        .append(ordering.getNullOrdering()).append(',');
+            }
+        }
+        fingerprint.append('|').append(query.getMaxResults());
+        fingerprint.append('|').append(query.getQueryHint()).append(query.getQueryHints());
+        return fingerprint.toString();
+    }
+
+    /**
+     * Coarser fingerprint for grouping queries, e.g. in metrics: the sizes of IN lists and row value lists are rounded
+     * up to the next power of two, so list lookups of any length do not each make a shape of their own.
+     *
+     * @param fingerprint
+     *            fingerprint built by {@link #of(QuerySelect)}
+     * @return the fingerprint with bucketed list sizes, the same instance if it has no list
+     */
+    public static String bucketListSizes(String fingerprint) {
+        int marker = fingerprint.indexOf('#');
+        if (marker < 0) {
+            return fingerprint;
+        }
+        StringBuilder bucketed = new StringBuilder(fingerprint.length() + 8);
+        int copied = 0;
+        for (; marker >= 0; marker = fingerprint.indexOf('#', marker + 1)) {
+            int end = marker + 1;
+            while (end < fingerprint.length() && Character.isDigit(fingerprint.charAt(end))) {
+                end++;
+            }
+            if (end == marker + 1 || end == fingerprint.length() || fingerprint.charAt(end) != ')'
+                    || end - marker > 10) {
+                continue;
+            }
+            int size = Integer.parseInt(fingerprint.substring(marker + 1, end));
+            bucketed.append(fingerprint, copied, marker + 1);
+            if (size > 2) {
+                bucketed.append("<=").append(Integer.highestOneBit(size - 1) << 1);
+            } else {
+                bucketed.append(size);
+            }
+            copied = end;
+        }
+        return copied == 0 ? fingerprint : bucketed.append(fingerprint, copied, fingerprint.length()).toString();
+    }
+
+    private static void append(StringBuilder fingerprint, Criterion criterion) {
+        if (criterion == null) {
+            return;
+        }
+        if (criterion instanceof Junction) {
+            Junction junction = (Junction) criterion;
+            fingerprint.append(junction.getOperator().name()).append('(');
+            for (Criterion child : junction.getCriteria()) {
+                append(fingerprint, child);
+                fingerprint.append(',');
+            }
+            fingerprint.append(')');
+        } else if (criterion instanceof SetExpression) {
+            SetExpression expression = (SetExpression) criterion;
+            int size = expression.getValues() != null ? expression.getValues().length : 0;
+            fingerprint.append(expression.getOperator().name()).append('(').append(expression.getPropertyName())
+                    .append('#').append(size).append(')');
+        } else if (criterion instanceof RowValueExpression) {
+            RowValueExpression expression = (RowValueExpression) criterion;
+            fingerprint.append(expression.getOperator().name()).append('(').append(expression.getPropertyNames())
+                    .append('#').append(expression.getRows().size()).append(')');
+        } else if (criterion instanceof Expression) {
+            Expression expression = (Expression) criterion;
+            fingerprint.append(expression.getOperator().name()).append('(').append(expression.getPropertyName())
+                    .append(')');
+        } else if (criterion instanceof NativeExpression) {
+            fingerprint.append("NATIVE(").append(((NativeExpression) criterion).getExpression()).append(')');
+        } else {
+            // unknown structure, fall back to the full representation including the values
+            fingerprint.append(criterion.getClass().getName()).append('(').append(criterion).append(')');
+        }
+    }
+
+}
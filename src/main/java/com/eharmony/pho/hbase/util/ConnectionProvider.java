@@ -0,0 +1,54 @@
+package com.eharmony.pho.hbase.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Supplies phoenix connections to the datastore api. Connections handed out by {@link #getConnection()} must be given
+ * back through {@link #releaseConnection(Connection)} instead of being closed by the caller, so implementations are
+ * free to reuse them.
+ */
+public interface ConnectionProvider {
+
+    /**
+     * Get a connection to the configured phoenix cluster.
+     *
+     * @return Connection
+     * @throws SQLException
+     *             if a connection could not be obtained
+     */
+    public Connection getConnection() throws SQLException;
+
+    /**
+     * Get a connection, waiting at most the given time for one to become available. Providers that do not wait for
+     * connections ignore the timeout.
+     *
+     * @param timeout
+     *            maximum time to wait
+     * @param unit
+     *            unit of the timeout
+     * @return Connection
+     * @throws SQLException
+     *             if a connection could not be obtained, {@link SQLTimeoutException} if none became available in time
+     */
+    public default Connection getConnection(long timeout, TimeUnit unit) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Give back a connection obtained from {@link #getConnection()}. Uncommitted changes on the connection are
+     * discarded.
+     *
+     * @param connection
+     *            Connection, null is ignored
+     */
+    public void releaseConnection(Connection connection);
+
+    /**
+     * Release all the resources held by this provider.
+     */
+    public void close();
+
+}
@@ -0,0 +1,50 @@
+package com.eharmony.pho.hbase.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non pooling connection provider, opens a new connection through {@link PhoenixConnectionManager} for every call and
+ * closes it on release.
+ */
+public class DriverManagerConnectionProvider implements ConnectionProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(DriverManagerConnectionProvider.class);
+
+    private final String connectionUrl;
+
+    public DriverManagerConnectionProvider(final String connectionUrl) {
+        this.connectionUrl = connectionUrl;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return PhoenixConnectionManager.getConnection(connectionUrl);
+        } catch (SQLException sqle) {
+            throw sqle;
+        } catch (Exception ex) {
+            throw new SQLException("Unable to create phoenix connection with url " + connectionUrl, ex);
+        }
+    }
+
+    @Override
+    public void releaseConnection(Connection connection) {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (Exception ex) {
+            log.warn("Exception while closing the connection...", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+}
@@ -2,6 +2,13 @@ package com.eharmony.pho.hbase.util;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+
 /**
  * Manages the phoenix connections based on JDBC driver
  * 
@@ -14,4 +21,33 @@ public class PhoenixConnectionManager {
         Class.forName("org.apache.phoenix.jdbc.PhoenixDriver");
         return DriverManager.getConnection(connectionString);
     }
+
+    /**
+     * Gets a connection from the provider within the time left before the deadline.
+     * 
+     * @param connectionProvider
+     *            ConnectionProvider
+     * @param deadline
+     *            Deadline of the operation the connection is acquired for, null to wait as long as the provider does
+     * @return Connection
+     * @throws SQLException
+     *             if a connection could not be obtained
+     * @throws DataStoreTimeoutException
+     *             if the deadline passed before a connection was obtained
+     */
+    public static Connection getConnection(final ConnectionProvider connectionProvider, final Deadline deadline)
+            throws SQLException {
+        if (deadline == null) {
+            return connectionProvider.getConnection();
+        }
+        deadline.check("acquiring a connection");
+        try {
+            return connectionProvider.getConnection(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (SQLTimeoutException ex) {
+            if (deadline.isExpired()) {
+                throw new DataStoreTimeoutException("Deadline exceeded acquiring a connection", ex);
+            }
+            throw ex;
+        }
+    }
 }
@@ -1,28 +1,80 @@
 package com.eharmony.pho.hbase.util;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.Locale;
 
 import com.google.common.base.Preconditions;
 /**
  * Utility class to convert the java.util.Date to apache phoenix date format to insert into hbase.
- * 
- * Note: this class is using simpledateformat, but should be 
- * switched to org.apache.commons.lang3.time.FastDateFormat if there are any performance issues
- * 
+ *
+ * The formatters are immutable and shared between threads. Dates are rendered in UTC, with the zone in the literal so
+ * phoenix reads back the same instant whatever the client time zone.
+ *
  * @author vvangapandu
  *
  */
 public class PhoenixDateFormatUtil {
 
     public static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss z";
-    
+
+    public static final String TIMESTAMP_MILLIS_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS z";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter
+            .ofPattern(TIMESTAMP_MILLIS_FORMAT, Locale.ROOT).withZone(ZoneId.of("UTC"));
+
     public static final String formatDate(Date date) {
         Preconditions.checkNotNull(date, "date must not be null");
-        String formattedDate = new SimpleDateFormat(TIMESTAMP_FORMAT).format(date);
-        StringBuffer dateFormatBuilder = new StringBuffer("TO_DATE('");
-        dateFormatBuilder.append(formattedDate).append("', 'yyyy-MM-dd HH:mm:ss z')");
-        return dateFormatBuilder.toString();
+        return appendDate(new StringBuilder(64), date).toString();
+    }
+
+    /**
+     * Appends <code>TO_DATE('...', 'yyyy-MM-dd HH:mm:ss.SSS z')</code>, to the millisecond as phoenix stores dates.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param date
+     *            Date
+     * @return the builder
+     */
+    public static StringBuilder appendDate(StringBuilder builder, Date date) {
+        return appendFunction(builder, "TO_DATE", TIMESTAMP_FORMATTER, TIMESTAMP_MILLIS_FORMAT,
+                Instant.ofEpochMilli(date.getTime()));
     }
-    
+
+    /**
+     * Appends <code>TO_TIMESTAMP('...', 'yyyy-MM-dd HH:mm:ss.SSS z')</code>, to the millisecond.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param instant
+     *            Instant
+     * @return the builder
+     */
+    public static StringBuilder appendTimestamp(StringBuilder builder, Instant instant) {
+        return appendFunction(builder, "TO_TIMESTAMP", TIMESTAMP_FORMATTER, TIMESTAMP_MILLIS_FORMAT, instant);
+    }
+
+    /**
+     * Appends <code>TO_TIME('...', 'yyyy-MM-dd HH:mm:ss.SSS z')</code>, to the millisecond.
+     *
+     * @param builder
+     *            StringBuilder
+     * @param instant
+     *            Instant
+     * @return the builder
+     */
+    public static StringBuilder appendTime(StringBuilder builder, Instant instant) {
+        return appendFunction(builder, "TO_TIME", TIMESTAMP_FORMATTER, TIMESTAMP_MILLIS_FORMAT, instant);
+    }
+
+    private static StringBuilder appendFunction(StringBuilder builder, String function, DateTimeFormatter formatter,
+            String format, Instant instant) {
+        builder.append(function).append("('");
+        formatter.formatTo(instant, builder);
+        return builder.append("', '").append(format).append("')");
+    }
+
 }
@@ -0,0 +1,363 @@
+package com.eharmony.pho.hbase.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Bounded pool of phoenix connections.
+ *
+ * 1. At most maxTotal connections are leased at a time, callers wait up to maxWaitMillis for a free one. 2. minIdle
+ * connections are opened on construction and kept open afterwards, as long as maxTotal allows. 3. Idle connections
+ * unused for idleTimeoutMillis are closed by a background evictor. 4. Idle connections are validated before being
+ * handed out, broken ones are replaced. 5. Connection acquire latency is recorded and exposed through the getters.
+ *
+ * Released connections are rolled back, so uncommitted mutations never leak to the next caller.
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledConnectionProvider.class);
+
+    public static final int DEFAULT_MIN_IDLE = 0;
+    public static final int DEFAULT_MAX_TOTAL = 16;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 5000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEFAULT_VALIDATION_TIMEOUT_SEC = 1;
+
+    private final String connectionUrl;
+    private final int minIdle;
+    private final int maxTotal;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private int validationTimeoutSec = DEFAULT_VALIDATION_TIMEOUT_SEC;
+
+    private final Semaphore leasePermits;
+    // most recently released connections are handed out first, so the tail holds the longest idle ones
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<PooledConnection>();
+    private final Map<Connection, PooledConnection> leasedConnections = new ConcurrentHashMap<Connection, PooledConnection>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final AtomicLong acquireTimeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+
+    public PooledConnectionProvider(final String connectionUrl) throws SQLException {
+        this(connectionUrl, DEFAULT_MIN_IDLE, DEFAULT_MAX_TOTAL, DEFAULT_MAX_WAIT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public PooledConnectionProvider(final String connectionUrl, final int minIdle, final int maxTotal,
+            final long maxWaitMillis, final long idleTimeoutMillis) throws SQLException {
+        Preconditions.checkArgument(maxTotal > 0, "maxTotal must be greater than 0");
+        Preconditions.checkArgument(minIdle >= 0 && minIdle <= maxTotal, "minIdle must be between 0 and maxTotal");
+        this.connectionUrl = Preconditions.checkNotNull(connectionUrl);
+        this.minIdle = minIdle;
+        this.maxTotal = maxTotal;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leasePermits = new Semaphore(maxTotal, true);
+        if (idleTimeoutMillis > 0) {
+            long evictionPeriod = Math.max(idleTimeoutMillis / 2, 1000);
+            this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("pho-connection-evictor-%d").setDaemon(true).build());
+            this.evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictIdleConnections();
+                }
+            }, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictor = null;
+        }
+        prewarm();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(maxWaitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits for a connection at most the given time, capped at maxWaitMillis.
+     */
+    @Override
+    public Connection getConnection(long timeout, TimeUnit unit) throws SQLException {
+        final long start = System.nanoTime();
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long waitMillis = Math.min(maxWaitMillis, unit.toMillis(timeout));
+        try {
+            if (!leasePermits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                acquireTimeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + waitMillis
+                        + " ms waiting for a phoenix connection, " + maxTotal + " connections in use");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a phoenix connection", ie);
+        }
+        try {
+            PooledConnection pooledConnection = borrowIdleConnection();
+            if (pooledConnection == null) {
+                pooledConnection = createConnection();
+            }
+            leasedConnections.put(pooledConnection.connection, pooledConnection);
+            recordAcquire(System.nanoTime() - start);
+            return pooledConnection.connection;
+        } catch (SQLException sqle) {
+            leasePermits.release();
+            throw sqle;
+        } catch (RuntimeException re) {
+            leasePermits.release();
+            throw re;
+        }
+    }
+
+    @Override
+    public void releaseConnection(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        PooledConnection pooledConnection = leasedConnections.remove(connection);
+        if (pooledConnection == null) {
+            log.warn("Releasing a connection which is not leased from this pool, closing it");
+            destroy(connection);
+            return;
+        }
+        try {
+            if (closed || !reset(pooledConnection) || idleConnections.size() >= maxTotal) {
+                destroy(connection);
+            } else {
+                pooledConnection.lastUsedMillis = System.currentTimeMillis();
+                idleConnections.offerFirst(pooledConnection);
+            }
+        } finally {
+            leasePermits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            destroy(pooledConnection.connection);
+        }
+    }
+
+    /**
+     * Opens a new physical connection, override to customize connection creation.
+     *
+     * @return Connection
+     * @throws SQLException
+     *             if the connection could not be opened
+     */
+    protected Connection openConnection() throws SQLException {
+        try {
+            return PhoenixConnectionManager.getConnection(connectionUrl);
+        } catch (SQLException sqle) {
+            throw sqle;
+        } catch (Exception ex) {
+            throw new SQLException("Unable to create phoenix connection with url " + connectionUrl, ex);
+        }
+    }
+
+    protected boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(validationTimeoutSec);
+        } catch (SQLException sqle) {
+            log.debug("Connection validation failed", sqle);
+            return false;
+        }
+    }
+
+    /*
+     * Each connection is opened under a lease permit, so replenishing never takes the pool past maxTotal, counting
+     * the callers holding a permit which have not yet registered their connection.
+     */
+    private void prewarm() throws SQLException {
+        while (!closed && idleConnections.size() < minIdle
+                && leasedConnections.size() + idleConnections.size() < maxTotal && tryAcquirePermit()) {
+            try {
+                idleConnections.offerLast(createConnection());
+            } finally {
+                leasePermits.release();
+            }
+        }
+    }
+
+    private boolean tryAcquirePermit() {
+        try {
+            // honors the fairness of the semaphore, unlike tryAcquire()
+            return leasePermits.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        PooledConnection pooledConnection = new PooledConnection(openConnection());
+        createdCount.incrementAndGet();
+        return pooledConnection;
+    }
+
+    private PooledConnection borrowIdleConnection() {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            if (isExpired(pooledConnection, System.currentTimeMillis()) || !isValid(pooledConnection.connection)) {
+                destroy(pooledConnection.connection);
+                continue;
+            }
+            return pooledConnection;
+        }
+        return null;
+    }
+
+    private boolean reset(PooledConnection pooledConnection) {
+        Connection connection = pooledConnection.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            if (connection.getAutoCommit() != pooledConnection.defaultAutoCommit) {
+                connection.setAutoCommit(pooledConnection.defaultAutoCommit);
+            }
+            return true;
+        } catch (SQLException sqle) {
+            log.warn("Unable to reset the released connection, closing it", sqle);
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooledConnection, long now) {
+        return idleTimeoutMillis > 0 && now - pooledConnection.lastUsedMillis > idleTimeoutMillis;
+    }
+
+    void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+        while (oldestFirst.hasNext() && idleConnections.size() > minIdle) {
+            PooledConnection pooledConnection = oldestFirst.next();
+            if (isExpired(pooledConnection, now) && idleConnections.remove(pooledConnection)) {
+                destroy(pooledConnection.connection);
+            }
+        }
+        try {
+            prewarm();
+        } catch (SQLException sqle) {
+            log.warn("Unable to replenish idle phoenix connections", sqle);
+        }
+    }
+
+    private void destroy(Connection connection) {
+        try {
+            connection.close();
+        } catch (Exception ex) {
+            log.warn("Exception while closing the connection...", ex);
+        } finally {
+            destroyedCount.incrementAndGet();
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireCount.incrementAndGet();
+        acquireNanos.addAndGet(nanos);
+        long max = maxAcquireNanos.get();
+        while (nanos > max && !maxAcquireNanos.compareAndSet(max, nanos)) {
+            max = maxAcquireNanos.get();
+        }
+    }
+
+    public int getValidationTimeoutSec() {
+        return validationTimeoutSec;
+    }
+
+    public void setValidationTimeoutSec(int validationTimeoutSec) {
+        this.validationTimeoutSec = validationTimeoutSec;
+    }
+
+    public int getActiveCount() {
+        return leasedConnections.size();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getAcquireTimeoutCount() {
+        return acquireTimeoutCount.get();
+    }
+
+    /**
+     * @return average time spent in {@link #getConnection()} in microseconds
+     */
+    public long getAverageAcquireMicros() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.get() / count);
+    }
+
+    /**
+     * @return longest time spent in {@link #getConnection()} in microseconds
+     */
+    public long getMaxAcquireMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get());
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnectionProvider [active=" + getActiveCount() + ", idle=" + getIdleCount() + ", acquired="
+                + getAcquireCount() + ", timeouts=" + getAcquireTimeoutCount() + ", avgAcquireMicros="
+                + getAverageAcquireMicros() + ", maxAcquireMicros=" + getMaxAcquireMicros() + "]";
+    }
+
+    private static class PooledConnection {
+
+        private final Connection connection;
+        private final boolean defaultAutoCommit;
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.defaultAutoCommit = connection.getAutoCommit();
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.eharmony.pho.mapper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Global secondary index of an entity table, declared with {@link com.eharmony.pho.annotations.Index}.
+ */
+public class EntityIndex {
+
+    private final String name;
+    private final List<String> indexedPropertyNames;
+    private final Set<String> coveredPropertyNames;
+
+    /**
+     * @param name
+     *            index name
+     * @param indexedPropertyNames
+     *            indexed properties in index key order
+     * @param includedPropertyNames
+     *            properties covered through the INCLUDE clause
+     * @param primaryKeyPropertyNames
+     *            primary key properties of the data table, part of every global index row
+     */
+    public EntityIndex(String name, List<String> indexedPropertyNames, Collection<String> includedPropertyNames,
+            Collection<String> primaryKeyPropertyNames) {
+        this.name = name;
+        this.indexedPropertyNames = Collections.unmodifiableList(indexedPropertyNames);
+        Set<String> covered = new LinkedHashSet<String>(indexedPropertyNames);
+        covered.addAll(includedPropertyNames);
+        covered.addAll(primaryKeyPropertyNames);
+        this.coveredPropertyNames = Collections.unmodifiableSet(covered);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getIndexedPropertyNames() {
+        return indexedPropertyNames;
+    }
+
+    /**
+     * @return indexed, included and primary key properties
+     */
+    public Set<String> getCoveredPropertyNames() {
+        return coveredPropertyNames;
+    }
+
+    /**
+     * @return true if every property can be read from the index
+     */
+    public boolean covers(Collection<String> propertyNames) {
+        return coveredPropertyNames.containsAll(propertyNames);
+    }
+
+    /**
+     * @return number of leading indexed properties in the given properties
+     */
+    public int matchingPrefixLength(Collection<String> propertyNames) {
+        int length = 0;
+        while (length < indexedPropertyNames.size() && propertyNames.contains(indexedPropertyNames.get(length))) {
+            length++;
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityIndex [name=" + name + ", indexedPropertyNames=" + indexedPropertyNames
+                + ", coveredPropertyNames=" + coveredPropertyNames + "]";
+    }
+
+}
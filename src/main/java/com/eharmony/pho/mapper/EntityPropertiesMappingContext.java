@@ -1,6 +1,10 @@
 package com.eharmony.pho.mapper;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -10,6 +14,10 @@ import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.eharmony.pho.annotations.Index;
+import com.eharmony.pho.annotations.Indexes;
+import com.eharmony.pho.annotations.PrimaryKey;
+import com.google.common.collect.Iterables;
 import com.google.code.morphia.annotations.Embedded;
 import com.google.code.morphia.annotations.Property;
 
@@ -25,6 +33,8 @@ public class EntityPropertiesMappingContext {
 
     private Map<String, Map<String, EntityPropertyBinding>> storeFieldToEntityPropertyBindingMap = new HashMap<String, Map<String, EntityPropertyBinding>>();
     private Map<String, Map<String, EntityPropertyBinding>> entityPropertyToStoreFieldBindingMap = new HashMap<String, Map<String, EntityPropertyBinding>>();
+    private Map<String, List<EntityPropertyBinding>> primaryKeyBindingMap = new HashMap<String, List<EntityPropertyBinding>>();
+    private Map<String, List<EntityIndex>> indexMap = new HashMap<String, List<EntityIndex>>();
 
     private static final String PROPERTY_SEPARATOR = ".";
 
@@ -50,6 +60,57 @@ public class EntityPropertiesMappingContext {
                 entityPropertiesSet, clz);
         entityPropertyToStoreFieldBindingMap.put(className, entityFieldPropertiesMap);
 
+        List<EntityPropertyBinding> primaryKeyBindings = populatePrimaryKeyBindings(entityPropertiesSet);
+        primaryKeyBindingMap.put(className, primaryKeyBindings);
+        indexMap.put(className, populateIndexes(clz, entityFieldPropertiesMap, primaryKeyBindings));
+    }
+
+    private List<EntityIndex> populateIndexes(Class<?> clz, Map<String, EntityPropertyBinding> entityFieldPropertiesMap,
+            List<EntityPropertyBinding> primaryKeyBindings) {
+        List<Index> indexAnnotations = new ArrayList<Index>();
+        if (clz.isAnnotationPresent(Index.class)) {
+            indexAnnotations.add(clz.getAnnotation(Index.class));
+        }
+        if (clz.isAnnotationPresent(Indexes.class)) {
+            indexAnnotations.addAll(Arrays.asList(clz.getAnnotation(Indexes.class).value()));
+        }
+        List<String> primaryKeyPropertyNames = new ArrayList<String>(primaryKeyBindings.size());
+        for (EntityPropertyBinding primaryKeyBinding : primaryKeyBindings) {
+            primaryKeyPropertyNames.add(primaryKeyBinding.getName());
+        }
+        List<EntityIndex> indexes = new ArrayList<EntityIndex>(indexAnnotations.size());
+        for (Index indexAnnotation : indexAnnotations) {
+            List<String> indexed = Arrays.asList(indexAnnotation.properties());
+            List<String> included = Arrays.asList(indexAnnotation.include());
+            if (indexed.isEmpty()) {
+                throw new IllegalArgumentException("Index " + indexAnnotation.name() + " of " + clz.getSimpleName()
+                        + " has no indexed property");
+            }
+            for (String propertyName : Iterables.concat(indexed, included)) {
+                if (!entityFieldPropertiesMap.containsKey(propertyName)) {
+                    throw new IllegalArgumentException("Index " + indexAnnotation.name() + " of "
+                            + clz.getSimpleName() + " refers to unmapped property " + propertyName);
+                }
+            }
+            indexes.add(new EntityIndex(indexAnnotation.name(), indexed, included, primaryKeyPropertyNames));
+        }
+        return Collections.unmodifiableList(indexes);
+    }
+
+    private List<EntityPropertyBinding> populatePrimaryKeyBindings(Set<EntityPropertyBinding> entityPropertiesSetInternal) {
+        List<EntityPropertyBinding> primaryKeyBindings = new ArrayList<EntityPropertyBinding>();
+        for (EntityPropertyBinding entityProperty : entityPropertiesSetInternal) {
+            if (entityProperty.isPrimaryKey()) {
+                primaryKeyBindings.add(entityProperty);
+            }
+        }
+        Collections.sort(primaryKeyBindings, new Comparator<EntityPropertyBinding>() {
+            @Override
+            public int compare(EntityPropertyBinding o1, EntityPropertyBinding o2) {
+                return o1.getPrimaryKeyPosition() - o2.getPrimaryKeyPosition();
+            }
+        });
+        return Collections.unmodifiableList(primaryKeyBindings);
     }
 
     private Map<String, EntityPropertyBinding> populateEntityMappingPropertiesMap(
@@ -173,6 +234,10 @@ public class EntityPropertiesMappingContext {
         }
         nameBuilder.append(simpleField.getName());
         entityProperty.setNameFullPath(nameBuilder.toString());
+        PrimaryKey primaryKeyAnnotation = simpleField.getAnnotation(PrimaryKey.class);
+        if (primaryKeyAnnotation != null) {
+            entityProperty.setPrimaryKeyPosition(primaryKeyAnnotation.position());
+        }
         return entityProperty;
     }
 
@@ -199,4 +264,20 @@ public class EntityPropertiesMappingContext {
         return entityPropertyToStoreFieldBindingMap.get(clz.getSimpleName());
     }
 
+    /**
+     * Returns the secondary indexes declared on the entity with {@link Index} or {@link Indexes}.
+     */
+    public <T> List<EntityIndex> getIndexes(Class<T> clz) {
+        List<EntityIndex> indexes = indexMap.get(clz.getSimpleName());
+        return indexes != null ? indexes : Collections.<EntityIndex> emptyList();
+    }
+
+    /**
+     * Returns the bindings of the properties annotated with {@link PrimaryKey}, ordered by their key position.
+     */
+    public <T> List<EntityPropertyBinding> getPrimaryKeyPropertyBindings(Class<T> clz) {
+        List<EntityPropertyBinding> primaryKeyBindings = primaryKeyBindingMap.get(clz.getSimpleName());
+        return primaryKeyBindings != null ? primaryKeyBindings : Collections.<EntityPropertyBinding> emptyList();
+    }
+
 }
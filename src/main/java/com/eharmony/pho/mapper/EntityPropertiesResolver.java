@@ -45,4 +45,14 @@ public class EntityPropertiesResolver implements PropertyResolver {
         return entityPropertiesMappingContext.getEntityPropertyNamePropertyBindingMap(clz);
     }
 
+    @Override
+    public <T> List<EntityPropertyBinding> getPrimaryKeyPropertyBindings(Class<T> clz) {
+        return entityPropertiesMappingContext.getPrimaryKeyPropertyBindings(clz);
+    }
+
+    @Override
+    public <T> List<EntityIndex> getIndexes(Class<T> clz) {
+        return entityPropertiesMappingContext.getIndexes(clz);
+    }
+
 }
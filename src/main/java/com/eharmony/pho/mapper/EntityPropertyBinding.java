@@ -14,6 +14,8 @@ public class EntityPropertyBinding {
     private Type type;
     private String storeFieldName;
     private String nameFullPath;
+    // position within the primary key, -1 when the property is not part of it
+    private int primaryKeyPosition = -1;
 
     public String getName() {
         return name;
@@ -47,4 +49,16 @@ public class EntityPropertyBinding {
         this.nameFullPath = nameFullPath;
     }
 
+    public int getPrimaryKeyPosition() {
+        return primaryKeyPosition;
+    }
+
+    public void setPrimaryKeyPosition(int primaryKeyPosition) {
+        this.primaryKeyPosition = primaryKeyPosition;
+    }
+
+    public boolean isPrimaryKey() {
+        return primaryKeyPosition >= 0;
+    }
+
 }
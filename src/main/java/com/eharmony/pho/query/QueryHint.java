@@ -0,0 +1,105 @@
+package com.eharmony.pho.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+/**
+ * Optimizer hint of a select query. Index hints name the indexes of the queried entity table, the table name is added
+ * when the hint is translated.
+ */
+public final class QueryHint {
+
+    public enum Type {
+        INDEX, SKIP_SCAN, RANGE_SCAN, NO_CACHE, SMALL, SERIAL, USE_SORT_MERGE_JOIN
+    }
+
+    private final Type type;
+    private final List<String> indexNames;
+
+    private QueryHint(Type type, List<String> indexNames) {
+        this.type = type;
+        this.indexNames = indexNames;
+    }
+
+    /**
+     * @param indexNames
+     *            indexes of the entity table, in order of preference
+     * @return hint to use one of the indexes
+     */
+    public static QueryHint index(String... indexNames) {
+        Preconditions.checkArgument(indexNames.length > 0, "at least one index name is required");
+        return new QueryHint(Type.INDEX, Collections.unmodifiableList(Arrays.asList(indexNames.clone())));
+    }
+
+    /**
+     * @param type
+     *            hint type, use {@link #index(String...)} for index hints
+     * @return hint of the type
+     */
+    public static QueryHint of(Type type) {
+        Preconditions.checkArgument(type != Type.INDEX, "index hints need index names");
+        return new QueryHint(Preconditions.checkNotNull(type), Collections.<String> emptyList());
+    }
+
+    public static QueryHint skipScan() {
+        return of(Type.SKIP_SCAN);
+    }
+
+    public static QueryHint rangeScan() {
+        return of(Type.RANGE_SCAN);
+    }
+
+    public static QueryHint noCache() {
+        return of(Type.NO_CACHE);
+    }
+
+    public static QueryHint small() {
+        return of(Type.SMALL);
+    }
+
+    public static QueryHint serial() {
+        return of(Type.SERIAL);
+    }
+
+    public static QueryHint useSortMergeJoin() {
+        return of(Type.USE_SORT_MERGE_JOIN);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return index names of an index hint, empty for other hints
+     */
+    public List<String> getIndexNames() {
+        return indexNames;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + indexNames.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QueryHint)) {
+            return false;
+        }
+        QueryHint other = (QueryHint) obj;
+        return type == other.type && indexNames.equals(other.indexNames);
+    }
+
+    @Override
+    public String toString() {
+        return indexNames.isEmpty() ? type.name() : type.name() + "(" + Joiner.on(' ').join(indexNames) + ")";
+    }
+
+}
@@ -2,8 +2,10 @@ package com.eharmony.pho.query;
 
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
 import com.eharmony.pho.query.criterion.Criterion;
 import com.eharmony.pho.query.criterion.Orderings;
+import com.eharmony.pho.query.projection.Projection;
 
 /**
  * A generic, object oriented representation of a query
@@ -73,4 +75,40 @@ public interface QuerySelect<T, R> {
      */
     public String getQueryHint();
 
+    /**
+     * Get the optimizer hints of the query, rendered together with the raw query hint.
+     * 
+     * @return list of hints
+     */
+    public List<QueryHint> getQueryHints();
+
+    /**
+     * Get the projections of the query, aggregates and the properties they are grouped by. When empty the return
+     * fields are projected.
+     * 
+     * @return list of projections
+     */
+    public List<Projection> getProjections();
+
+    /**
+     * Get the names of the properties the results are grouped by.
+     * 
+     * @return list of property names
+     */
+    public List<String> getGroupBy();
+
+    /**
+     * Whether duplicate result rows are removed.
+     * 
+     * @return <code>true</code> for distinct results
+     */
+    public boolean isDistinct();
+
+    /**
+     * Get the deadline of the query, shared by the connection acquisition and every statement run for it.
+     * 
+     * @return the deadline, null when the query is only bounded by the configured statement timeout
+     */
+    public Deadline getDeadline();
+
 }
@@ -1,9 +1,12 @@
 package com.eharmony.pho.query;
 
+import java.util.Collections;
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
 import com.eharmony.pho.query.criterion.Criterion;
 import com.eharmony.pho.query.criterion.Orderings;
+import com.eharmony.pho.query.projection.Projection;
 
 /**
  * The default implementation of the generic Query interface
@@ -23,9 +26,36 @@ public class QuerySelectImpl<T, R> implements QuerySelect<T, R> {
     private final List<String> returnFields;
     private final QueryOperationType queryOperationType;
     private final String queryHint;
+    private final List<Projection> projections;
+    private final List<String> groupBy;
+    private final boolean distinct;
+    private final Deadline deadline;
+    private final List<QueryHint> queryHints;
 
     public QuerySelectImpl(Class<T> entityClass, Class<R> returnType, Criterion criteria, Orderings orderings,
             Integer maxResults, List<String> returnFields, QueryOperationType queryOperationType, String queryHint) {
+        this(entityClass, returnType, criteria, orderings, maxResults, returnFields, queryOperationType, queryHint,
+                Collections.<Projection> emptyList(), Collections.<String> emptyList(), false);
+    }
+
+    public QuerySelectImpl(Class<T> entityClass, Class<R> returnType, Criterion criteria, Orderings orderings,
+            Integer maxResults, List<String> returnFields, QueryOperationType queryOperationType, String queryHint,
+            List<Projection> projections, List<String> groupBy, boolean distinct) {
+        this(entityClass, returnType, criteria, orderings, maxResults, returnFields, queryOperationType, queryHint,
+                projections, groupBy, distinct, null);
+    }
+
+    public QuerySelectImpl(Class<T> entityClass, Class<R> returnType, Criterion criteria, Orderings orderings,
+            Integer maxResults, List<String> returnFields, QueryOperationType queryOperationType, String queryHint,
+            List<Projection> projections, List<String> groupBy, boolean distinct, Deadline deadline) {
+        this(entityClass, returnType, criteria, orderings, maxResults, returnFields, queryOperationType, queryHint,
+                projections, groupBy, distinct, deadline, Collections.<QueryHint> emptyList());
+    }
+
+    public QuerySelectImpl(Class<T> entityClass, Class<R> returnType, Criterion criteria, Orderings orderings,
+            Integer maxResults, List<String> returnFields, QueryOperationType queryOperationType, String queryHint,
+            List<Projection> projections, List<String> groupBy, boolean distinct, Deadline deadline,
+            List<QueryHint> queryHints) {
         this.entityClass = entityClass;
         this.returnType = returnType;
         this.criteria = criteria;
@@ -34,6 +64,11 @@ public class QuerySelectImpl<T, R> implements QuerySelect<T, R> {
         this.maxResults = maxResults;
         this.queryOperationType = queryOperationType;
         this.queryHint = queryHint;
+        this.projections = projections != null ? projections : Collections.<Projection> emptyList();
+        this.groupBy = groupBy != null ? groupBy : Collections.<String> emptyList();
+        this.distinct = distinct;
+        this.deadline = deadline;
+        this.queryHints = queryHints != null ? queryHints : Collections.<QueryHint> emptyList();
     }
 
     @Override
@@ -46,6 +81,11 @@ public class QuerySelectImpl<T, R> implements QuerySelect<T, R> {
         return queryHint;
     }
 
+    @Override
+    public List<QueryHint> getQueryHints() {
+        return queryHints;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -106,6 +146,26 @@ public class QuerySelectImpl<T, R> implements QuerySelect<T, R> {
         return maxResults;
     }
 
+    @Override
+    public List<Projection> getProjections() {
+        return projections;
+    }
+
+    @Override
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    @Override
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    @Override
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -114,6 +174,6 @@ public class QuerySelectImpl<T, R> implements QuerySelect<T, R> {
     @Override
     public String toString() {
         return "QueryImpl [entityClass=" + entityClass + ", criteria=" + criteria + ", orderings=" + orderings
-                + ", maxResults=" + maxResults + "]";
+                + ", maxResults=" + maxResults + ", projections=" + projections + ", groupBy=" + groupBy + "]";
     }
 }
@@ -2,6 +2,7 @@ package com.eharmony.pho.query;
 
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
 import com.eharmony.pho.query.criterion.Criterion;
 
 /**
@@ -40,4 +41,11 @@ public interface QueryUpdate<T> {
      */
     public T getEntity();
 
+    /**
+     * Get the deadline of the query, shared by the connection acquisition and every statement run for it.
+     * 
+     * @return the deadline, null when the query is only bounded by the configured statement timeout
+     */
+    public Deadline getDeadline();
+
 }
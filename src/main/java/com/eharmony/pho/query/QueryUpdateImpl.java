@@ -2,6 +2,7 @@ package com.eharmony.pho.query;
 
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
 import com.eharmony.pho.query.criterion.Criterion;
 
 /**
@@ -16,13 +17,20 @@ public class QueryUpdateImpl<T> implements QueryUpdate<T> {
     private Criterion criteria;
     private final List<String> selectedFields;
     private final QueryOperationType queryOperationType;
+    private final Deadline deadline;
 
     public QueryUpdateImpl(final T entity, Criterion criteria, List<String> selectedFields,
             QueryOperationType queryOperationType) {
+        this(entity, criteria, selectedFields, queryOperationType, null);
+    }
+
+    public QueryUpdateImpl(final T entity, Criterion criteria, List<String> selectedFields,
+            QueryOperationType queryOperationType, Deadline deadline) {
         this.entity = entity;
         this.criteria = criteria;
         this.selectedFields = selectedFields;
         this.queryOperationType = queryOperationType;
+        this.deadline = deadline;
     }
 
     @Override
@@ -50,4 +58,9 @@ public class QueryUpdateImpl<T> implements QueryUpdate<T> {
         return this.entity;
     }
 
+    @Override
+    public Deadline getDeadline() {
+        return this.deadline;
+    }
+
 }
@@ -5,6 +5,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.query.QueryHint;
 import com.eharmony.pho.query.QueryOperationType;
 import com.eharmony.pho.query.QuerySelect;
 import com.eharmony.pho.query.QuerySelectImpl;
@@ -12,6 +14,7 @@ import com.eharmony.pho.query.criterion.Criterion;
 import com.eharmony.pho.query.criterion.Ordering;
 import com.eharmony.pho.query.criterion.Orderings;
 import com.eharmony.pho.query.criterion.Restrictions;
+import com.eharmony.pho.query.projection.Projection;
 
 /**
  * Builder for Query objects
@@ -31,6 +34,11 @@ public class QueryBuilder<T, R> {
     private List<String> returnFields = Collections.emptyList();
     private QueryOperationType queryOperationType;
     private String queryHint;
+    private List<Projection> projections = new ArrayList<Projection>();
+    private List<String> groupBy = new ArrayList<String>();
+    private boolean distinct;
+    private Deadline deadline;
+    private List<QueryHint> queryHints = new ArrayList<QueryHint>();
 
     public QueryBuilder(Class<T> entityClass, Class<R> returnType) {
         this.entityClass = entityClass;
@@ -132,6 +140,55 @@ public class QueryBuilder<T, R> {
         return this;
     }
 
+    /**
+     * Add optimizer hints to the query
+     * @param hints the hints to add
+     * @return the builder
+     */
+    public QueryBuilder<T, R> addHint(QueryHint... hints) {
+        this.queryHints.addAll(Arrays.asList(hints));
+        return this;
+    }
+
+    /**
+     * Add projections, aggregates or group by keys, to the query. Projections replace the return fields.
+     * @param projections the projections to add
+     * @return the builder
+     */
+    public QueryBuilder<T, R> addProjection(Projection... projections) {
+        this.projections.addAll(Arrays.asList(projections));
+        return this;
+    }
+
+    /**
+     * Group the results by the given properties
+     * @param propertyNames the names of the properties to group by
+     * @return the builder
+     */
+    public QueryBuilder<T, R> groupBy(String... propertyNames) {
+        this.groupBy.addAll(Arrays.asList(propertyNames));
+        return this;
+    }
+
+    /**
+     * Remove duplicate result rows
+     * @return the builder
+     */
+    public QueryBuilder<T, R> distinct() {
+        this.distinct = true;
+        return this;
+    }
+
+    /**
+     * Bound the query, connection acquisition and every statement run for it, by the given deadline
+     * @param deadline the deadline of the query
+     * @return the builder
+     */
+    public QueryBuilder<T, R> deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     public QuerySelect<T, R> build() {
         // if criteria.size == 0, rootCriterion = null
         Criterion rootCriterion = null;
@@ -141,7 +198,8 @@ public class QueryBuilder<T, R> {
             rootCriterion = Restrictions.and(criteria.toArray(new Criterion[criteria.size()]));
         }
         return new QuerySelectImpl<T, R>(entityClass, returnType, rootCriterion, orderings, maxResults, returnFields,
-                queryOperationType, queryHint);
+                queryOperationType, queryHint, new ArrayList<Projection>(projections), new ArrayList<String>(groupBy),
+                distinct, deadline, new ArrayList<QueryHint>(queryHints));
     }
 
     @Override
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import com.eharmony.pho.api.Deadline;
 import com.eharmony.pho.query.QueryOperationType;
 import com.eharmony.pho.query.QueryUpdate;
 import com.eharmony.pho.query.QueryUpdateImpl;
@@ -23,6 +24,7 @@ public class QueryUpdateBuilder<T> {
     private List<Criterion> criteria = new ArrayList<Criterion>();
     private List<String> selectedFields = Collections.emptyList();
     private QueryOperationType queryOperationType = QueryOperationType.UPDATE;
+    private Deadline deadline;
 
     public QueryUpdateBuilder(final T entity) {
         this.entity = entity;
@@ -64,6 +66,18 @@ public class QueryUpdateBuilder<T> {
         return this;
     }
 
+    /**
+     * Bounds the update, connection acquisition included, by the given deadline.
+     * 
+     * @param deadline
+     *            Deadline
+     * @return the builder
+     */
+    public QueryUpdateBuilder<T> deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     public QueryUpdate<T> build() {
         // if criteria.size == 0, rootCriterion = null
         Criterion rootCriterion = null;
@@ -72,7 +86,7 @@ public class QueryUpdateBuilder<T> {
         } else if (criteria.size() > 1) {
             rootCriterion = Restrictions.and(criteria.toArray(new Criterion[criteria.size()]));
         }
-        return new QueryUpdateImpl<T>(entity, rootCriterion, selectedFields, queryOperationType);
+        return new QueryUpdateImpl<T>(entity, rootCriterion, selectedFields, queryOperationType, deadline);
     }
 
     @Override
@@ -4,4 +4,16 @@ package com.eharmony.pho.query.criterion;
  * Enclosing type for all Query criterion components
  */
 public interface Criterion {
+
+    /**
+     * Dispatches to the visit method of the visitor for this criterion type.
+     * 
+     * @param <R>
+     *            the result type
+     * @param visitor
+     *            CriterionVisitor
+     * @return the result of the visit
+     */
+    public <R> R accept(CriterionVisitor<R> visitor);
+
 }
@@ -0,0 +1,35 @@
+package com.eharmony.pho.query.criterion;
+
+import com.eharmony.pho.query.criterion.expression.EqualityExpression;
+import com.eharmony.pho.query.criterion.expression.NativeExpression;
+import com.eharmony.pho.query.criterion.expression.RangeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
+import com.eharmony.pho.query.criterion.expression.SetExpression;
+import com.eharmony.pho.query.criterion.expression.UnaryExpression;
+import com.eharmony.pho.query.criterion.junction.Junction;
+
+/**
+ * Visits the criterion types through {@link Criterion#accept(CriterionVisitor)}, so the criteria tree can be walked
+ * without instanceof checks. Junctions are visited as a whole, the visitor decides whether and in which order to visit
+ * their criteria.
+ * 
+ * @param <R>
+ *            the result type
+ */
+public interface CriterionVisitor<R> {
+
+    public R visit(EqualityExpression e);
+
+    public R visit(RangeExpression e);
+
+    public R visit(SetExpression e);
+
+    public R visit(UnaryExpression e);
+
+    public R visit(RowValueExpression e);
+
+    public R visit(NativeExpression e);
+
+    public R visit(Junction j);
+
+}
@@ -95,6 +95,14 @@ public class Ordering implements Criterion, WithProperty {
     
     }
 
+    /**
+     * Orderings are not restrictions, they are translated with the order of the query rather than visited.
+     */
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " type not supported.");
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
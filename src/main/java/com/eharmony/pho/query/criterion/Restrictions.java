@@ -1,10 +1,14 @@
 package com.eharmony.pho.query.criterion;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 import com.eharmony.pho.query.criterion.expression.EqualityExpression;
 import com.eharmony.pho.query.criterion.expression.NativeExpression;
 import com.eharmony.pho.query.criterion.expression.RangeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
 import com.eharmony.pho.query.criterion.expression.SetExpression;
 import com.eharmony.pho.query.criterion.expression.UnaryExpression;
 import com.eharmony.pho.query.criterion.junction.Conjunction;
@@ -195,6 +199,47 @@ public class Restrictions {
         return in(propertyName, values.toArray());
     }
 
+    /**
+     * Apply an "in" constraint to the row value of the named properties, e.g. a composite key lookup
+     * 
+     * @param propertyNames
+     *            String[]
+     * @param rows
+     *            Collection of value tuples, in property order
+     * @return Criterion
+     */
+    public static RowValueExpression in(String[] propertyNames, Collection<Object[]> rows) {
+        return new RowValueExpression(Operator.IN, Arrays.asList(propertyNames), new ArrayList<Object[]>(rows));
+    }
+
+    /**
+     * Apply a "greater than" constraint to the row value of the named properties, compared in property order
+     * 
+     * @param propertyNames
+     *            String[]
+     * @param values
+     *            Object[] in property order
+     * @return Criterion
+     */
+    public static RowValueExpression gt(String[] propertyNames, Object[] values) {
+        return new RowValueExpression(Operator.GREATER_THAN, Arrays.asList(propertyNames),
+                Collections.singletonList(values));
+    }
+
+    /**
+     * Apply a "less than" constraint to the row value of the named properties, compared in property order
+     * 
+     * @param propertyNames
+     *            String[]
+     * @param values
+     *            Object[] in property order
+     * @return Criterion
+     */
+    public static RowValueExpression lt(String[] propertyNames, Object[] values) {
+        return new RowValueExpression(Operator.LESS_THAN, Arrays.asList(propertyNames),
+                Collections.singletonList(values));
+    }
+
     /**
      * Apply a "not in" constraint to the named property
      * 
@@ -1,5 +1,6 @@
 package com.eharmony.pho.query.criterion.expression;
 
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 
 /**
@@ -19,6 +20,11 @@ public class EqualityExpression extends Expression {
         return value;
     }
     
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " " + value;
@@ -2,6 +2,7 @@
 package com.eharmony.pho.query.criterion.expression;
 
 import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 
 /**
  * A typed, native datastore query component.
@@ -24,6 +25,11 @@ public class NativeExpression implements Criterion {
         return expression;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return "NativeExpression [" + expression + "]";
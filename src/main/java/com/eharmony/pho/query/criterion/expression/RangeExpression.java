@@ -1,6 +1,7 @@
 
 package com.eharmony.pho.query.criterion.expression;
 
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 
 /**
@@ -26,6 +27,11 @@ public class RangeExpression extends Expression {
         return to;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " " + from + "," + to;
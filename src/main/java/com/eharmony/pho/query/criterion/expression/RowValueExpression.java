@@ -0,0 +1,100 @@
+package com.eharmony.pho.query.criterion.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.CriterionVisitor;
+import com.eharmony.pho.query.criterion.Operator;
+import com.eharmony.pho.query.criterion.WithOperator;
+import com.google.common.base.Joiner;
+
+/**
+ * Constraint on a row value constructor, a tuple of properties compared to a list of value tuples, e.g. a composite key
+ * lookup <code>(a, b) IN ((1, 2), (3, 4))</code>.
+ */
+public class RowValueExpression implements Criterion, WithOperator {
+
+    private final Operator operator;
+    private final List<String> propertyNames;
+    private final List<Object[]> rows;
+
+    public RowValueExpression(Operator operator, List<String> propertyNames, List<Object[]> rows) {
+        this.operator = operator;
+        this.propertyNames = Collections.unmodifiableList(new ArrayList<String>(propertyNames));
+        for (Object[] row : rows) {
+            if (row.length != propertyNames.size()) {
+                throw new IllegalArgumentException("row " + Arrays.toString(row) + " does not match properties "
+                        + propertyNames);
+            }
+        }
+        this.rows = Collections.unmodifiableList(new ArrayList<Object[]>(rows));
+    }
+
+    @Override
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public List<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('(').append(Joiner.on(',').join(propertyNames)).append(") ").append(operator).append(" [");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('(').append(Joiner.on(',').useForNull("null").join(rows.get(i))).append(')');
+        }
+        return builder.append(']').toString();
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((operator == null) ? 0 : operator.hashCode());
+        result = prime * result + propertyNames.hashCode();
+        for (Object[] row : rows) {
+            result = prime * result + Arrays.hashCode(row);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        RowValueExpression other = (RowValueExpression) obj;
+        if (operator != other.operator)
+            return false;
+        if (!propertyNames.equals(other.propertyNames))
+            return false;
+        if (rows.size() != other.rows.size())
+            return false;
+        for (int i = 0; i < rows.size(); i++) {
+            if (!Arrays.equals(rows.get(i), other.rows.get(i)))
+                return false;
+        }
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package com.eharmony.pho.query.criterion.expression;
 
 import java.util.Arrays;
 
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 import com.google.common.base.Joiner;
 
@@ -23,6 +24,11 @@ public class SetExpression extends Expression {
         return values;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " ["
@@ -1,5 +1,6 @@
 package com.eharmony.pho.query.criterion.expression;
 
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 
 /**
@@ -11,6 +12,11 @@ public class UnaryExpression extends Expression {
         super(operator, propertyName);
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator();
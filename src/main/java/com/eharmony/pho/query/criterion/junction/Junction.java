@@ -1,9 +1,11 @@
 package com.eharmony.pho.query.criterion.junction;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 import com.eharmony.pho.query.criterion.WithOperator;
 import com.google.common.base.Joiner;
@@ -14,6 +16,8 @@ import com.google.common.base.Joiner;
 public abstract class Junction implements Criterion, WithOperator {
 
     private final List<Criterion> criteria = new ArrayList<Criterion>();
+    // read only view handed out to the translators, walked once per translation
+    private final List<Criterion> criteriaView = Collections.unmodifiableList(criteria);
     private final Operator operator;
 
     protected Junction(Operator operator) {
@@ -39,9 +43,16 @@ public abstract class Junction implements Criterion, WithOperator {
         return operator;
     }
 
+    /**
+     * @return read only view of the criteria, reflecting criteria added later
+     */
     public List<Criterion> getCriteria() {
-        // TODO : immutable list?
-        return new ArrayList<Criterion>(criteria);
+        return criteriaView;
+    }
+
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 
     @Override
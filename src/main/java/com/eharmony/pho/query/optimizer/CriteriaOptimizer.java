@@ -0,0 +1,99 @@
+package com.eharmony.pho.query.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.junction.Junction;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Rewrites criteria trees into equivalent, simpler trees before they are translated. The rules are applied bottom up
+ * to every node of the tree, in order, and the passes are repeated until the tree stops changing. The given tree is
+ * left untouched, rewritten junctions are new instances.
+ *
+ * Rewrites are logged at debug level with the original and the rewritten tree.
+ */
+public class CriteriaOptimizer {
+
+    public static final int MAX_PASSES = 8;
+
+    private static final Logger logger = LoggerFactory.getLogger(CriteriaOptimizer.class);
+
+    private volatile List<CriteriaRule> rules;
+
+    /**
+     * Optimizer with the {@link CriteriaRules#defaultRules()}.
+     */
+    public CriteriaOptimizer() {
+        this(CriteriaRules.defaultRules());
+    }
+
+    public CriteriaOptimizer(List<CriteriaRule> rules) {
+        setRules(rules);
+    }
+
+    /**
+     * @param rules
+     *            the rules applied to every node of the criteria, in order
+     */
+    public void setRules(List<CriteriaRule> rules) {
+        this.rules = ImmutableList.copyOf(rules);
+    }
+
+    public List<CriteriaRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @param criterion
+     *            root of the criteria, may be null
+     * @return the rewritten criteria, or the given criteria if no rule applied
+     */
+    public Criterion optimize(Criterion criterion) {
+        if (criterion == null) {
+            return null;
+        }
+        List<CriteriaRule> passRules = rules;
+        Criterion optimized = criterion;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            Criterion rewritten = rewrite(optimized, passRules);
+            if (rewritten == optimized) {
+                break;
+            }
+            optimized = rewritten;
+        }
+        if (optimized != criterion) {
+            logger.debug("Rewrote criteria {} to {}", criterion, optimized);
+        }
+        return optimized;
+    }
+
+    private Criterion rewrite(Criterion criterion, List<CriteriaRule> passRules) {
+        if (criterion instanceof Junction) {
+            Junction junction = (Junction) criterion;
+            List<Criterion> criteria = junction.getCriteria();
+            List<Criterion> rewritten = null;
+            for (int i = 0; i < criteria.size(); i++) {
+                Criterion child = rewrite(criteria.get(i), passRules);
+                if (child != criteria.get(i) && rewritten == null) {
+                    rewritten = new ArrayList<Criterion>(criteria.subList(0, i));
+                }
+                if (rewritten != null) {
+                    rewritten.add(child);
+                }
+            }
+            if (rewritten != null) {
+                criterion = CriteriaRules.junction(junction.getOperator(), rewritten);
+            }
+        }
+        for (CriteriaRule rule : passRules) {
+            criterion = rule.apply(criterion);
+        }
+        return criterion;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.eharmony.pho.query.optimizer;
+
+import com.eharmony.pho.query.criterion.Criterion;
+
+/**
+ * A rewrite of a criteria tree node into an equivalent criterion. The {@link CriteriaOptimizer} applies the rules
+ * bottom up, the criteria of a junction are rewritten before the junction itself.
+ *
+ * Rules must not modify the criterion they are given, and must return that same instance when they do not apply so
+ * the optimizer can tell when the tree stops changing.
+ */
+public interface CriteriaRule {
+
+    /**
+     * @param criterion
+     *            the criterion to rewrite
+     * @return the rewritten criterion, or the given criterion if the rule does not apply
+     */
+    public Criterion apply(Criterion criterion);
+
+}
@@ -0,0 +1,398 @@
+package com.eharmony.pho.query.optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.Operator;
+import com.eharmony.pho.query.criterion.Restrictions;
+import com.eharmony.pho.query.criterion.expression.EqualityExpression;
+import com.eharmony.pho.query.criterion.expression.RangeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
+import com.eharmony.pho.query.criterion.expression.SetExpression;
+import com.eharmony.pho.query.criterion.expression.UnaryExpression;
+import com.eharmony.pho.query.criterion.junction.Conjunction;
+import com.eharmony.pho.query.criterion.junction.Disjunction;
+import com.eharmony.pho.query.criterion.junction.Junction;
+
+/**
+ * The rules of the default {@link CriteriaOptimizer}.
+ *
+ * Constant predicates are represented by empty junctions: an empty conjunction always holds and an empty disjunction
+ * never does. Predicates are compared with SQL semantics, <code>a = 1 OR a != 1</code> is not a tautology since it
+ * does not hold for null values of <code>a</code>.
+ */
+public final class CriteriaRules {
+
+    private CriteriaRules() {
+    }
+
+    /**
+     * @return flattenJunctions, removeDuplicates, foldConstants, mergeRanges and collapseEqualsToIn
+     */
+    public static List<CriteriaRule> defaultRules() {
+        return Arrays.asList(flattenJunctions(), removeDuplicates(), foldConstants(), mergeRanges(),
+                collapseEqualsToIn());
+    }
+
+    /**
+     * @return a criterion that always holds, an empty conjunction
+     */
+    public static Criterion alwaysTrue() {
+        return new Conjunction();
+    }
+
+    /**
+     * @return a criterion that never holds, an empty disjunction
+     */
+    public static Criterion alwaysFalse() {
+        return new Disjunction();
+    }
+
+    public static boolean isAlwaysTrue(Criterion criterion) {
+        return isEmptyJunction(criterion, Operator.AND);
+    }
+
+    public static boolean isAlwaysFalse(Criterion criterion) {
+        return isEmptyJunction(criterion, Operator.OR);
+    }
+
+    private static boolean isEmptyJunction(Criterion criterion, Operator operator) {
+        return criterion instanceof Junction && ((Junction) criterion).getOperator() == operator
+                && ((Junction) criterion).getCriteria().isEmpty();
+    }
+
+    /**
+     * Inlines the criteria of nested junctions of the same operator, <code>(a AND (b AND c))</code> becomes
+     * <code>(a AND b AND c)</code>, and replaces junctions of a single criterion with that criterion.
+     *
+     * @return CriteriaRule
+     */
+    public static CriteriaRule flattenJunctions() {
+        return FLATTEN_JUNCTIONS;
+    }
+
+    /**
+     * Drops the criteria of a junction equal to a previous criterion of the junction.
+     *
+     * @return CriteriaRule
+     */
+    public static CriteriaRule removeDuplicates() {
+        return REMOVE_DUPLICATES;
+    }
+
+    /**
+     * Folds the predicates known to always or never hold: empty IN lists, empty or inverted BETWEEN ranges, a property
+     * both null and not null, a property equal to two different values. Constants are then folded into their
+     * junctions, a conjunction with a false criterion is false and a disjunction with a true criterion is true.
+     *
+     * @return CriteriaRule
+     */
+    public static CriteriaRule foldConstants() {
+        return FOLD_CONSTANTS;
+    }
+
+    /**
+     * Merges a single <code>a &gt;= x</code> and a single <code>a &lt;= y</code> of a conjunction into
+     * <code>a BETWEEN x AND y</code>, for comparable bounds of the same type.
+     *
+     * @return CriteriaRule
+     */
+    public static CriteriaRule mergeRanges() {
+        return MERGE_RANGES;
+    }
+
+    /**
+     * Collapses the equalities and IN lists on the same property of a disjunction into one IN list,
+     * <code>a = 1 OR a = 2</code> becomes <code>a IN (1, 2)</code>.
+     *
+     * @return CriteriaRule
+     */
+    public static CriteriaRule collapseEqualsToIn() {
+        return COLLAPSE_EQUALS_TO_IN;
+    }
+
+    /**
+     * @param operator
+     *            AND or OR
+     * @param criteria
+     *            the criteria of the junction
+     * @return a new conjunction or disjunction of the criteria
+     */
+    public static Junction junction(Operator operator, List<Criterion> criteria) {
+        Junction junction;
+        if (operator == Operator.AND) {
+            junction = new Conjunction();
+        } else if (operator == Operator.OR) {
+            junction = new Disjunction();
+        } else {
+            throw new IllegalArgumentException(operator + " is not a junction operator");
+        }
+        for (Criterion criterion : criteria) {
+            junction.add(criterion);
+        }
+        return junction;
+    }
+
+    private static final CriteriaRule FLATTEN_JUNCTIONS = new CriteriaRule() {
+        @Override
+        public Criterion apply(Criterion criterion) {
+            if (!(criterion instanceof Junction)) {
+                return criterion;
+            }
+            Junction junction = (Junction) criterion;
+            List<Criterion> criteria = junction.getCriteria();
+            if (criteria.size() == 1) {
+                return criteria.get(0);
+            }
+            List<Criterion> flattened = null;
+            for (int i = 0; i < criteria.size(); i++) {
+                Criterion child = criteria.get(i);
+                boolean nested = child instanceof Junction && ((Junction) child).getOperator() == junction.getOperator();
+                if (nested && flattened == null) {
+                    flattened = new ArrayList<Criterion>(criteria.subList(0, i));
+                }
+                if (nested) {
+                    flattened.addAll(((Junction) child).getCriteria());
+                } else if (flattened != null) {
+                    flattened.add(child);
+                }
+            }
+            return flattened != null ? junction(junction.getOperator(), flattened) : criterion;
+        }
+
+        @Override
+        public String toString() {
+            return "flattenJunctions";
+        }
+    };
+
+    private static final CriteriaRule REMOVE_DUPLICATES = new CriteriaRule() {
+        @Override
+        public Criterion apply(Criterion criterion) {
+            if (!(criterion instanceof Junction)) {
+                return criterion;
+            }
+            Junction junction = (Junction) criterion;
+            Set<Criterion> distinct = new LinkedHashSet<Criterion>(junction.getCriteria());
+            if (distinct.size() == junction.getCriteria().size()) {
+                return criterion;
+            }
+            return junction(junction.getOperator(), new ArrayList<Criterion>(distinct));
+        }
+
+        @Override
+        public String toString() {
+            return "removeDuplicates";
+        }
+    };
+
+    private static final CriteriaRule FOLD_CONSTANTS = new CriteriaRule() {
+        @Override
+        public Criterion apply(Criterion criterion) {
+            if (criterion instanceof Junction) {
+                return fold((Junction) criterion);
+            } else if (criterion instanceof SetExpression) {
+                SetExpression expression = (SetExpression) criterion;
+                if (expression.getValues().length == 0) {
+                    return expression.getOperator() == Operator.IN ? alwaysFalse() : alwaysTrue();
+                }
+            } else if (criterion instanceof RowValueExpression) {
+                RowValueExpression expression = (RowValueExpression) criterion;
+                if (expression.getOperator() == Operator.IN && expression.getRows().isEmpty()) {
+                    return alwaysFalse();
+                }
+            } else if (criterion instanceof RangeExpression) {
+                RangeExpression expression = (RangeExpression) criterion;
+                Integer order = compare(expression.getFrom(), expression.getTo());
+                if (order != null && order > 0) {
+                    return alwaysFalse();
+                }
+            }
+            return criterion;
+        }
+
+        private Criterion fold(Junction junction) {
+            boolean conjunction = junction.getOperator() == Operator.AND;
+            List<Criterion> criteria = junction.getCriteria();
+            List<Criterion> remaining = new ArrayList<Criterion>(criteria.size());
+            Set<String> nullProperties = new LinkedHashSet<String>();
+            Set<String> notNullProperties = new LinkedHashSet<String>();
+            Map<String, Object> equalValues = new HashMap<String, Object>();
+            for (Criterion child : criteria) {
+                if (conjunction ? isAlwaysFalse(child) : isAlwaysTrue(child)) {
+                    return child;
+                }
+                if (conjunction ? isAlwaysTrue(child) : isAlwaysFalse(child)) {
+                    continue;
+                }
+                remaining.add(child);
+                if (child instanceof UnaryExpression) {
+                    UnaryExpression expression = (UnaryExpression) child;
+                    if (expression.getOperator() == Operator.NULL) {
+                        nullProperties.add(expression.getPropertyName());
+                    } else if (expression.getOperator() == Operator.NOT_NULL) {
+                        notNullProperties.add(expression.getPropertyName());
+                    }
+                } else if (conjunction && child instanceof EqualityExpression) {
+                    EqualityExpression expression = (EqualityExpression) child;
+                    Object value = expression.getValue();
+                    if (expression.getOperator() == Operator.EQUAL && value != null) {
+                        // equals is not sql equality (BigDecimal scale, arrays), only ordered values are compared
+                        Integer order = compare(equalValues.put(expression.getPropertyName(), value), value);
+                        if (order != null && order != 0) {
+                            return alwaysFalse();
+                        }
+                    }
+                }
+            }
+            if (!Collections.disjoint(nullProperties, notNullProperties)) {
+                return conjunction ? alwaysFalse() : alwaysTrue();
+            }
+            return remaining.size() == criteria.size() ? junction : junction(junction.getOperator(), remaining);
+        }
+
+        @Override
+        public String toString() {
+            return "foldConstants";
+        }
+    };
+
+    private static final CriteriaRule MERGE_RANGES = new CriteriaRule() {
+        @Override
+        public Criterion apply(Criterion criterion) {
+            if (!(criterion instanceof Junction) || ((Junction) criterion).getOperator() != Operator.AND) {
+                return criterion;
+            }
+            List<Criterion> criteria = ((Junction) criterion).getCriteria();
+            Map<String, List<EqualityExpression>> lowerBounds = bounds(criteria, Operator.GREATER_THAN_OR_EQUAL);
+            Map<String, List<EqualityExpression>> upperBounds = bounds(criteria, Operator.LESS_THAN_OR_EQUAL);
+            List<Criterion> merged = null;
+            for (Map.Entry<String, List<EqualityExpression>> entry : lowerBounds.entrySet()) {
+                List<EqualityExpression> upper = upperBounds.get(entry.getKey());
+                if (entry.getValue().size() != 1 || upper == null || upper.size() != 1) {
+                    continue;
+                }
+                EqualityExpression from = entry.getValue().get(0);
+                EqualityExpression to = upper.get(0);
+                if (compare(from.getValue(), to.getValue()) == null) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = new ArrayList<Criterion>(criteria);
+                }
+                int index = Math.min(merged.indexOf(from), merged.indexOf(to));
+                merged.remove(from);
+                merged.remove(to);
+                merged.add(index, Restrictions.between(entry.getKey(), from.getValue(), to.getValue()));
+            }
+            return merged != null ? junction(Operator.AND, merged) : criterion;
+        }
+
+        private Map<String, List<EqualityExpression>> bounds(List<Criterion> criteria, Operator operator) {
+            Map<String, List<EqualityExpression>> bounds = new LinkedHashMap<String, List<EqualityExpression>>();
+            for (Criterion child : criteria) {
+                if (child instanceof EqualityExpression && ((EqualityExpression) child).getOperator() == operator) {
+                    EqualityExpression expression = (EqualityExpression) child;
+                    List<EqualityExpression> expressions = bounds.get(expression.getPropertyName());
+                    if (expressions == null) {
+                        expressions = new ArrayList<EqualityExpression>(1);
+                        bounds.put(expression.getPropertyName(), expressions);
+                    }
+                    expressions.add(expression);
+                }
+            }
+            return bounds;
+        }
+
+        @Override
+        public String toString() {
+            return "mergeRanges";
+        }
+    };
+
+    private static final CriteriaRule COLLAPSE_EQUALS_TO_IN = new CriteriaRule() {
+        @Override
+        public Criterion apply(Criterion criterion) {
+            if (!(criterion instanceof Junction) || ((Junction) criterion).getOperator() != Operator.OR) {
+                return criterion;
+            }
+            List<Criterion> criteria = ((Junction) criterion).getCriteria();
+            Map<String, List<Criterion>> memberships = new LinkedHashMap<String, List<Criterion>>();
+            for (Criterion child : criteria) {
+                String propertyName = membershipProperty(child);
+                if (propertyName != null) {
+                    List<Criterion> members = memberships.get(propertyName);
+                    if (members == null) {
+                        members = new ArrayList<Criterion>(2);
+                        memberships.put(propertyName, members);
+                    }
+                    members.add(child);
+                }
+            }
+            List<Criterion> collapsed = null;
+            for (Map.Entry<String, List<Criterion>> entry : memberships.entrySet()) {
+                List<Criterion> members = entry.getValue();
+                if (members.size() < 2) {
+                    continue;
+                }
+                Set<Object> values = new LinkedHashSet<Object>();
+                for (Criterion member : members) {
+                    if (member instanceof SetExpression) {
+                        values.addAll(Arrays.asList(((SetExpression) member).getValues()));
+                    } else {
+                        values.add(((EqualityExpression) member).getValue());
+                    }
+                }
+                if (collapsed == null) {
+                    collapsed = new ArrayList<Criterion>(criteria);
+                }
+                int index = collapsed.indexOf(members.get(0));
+                collapsed.removeAll(members);
+                collapsed.add(index, Restrictions.in(entry.getKey(), values.toArray()));
+            }
+            return collapsed != null ? junction(Operator.OR, collapsed) : criterion;
+        }
+
+        /*
+         * The property of a non null equality or of an IN list without null values, null otherwise.
+         */
+        private String membershipProperty(Criterion criterion) {
+            if (criterion instanceof EqualityExpression) {
+                EqualityExpression expression = (EqualityExpression) criterion;
+                return expression.getOperator() == Operator.EQUAL && expression.getValue() != null ? expression
+                        .getPropertyName() : null;
+            }
+            if (criterion instanceof SetExpression) {
+                SetExpression expression = (SetExpression) criterion;
+                return expression.getOperator() == Operator.IN && !Arrays.asList(expression.getValues()).contains(null)
+                        ? expression.getPropertyName() : null;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "collapseEqualsToIn";
+        }
+    };
+
+    /*
+     * Compares values of the same comparable type, returns null for values that can not be compared.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Integer compare(Object from, Object to) {
+        if (from == null || to == null || from.getClass() != to.getClass() || !(from instanceof Comparable)) {
+            return null;
+        }
+        return ((Comparable) from).compareTo(to);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.eharmony.pho.query.projection;
+
+import com.eharmony.pho.query.criterion.Symbolic;
+
+/**
+ * Aggregate functions computed by the store over the rows matching a query, or over each group of them.
+ */
+public enum AggregateFunction implements Symbolic {
+    COUNT("COUNT"), SUM("SUM"), MIN("MIN"), MAX("MAX"), AVG("AVG");
+
+    private final String symbol;
+
+    private AggregateFunction(String symbol) {
+        this.symbol = symbol;
+    }
+
+    @Override
+    public String symbol() {
+        return symbol;
+    }
+
+    @Override
+    public String toString() {
+        return symbol();
+    }
+}
@@ -0,0 +1,113 @@
+package com.eharmony.pho.query.projection;
+
+/**
+ * A column of the query results: a property, or an aggregate function applied to a property, optionally aliased. The
+ * alias names the result property the value is mapped to.
+ */
+public class Projection {
+
+    private final AggregateFunction function;
+    private final String propertyName;
+    private final boolean distinct;
+    private final String alias;
+
+    public Projection(AggregateFunction function, String propertyName, boolean distinct, String alias) {
+        if (function == null && propertyName == null) {
+            throw new IllegalArgumentException("a property projection requires a property name");
+        }
+        this.function = function;
+        this.propertyName = propertyName;
+        this.distinct = distinct;
+        this.alias = alias;
+    }
+
+    /**
+     * @param alias
+     *            name of the result property the value is mapped to
+     * @return a copy of this projection with the given alias
+     */
+    public Projection as(String alias) {
+        return new Projection(function, propertyName, distinct, alias);
+    }
+
+    /**
+     * @return the aggregate function, null for a plain property projection
+     */
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the property name, null for <code>COUNT(*)</code>
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public boolean isAggregate() {
+        return function != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (function != null) {
+            builder.append(function).append('(');
+            if (distinct) {
+                builder.append("DISTINCT ");
+            }
+            builder.append(propertyName != null ? propertyName : "*").append(')');
+        } else {
+            builder.append(propertyName);
+        }
+        if (alias != null) {
+            builder.append(" AS ").append(alias);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((alias == null) ? 0 : alias.hashCode());
+        result = prime * result + (distinct ? 1231 : 1237);
+        result = prime * result + ((function == null) ? 0 : function.hashCode());
+        result = prime * result + ((propertyName == null) ? 0 : propertyName.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Projection other = (Projection) obj;
+        if (alias == null) {
+            if (other.alias != null)
+                return false;
+        } else if (!alias.equals(other.alias))
+            return false;
+        if (distinct != other.distinct)
+            return false;
+        if (function != other.function)
+            return false;
+        if (propertyName == null) {
+            if (other.propertyName != null)
+                return false;
+        } else if (!propertyName.equals(other.propertyName))
+            return false;
+        return true;
+    }
+}
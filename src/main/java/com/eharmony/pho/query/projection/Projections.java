@@ -0,0 +1,96 @@
+package com.eharmony.pho.query.projection;
+
+/**
+ * Projection builder, in the style of {@link com.eharmony.pho.query.criterion.Restrictions}
+ */
+public class Projections {
+
+    private Projections() {
+    }
+
+    /**
+     * Project the named property, typically a group by key
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection property(String propertyName) {
+        return new Projection(null, propertyName, false, null);
+    }
+
+    /**
+     * Count the matching rows
+     * 
+     * @return Projection
+     */
+    public static Projection count() {
+        return new Projection(AggregateFunction.COUNT, null, false, null);
+    }
+
+    /**
+     * Count the non null values of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection count(String propertyName) {
+        return new Projection(AggregateFunction.COUNT, propertyName, false, null);
+    }
+
+    /**
+     * Count the distinct values of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection countDistinct(String propertyName) {
+        return new Projection(AggregateFunction.COUNT, propertyName, true, null);
+    }
+
+    /**
+     * Sum the values of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection sum(String propertyName) {
+        return new Projection(AggregateFunction.SUM, propertyName, false, null);
+    }
+
+    /**
+     * Minimum value of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection min(String propertyName) {
+        return new Projection(AggregateFunction.MIN, propertyName, false, null);
+    }
+
+    /**
+     * Maximum value of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection max(String propertyName) {
+        return new Projection(AggregateFunction.MAX, propertyName, false, null);
+    }
+
+    /**
+     * Average value of the named property
+     * 
+     * @param propertyName
+     *            String
+     * @return Projection
+     */
+    public static Projection avg(String propertyName) {
+        return new Projection(AggregateFunction.AVG, propertyName, false, null);
+    }
+}
@@ -6,17 +6,20 @@ import java.util.List;
 
 import com.eharmony.pho.query.QuerySelect;
 import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.CriterionVisitor;
 import com.eharmony.pho.query.criterion.Operator;
 import com.eharmony.pho.query.criterion.Ordering;
 import com.eharmony.pho.query.criterion.expression.EqualityExpression;
 import com.eharmony.pho.query.criterion.expression.Expression;
 import com.eharmony.pho.query.criterion.expression.NativeExpression;
 import com.eharmony.pho.query.criterion.expression.RangeExpression;
+import com.eharmony.pho.query.criterion.expression.RowValueExpression;
 import com.eharmony.pho.query.criterion.expression.SetExpression;
 import com.eharmony.pho.query.criterion.expression.UnaryExpression;
 import com.eharmony.pho.query.criterion.junction.Conjunction;
 import com.eharmony.pho.query.criterion.junction.Disjunction;
 import com.eharmony.pho.query.criterion.junction.Junction;
+import com.eharmony.pho.query.optimizer.CriteriaOptimizer;
 
 /**
  * Abstract Query Translation. Convert a generic Query with nested criteria to a datastore specific query. Extend to
@@ -34,6 +37,7 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
     private final Class<Q> queryClass;
     private final Class<O> orderClass;
     private final PropertyResolver propertyResolver;
+    private CriteriaOptimizer criteriaOptimizer = new CriteriaOptimizer();
 
     public AbstractQueryTranslator(Class<Q> queryClass, Class<O> orderClass, PropertyResolver propertyResolver) {
         this.queryClass = queryClass;
@@ -53,6 +57,30 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
         return propertyResolver;
     }
 
+    /**
+     * Sets the optimizer rewriting the criteria before they are translated, null to translate them as built.
+     * 
+     * @param criteriaOptimizer
+     *            CriteriaOptimizer
+     */
+    public void setCriteriaOptimizer(CriteriaOptimizer criteriaOptimizer) {
+        this.criteriaOptimizer = criteriaOptimizer;
+    }
+
+    public CriteriaOptimizer getCriteriaOptimizer() {
+        return criteriaOptimizer;
+    }
+
+    /**
+     * @param criterion
+     *            root of the criteria, may be null
+     * @return the criteria rewritten by the criteria optimizer
+     */
+    protected Criterion optimize(Criterion criterion) {
+        CriteriaOptimizer optimizer = criteriaOptimizer;
+        return optimizer != null ? optimizer.optimize(criterion) : criterion;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -61,53 +89,43 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
      */
     @Override
     public <T, R> Q translate(QuerySelect<T, R> query) {
-        Criterion rootCriterion = query.getCriteria();
+        Criterion rootCriterion = optimize(query.getCriteria());
         Class<T> entityClass = query.getEntityClass();
         return translate(rootCriterion, entityClass);
     }
 
     /*
-     * Notes regarding the abundance of instanceof checks:
-     * 
-     * A case for considering it the lesser of evils: https://sites.google.com/site/steveyegge2/when-polymorphism-fails
-     * 
-     * If we were using Scala, we could create datastore specific Traits that would allow us to extend the Generic Query
-     * and allow it produce a datastore specific query.
-     * 
-     * There's also a strong case for the visitor pattern. The downsides are needlessly exposing the underlying
-     * Criterion types to the various implementations and a significant increase in the number of classes needed for
-     * implementations.
-     * 
-     * If this becomes a maintainability or performance issue then we should look at replacing the current approach with
-     * something like the visitor pattern.
+     * Criteria are dispatched by double dispatch through Criterion#accept, the visitor hands each criterion type to its
+     * translate method below. Datastores that can render the whole tree into one buffer may override this method with
+     * a visitor of their own.
      */
     protected <T> Q translate(Criterion c, Class<T> entityClass) {
-        // a Criterion can be an Expression or a Junction
-        if (c instanceof Expression) {
-            return translate((Expression) c, entityClass);
-        } else if (c instanceof Junction) {
-            return translate((Junction) c, entityClass);
-        } else if (c instanceof NativeExpression) {
-            return translate((NativeExpression) c, entityClass);
-        } else {
-            throw unsupported(c.getClass());
-        }
+        return c.accept(new TranslatingVisitor<T>(entityClass));
     }
 
     protected abstract <T> Q translate(NativeExpression e, Class<T> entityClass);
 
     protected <T> Q translate(Expression e, Class<T> entityClass) {
-        String fieldName = propertyResolver.resolve(e.getPropertyName(), entityClass);
-        if (e instanceof EqualityExpression) {
-            return translate((EqualityExpression) e, fieldName);
-        } else if (e instanceof RangeExpression) {
-            return translate((RangeExpression) e, fieldName);
-        } else if (e instanceof SetExpression) {
-            return translate((SetExpression) e, fieldName);
-        } else if (e instanceof UnaryExpression) {
-            return translate((UnaryExpression) e, fieldName);
-        }  else {
-            throw unsupported(e.getClass());
+        return translate((Criterion) e, entityClass);
+    }
+
+    protected <T> Q translate(RowValueExpression e, Class<T> entityClass) {
+        List<String> propertyNames = e.getPropertyNames();
+        String[] fieldNames = new String[propertyNames.size()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = propertyResolver.resolve(propertyNames.get(i), entityClass);
+        }
+        Operator operator = e.getOperator();
+
+        switch (operator) {
+        case IN:
+            return in(fieldNames, e.getRows());
+        case GREATER_THAN:
+            return gt(fieldNames, e.getRows().get(0));
+        case LESS_THAN:
+            return lt(fieldNames, e.getRows().get(0));
+        default:
+            throw unsupported(operator, RowValueExpression.class);
         }
     }
 
@@ -215,6 +233,53 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
         }
     }
 
+    /**
+     * Hands each criterion type to its translate method, resolving the property names against the entity class.
+     */
+    private class TranslatingVisitor<T> implements CriterionVisitor<Q> {
+
+        private final Class<T> entityClass;
+
+        private TranslatingVisitor(Class<T> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        @Override
+        public Q visit(EqualityExpression e) {
+            return translate(e, propertyResolver.resolve(e.getPropertyName(), entityClass));
+        }
+
+        @Override
+        public Q visit(RangeExpression e) {
+            return translate(e, propertyResolver.resolve(e.getPropertyName(), entityClass));
+        }
+
+        @Override
+        public Q visit(SetExpression e) {
+            return translate(e, propertyResolver.resolve(e.getPropertyName(), entityClass));
+        }
+
+        @Override
+        public Q visit(UnaryExpression e) {
+            return translate(e, propertyResolver.resolve(e.getPropertyName(), entityClass));
+        }
+
+        @Override
+        public Q visit(RowValueExpression e) {
+            return translate(e, entityClass);
+        }
+
+        @Override
+        public Q visit(NativeExpression e) {
+            return translate(e, entityClass);
+        }
+
+        @Override
+        public Q visit(Junction j) {
+            return translate(j, entityClass);
+        }
+    }
+
     @Override
     public <T, R> O translateOrder(QuerySelect<T, R> query) {
         List<Ordering> orderingList = query.getOrder().get();
@@ -232,7 +297,7 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
         throw new UnsupportedOperationException(type.getSimpleName() + " type not supported.");
     }
 
-    protected UnsupportedOperationException unsupported(Operator operator, Class<? extends Expression> expressionType) {
+    protected UnsupportedOperationException unsupported(Operator operator, Class<? extends Criterion> expressionType) {
         throw new UnsupportedOperationException(operator + " not supported for " + expressionType.getSimpleName());
     }
 
@@ -342,6 +407,39 @@ public abstract class AbstractQueryTranslator<Q, O, P> implements QueryTranslato
      */
     public abstract Q notIn(String fieldName, Object[] values);
 
+    /**
+     * Translate a row value constructor "in" expression
+     * 
+     * @param fieldNames
+     *            the resolved field names
+     * @param rows
+     *            the reference value tuples, in field order
+     * @return Q
+     */
+    public abstract Q in(String[] fieldNames, List<Object[]> rows);
+
+    /**
+     * Translate a row value constructor "greater than" expression, comparing the fields in order
+     * 
+     * @param fieldNames
+     *            the resolved field names
+     * @param values
+     *            the reference values, in field order
+     * @return Q
+     */
+    public abstract Q gt(String[] fieldNames, Object[] values);
+
+    /**
+     * Translate a row value constructor "less than" expression, comparing the fields in order
+     * 
+     * @param fieldNames
+     *            the resolved field names
+     * @param values
+     *            the reference values, in field order
+     * @return Q
+     */
+    public abstract Q lt(String[] fieldNames, Object[] values);
+
     /**
      * Translate a "contains" expression
      * 
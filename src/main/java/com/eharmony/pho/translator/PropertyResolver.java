@@ -3,6 +3,7 @@ package com.eharmony.pho.translator;
 import java.util.List;
 import java.util.Map;
 
+import com.eharmony.pho.mapper.EntityIndex;
 import com.eharmony.pho.mapper.EntityPropertyBinding;
 
 /**
@@ -24,4 +25,8 @@ public interface PropertyResolver {
 
     public <T> Map<String, EntityPropertyBinding> getEntityPropertyNamePropertyBindingMap(Class<T> clz);
 
+    public <T> List<EntityPropertyBinding> getPrimaryKeyPropertyBindings(Class<T> clz);
+
+    public <T> List<EntityIndex> getIndexes(Class<T> clz);
+
 }
@@ -0,0 +1,144 @@
+package com.eharmony.pho.hbase;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.translator.PhoenixHBaseQueryTranslator;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.builder.QueryBuilder;
+
+public class PhoenixHBaseAsyncDataStoreApiImplTest {
+
+    private PhoenixHBaseQueryExecutor queryExecutor;
+    private ConnectionProvider connectionProvider;
+    private Connection conn;
+    private Statement statement;
+    private CountDownLatch executing;
+    private CountDownLatch release;
+    private PhoenixHBaseAsyncDataStoreApiImpl asyncApi;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<String> classesList = new ArrayList<String>();
+        classesList.add("com.eharmony.pho.hbase.model.TranslationTestClass");
+        EntityPropertiesResolver resolver = new EntityPropertiesResolver(new EntityPropertiesMappingContext(
+                classesList));
+        queryExecutor = new PhoenixHBaseQueryExecutor(new PhoenixHBaseQueryTranslator(resolver),
+                new PhoenixProjectedResultMapper(resolver));
+        queryExecutor.setShowSQL(false);
+
+        executing = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        connectionProvider = mock(ConnectionProvider.class);
+        conn = mock(Connection.class);
+        statement = mock(Statement.class);
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(connectionProvider.getConnection()).thenReturn(conn);
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenAnswer(new Answer<ResultSet>() {
+            @Override
+            public ResultSet answer(InvocationOnMock invocation) throws Throwable {
+                executing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return resultSet;
+            }
+        });
+        asyncApi = new PhoenixHBaseAsyncDataStoreApiImpl(connectionProvider, queryExecutor, 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        asyncApi.close();
+    }
+
+    @Test
+    public void testCancelCancelsInFlightStatement() throws Exception {
+        CompletableFuture<Iterable<TranslationTestClass>> future = asyncApi.findAllAsync(query());
+        Assert.assertTrue(executing.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(future.cancel(true));
+        verify(statement).cancel();
+        release.countDown();
+        verify(connectionProvider, timeout(5000)).releaseConnection(conn);
+    }
+
+    @Test
+    public void testSubmissionBeyondCapacityIsRejected() throws Exception {
+        asyncApi.findAllAsync(query());
+        Assert.assertTrue(executing.await(5, TimeUnit.SECONDS));
+        asyncApi.findAllAsync(query());
+
+        CompletableFuture<Iterable<TranslationTestClass>> rejected = asyncApi.findAllAsync(query());
+        try {
+            rejected.get();
+            Assert.fail("expected rejection");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof DataStoreException);
+        }
+    }
+
+    @Test
+    public void testDeadlineCoversQueueingAndConnectionAcquisition() throws Exception {
+        when(connectionProvider.getConnection(anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(conn);
+        asyncApi.findAllAsync(query());
+        Assert.assertTrue(executing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Iterable<TranslationTestClass>> expired = asyncApi.findAllAsync(QueryBuilder
+                .builderFor(TranslationTestClass.class).select().deadline(Deadline.after(10, TimeUnit.MILLISECONDS))
+                .build());
+        Thread.sleep(50);
+        release.countDown();
+
+        try {
+            expired.get(5, TimeUnit.SECONDS);
+            Assert.fail("expected the deadline to expire in the queue");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof DataStoreTimeoutException);
+        }
+        verify(connectionProvider, times(1)).getConnection();
+        verify(connectionProvider, never()).getConnection(anyLong(), any(TimeUnit.class));
+
+        asyncApi.findAllAsync(QueryBuilder.builderFor(TranslationTestClass.class).select()
+                .deadline(Deadline.after(1, TimeUnit.MINUTES)).build());
+        verify(connectionProvider, timeout(5000)).getConnection(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    private QuerySelect<TranslationTestClass, TranslationTestClass> query() {
+        return QueryBuilder.builderFor(TranslationTestClass.class).select().build();
+    }
+
+}
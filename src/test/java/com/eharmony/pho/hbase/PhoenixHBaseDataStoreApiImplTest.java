@@ -0,0 +1,126 @@
+package com.eharmony.pho.hbase;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.eharmony.pho.hbase.cache.QueryResultCache;
+import com.eharmony.pho.hbase.metrics.QueryMetrics;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.query.QueryCoalescer;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.builder.QueryBuilder;
+import com.eharmony.pho.query.criterion.Restrictions;
+
+public class PhoenixHBaseDataStoreApiImplTest {
+
+    private PhoenixHBaseQueryExecutor queryExecutor;
+    private ConnectionProvider connectionProvider;
+    private PhoenixHBaseDataStoreApiImpl api;
+    private QueryCoalescer coalescer;
+    private final CountDownLatch executing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        queryExecutor = mock(PhoenixHBaseQueryExecutor.class);
+        when(queryExecutor.getQueryMetrics()).thenReturn(mock(QueryMetrics.class));
+        when(queryExecutor.resolveTableName(TranslationTestClass.class)).thenReturn("user");
+        connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(mock(Connection.class));
+        api = new PhoenixHBaseDataStoreApiImpl(connectionProvider, queryExecutor);
+        coalescer = new QueryCoalescer();
+        coalescer.setEntityClasses(Collections.<Class<?>> singleton(TranslationTestClass.class));
+        api.setQueryCoalescer(coalescer);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadAfterWriteDoesNotJoinQueryStartedBeforeIt() throws Exception {
+        final TranslationTestClass before = new TranslationTestClass();
+        final TranslationTestClass after = new TranslationTestClass();
+        final AtomicInteger executions = new AtomicInteger();
+        when(queryExecutor.findOne(any(QuerySelect.class), any(Connection.class))).thenAnswer(
+                new Answer<TranslationTestClass>() {
+                    @Override
+                    public TranslationTestClass answer(InvocationOnMock invocation) throws Throwable {
+                        if (executions.incrementAndGet() > 1) {
+                            return after;
+                        }
+                        executing.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        return before;
+                    }
+                });
+        Future<TranslationTestClass> running = executor.submit(new Callable<TranslationTestClass>() {
+            @Override
+            public TranslationTestClass call() {
+                return api.findOne(query());
+            }
+        });
+        Assert.assertTrue(executing.await(5, TimeUnit.SECONDS));
+
+        api.save(after);
+
+        Assert.assertSame(after, api.findOne(query()));
+        release.countDown();
+        Assert.assertSame(before, running.get(5, TimeUnit.SECONDS));
+        verify(queryExecutor, times(2)).findOne(any(QuerySelect.class), any(Connection.class));
+        verify(queryExecutor).save(eq(after), any(Connection.class));
+    }
+
+    @Test
+    public void testAsyncSaveInvalidatesCachedResults() throws Exception {
+        final TranslationTestClass saved = new TranslationTestClass();
+        when(queryExecutor.find(any(QuerySelect.class), any(Connection.class))).thenReturn(
+                Collections.<Object> emptyList(), Collections.<Object> singletonList(saved));
+        QueryResultCache resultCache = new QueryResultCache();
+        resultCache.setDefaultTtlMillis(TimeUnit.MINUTES.toMillis(10));
+        api.setResultCache(resultCache);
+        PhoenixHBaseAsyncDataStoreApiImpl asyncApi = new PhoenixHBaseAsyncDataStoreApiImpl(connectionProvider,
+                queryExecutor, executor);
+        asyncApi.setResultCache(resultCache);
+
+        Assert.assertFalse(api.findAll(query()).iterator().hasNext());
+        Assert.assertFalse(api.findAll(query()).iterator().hasNext());
+        asyncApi.saveAsync(saved).get(5, TimeUnit.SECONDS);
+
+        Assert.assertSame(saved, api.findAll(query()).iterator().next());
+        verify(queryExecutor, times(2)).find(any(QuerySelect.class), any(Connection.class));
+    }
+
+    private QuerySelect<TranslationTestClass, TranslationTestClass> query() {
+        return QueryBuilder.builderFor(TranslationTestClass.class).select().add(Restrictions.eq("userId", 1))
+                .build();
+    }
+
+}
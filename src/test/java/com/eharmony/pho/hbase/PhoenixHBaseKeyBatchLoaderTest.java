@@ -0,0 +1,87 @@
+package com.eharmony.pho.hbase;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.translator.PhoenixHBaseQueryTranslator;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+
+public class PhoenixHBaseKeyBatchLoaderTest {
+
+    private final List<List<Object>> batches = new ArrayList<List<Object>>();
+    private PhoenixHBaseQueryExecutor queryExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<String> classesList = new ArrayList<String>();
+        classesList.add("com.eharmony.pho.hbase.model.TranslationTestClass");
+        EntityPropertiesResolver resolver = new EntityPropertiesResolver(new EntityPropertiesMappingContext(
+                classesList));
+        queryExecutor = new PhoenixHBaseQueryExecutor(new PhoenixHBaseQueryTranslator(resolver),
+                new PhoenixProjectedResultMapper(resolver)) {
+            @Override
+            public <T> Map<Object, T> findByKeys(Class<T> entityClass, Collection<?> keys,
+                    ConnectionProvider connectionProvider, ExecutorService executorService) {
+                batches.add(new ArrayList<Object>(keys));
+                Map<Object, T> found = new LinkedHashMap<Object, T>();
+                for (Object key : keys) {
+                    if (((Number) key).intValue() < 3) {
+                        TranslationTestClass entity = new TranslationTestClass();
+                        entity.setUserId(((Number) key).intValue());
+                        found.put(key, entityClass.cast(entity));
+                    }
+                }
+                return found;
+            }
+        };
+    }
+
+    @Test
+    public void testConcurrentLookupsAreLoadedInOneBatch() throws Exception {
+        PhoenixHBaseKeyBatchLoader loader = new PhoenixHBaseKeyBatchLoader(mock(ConnectionProvider.class),
+                queryExecutor, TimeUnit.SECONDS.toMicros(10), 3);
+        CompletableFuture<TranslationTestClass> first = loader.load(TranslationTestClass.class, 1);
+        CompletableFuture<TranslationTestClass> second = loader.load(TranslationTestClass.class, 2);
+        CompletableFuture<TranslationTestClass> same = loader.load(TranslationTestClass.class, 1L);
+        Assert.assertFalse(first.isDone());
+        // the third distinct key fills the batch
+        CompletableFuture<TranslationTestClass> missing = loader.load(TranslationTestClass.class, 3);
+
+        Assert.assertEquals(1, first.get(5, TimeUnit.SECONDS).getUserId());
+        Assert.assertEquals(2, second.get(5, TimeUnit.SECONDS).getUserId());
+        Assert.assertSame(first.get(), same.get());
+        Assert.assertNull(missing.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.<List<Object>> asList(Arrays.<Object> asList(1, 2, 3)), batches);
+        Assert.assertEquals(1, loader.getBatchCount(TranslationTestClass.class));
+        Assert.assertEquals(3, loader.getKeyCount(TranslationTestClass.class));
+        loader.close();
+    }
+
+    @Test
+    public void testBatchIsLoadedWhenTheWindowEnds() throws Exception {
+        PhoenixHBaseKeyBatchLoader loader = new PhoenixHBaseKeyBatchLoader(mock(ConnectionProvider.class),
+                queryExecutor, 1000, 100);
+        Assert.assertEquals(2, loader.get(TranslationTestClass.class, 2).getUserId());
+        Assert.assertEquals(1, loader.getBatchLatency(TranslationTestClass.class).getCount());
+        loader.close();
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.eharmony.pho.hbase;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.hbase.cache.QueryResultCache;
+import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+import com.eharmony.pho.hbase.model.EmbededEntityExample;
+import com.eharmony.pho.hbase.model.NestedEntity;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.query.PhoenixHBaseQueryExecutor;
+import com.eharmony.pho.hbase.translator.PhoenixHBaseQueryTranslator;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+
+public class PhoenixHBaseWriteBehindWriterTest {
+
+    private Connection conn;
+    private PreparedStatement statement;
+    private EntityPropertiesResolver resolver;
+    private ConnectionProvider connectionProvider;
+    private PhoenixHBaseQueryExecutor queryExecutor;
+    private PhoenixHBaseWriteBehindWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<String> classesList = new ArrayList<String>();
+        classesList.add("com.eharmony.pho.hbase.model.TranslationTestClass");
+        classesList.add("com.eharmony.pho.hbase.model.EmbededEntityExample");
+        resolver = new EntityPropertiesResolver(new EntityPropertiesMappingContext(
+                classesList));
+        queryExecutor = new PhoenixHBaseQueryExecutor(new PhoenixHBaseQueryTranslator(
+                resolver), new PhoenixProjectedResultMapper(resolver));
+        queryExecutor.setShowSQL(false);
+
+        connectionProvider = mock(ConnectionProvider.class);
+        conn = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(connectionProvider.getConnection()).thenReturn(conn);
+        when(conn.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[] { 1 });
+        writer = writer(10, 10);
+    }
+
+    @After
+    public void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    public void testSavesOfTheSameRowAreCoalesced() throws Exception {
+        CompletableFuture<TranslationTestClass> first = writer.save(entity(1, "a", "secret"),
+                Arrays.asList("name", "password"));
+        CompletableFuture<TranslationTestClass> second = writer.save(entity(1, "b", null), Arrays.asList("name"));
+        Assert.assertEquals(1, writer.getPendingCount());
+        Assert.assertFalse(first.isDone());
+
+        writer.close();
+
+        verify(statement, times(1)).addBatch();
+        verify(statement).setString(anyInt(), eq("b"));
+        verify(statement).setString(anyInt(), eq("secret"));
+        verify(statement, never()).setString(anyInt(), eq("a"));
+        verify(conn).commit();
+        Assert.assertEquals("a", first.get().getName());
+        Assert.assertEquals("b", second.get().getName());
+    }
+
+    @Test
+    public void testSavesBlockWhileTheBufferIsFull() throws Exception {
+        writer = writer(2, 2);
+        final CountDownLatch executing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(statement.executeBatch()).thenAnswer(new Answer<int[]>() {
+            @Override
+            public int[] answer(InvocationOnMock invocation) throws Throwable {
+                executing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new int[] { 1, 1 };
+            }
+        });
+        CompletableFuture<TranslationTestClass> first = writer.save(entity(1, "a", null));
+        writer.save(entity(2, "b", null));
+        Assert.assertTrue(executing.await(5, TimeUnit.SECONDS));
+
+        ExecutorService saver = Executors.newSingleThreadExecutor();
+        try {
+            Future<CompletableFuture<TranslationTestClass>> blocked = saver.submit(
+                    new Callable<CompletableFuture<TranslationTestClass>>() {
+                        @Override
+                        public CompletableFuture<TranslationTestClass> call() {
+                            return writer.save(entity(3, "c", null));
+                        }
+                    });
+            try {
+                blocked.get(100, TimeUnit.MILLISECONDS);
+                Assert.fail("save should wait for room in the buffer");
+            } catch (TimeoutException expected) {
+                Assert.assertEquals(2, writer.getPendingCount());
+            }
+            release.countDown();
+
+            Assert.assertNotNull(blocked.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("a", first.get(5, TimeUnit.SECONDS).getName());
+        } finally {
+            release.countDown();
+            saver.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedFlushFailsTheFutures() throws Exception {
+        when(statement.executeBatch()).thenThrow(new SQLException("region unavailable"));
+        CompletableFuture<TranslationTestClass> first = writer.save(entity(1, "a", null));
+        CompletableFuture<TranslationTestClass> second = writer.save(entity(2, "b", null));
+
+        writer.close();
+
+        for (CompletableFuture<TranslationTestClass> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                Assert.fail("expected the flush failure");
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof DataStoreException);
+            }
+        }
+        verify(conn, never()).commit();
+        verify(connectionProvider).releaseConnection(conn);
+    }
+
+    @Test
+    public void testCloseFlushesBufferedRows() throws Exception {
+        CompletableFuture<TranslationTestClass> future = writer.save(entity(1, "a", null));
+        Assert.assertEquals(1, writer.getPendingCount());
+
+        writer.close();
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(0, writer.getPendingCount());
+        verify(conn).commit();
+        try {
+            writer.save(entity(2, "b", null));
+            Assert.fail("expected the writer to be closed");
+        } catch (DataStoreException expected) {
+            // saves are rejected once closed
+        }
+    }
+
+    @Test
+    public void testFlushInvalidatesCachedResults() throws Exception {
+        QueryResultCache resultCache = new QueryResultCache();
+        resultCache.setDefaultTtlMillis(TimeUnit.MINUTES.toMillis(10));
+        writer.setResultCache(resultCache);
+        Assert.assertEquals("before", resultCache.get(TranslationTestClass.class, "user", "key", loader("before")));
+
+        writer.save(entity(1, "a", null));
+        Assert.assertEquals("before", resultCache.get(TranslationTestClass.class, "user", "key", loader("after")));
+        writer.close();
+
+        Assert.assertEquals("after", resultCache.get(TranslationTestClass.class, "user", "key", loader("after")));
+    }
+
+    @Test
+    public void testEmbeddedPropertiesAreRebuilt() throws Exception {
+        EmbededEntityExample entity = new EmbededEntityExample();
+        entity.setAnnotatedProperty("key");
+        entity.setNestedObject(new NestedEntity());
+        entity.getNestedObject().setName("nested");
+        CompletableFuture<EmbededEntityExample> future = writer.save(entity);
+
+        writer.close();
+
+        Assert.assertSame(entity, future.get());
+        verify(statement).setString(anyInt(), eq("nested"));
+        verify(conn).commit();
+    }
+
+    private PhoenixHBaseWriteBehindWriter writer(int capacity, int flushSize) {
+        if (writer != null) {
+            writer.close();
+        }
+        return new PhoenixHBaseWriteBehindWriter(connectionProvider, queryExecutor, resolver, capacity, flushSize,
+                TimeUnit.HOURS.toMillis(1));
+    }
+
+    private static Callable<String> loader(final String result) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        };
+    }
+
+    private TranslationTestClass entity(int userId, String name, String password) {
+        TranslationTestClass entity = new TranslationTestClass();
+        entity.setUserId(userId);
+        entity.setName(name);
+        entity.setPassword(password);
+        return entity;
+    }
+
+}
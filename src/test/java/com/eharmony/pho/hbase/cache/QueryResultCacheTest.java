@@ -0,0 +1,131 @@
+package com.eharmony.pho.hbase.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class QueryResultCacheTest {
+
+    private QueryResultCache cache;
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        cache = new QueryResultCache(10);
+        cache.setEntityTtlMillis(Collections.<Class<?>, Long> singletonMap(TranslationTestClass.class, 60000L));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testResultsAreCachedUntilTheEntityIsWritten() throws Exception {
+        Assert.assertEquals(Arrays.asList(1), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(Arrays.asList(1), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(1, cache.getHitCount());
+
+        cache.invalidate("user");
+
+        Assert.assertEquals(Arrays.asList(2), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testWritesInvalidateTheResultsOfEveryClassOfTheTable() throws Exception {
+        cache.setDefaultTtlMillis(60000L);
+        Assert.assertEquals(Arrays.asList(1), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(Arrays.asList(2), cache.get(String.class, "user", "projection", loader()));
+        Assert.assertEquals(Arrays.asList(3), cache.get(Integer.class, "other", "other", loader()));
+
+        // a write through any of the classes mapped to the table
+        cache.invalidate("user");
+
+        Assert.assertEquals(Arrays.asList(4), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(Arrays.asList(5), cache.get(String.class, "user", "projection", loader()));
+        Assert.assertEquals(Arrays.asList(3), cache.get(Integer.class, "other", "other", loader()));
+    }
+
+    @Test
+    public void testLoadStartedBeforeAWriteIsNotShared() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Integer>> stale = executor.submit(new Callable<List<Integer>>() {
+                @Override
+                public List<Integer> call() throws Exception {
+                    return cache.get(TranslationTestClass.class, "user", "q", new Callable<List<Integer>>() {
+                        @Override
+                        public List<Integer> call() throws Exception {
+                            loading.countDown();
+                            release.await(5, TimeUnit.SECONDS);
+                            return Arrays.asList(0);
+                        }
+                    });
+                }
+            });
+            Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.invalidate("user");
+            // lets the stale load finish once this thread waits for it
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    Thread.sleep(50);
+                    release.countDown();
+                    return null;
+                }
+            });
+
+            Assert.assertEquals(Arrays.asList(1), cache.get(TranslationTestClass.class, "user", "q", loader()));
+            Assert.assertEquals(Arrays.asList(0), stale.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEntitiesWithoutTtlAreNotCached() throws Exception {
+        Assert.assertFalse(cache.isCached(String.class));
+        cache.get(String.class, "string", "q", loader());
+        cache.get(String.class, "string", "q", loader());
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRefreshAheadReloadsHitResults() throws Exception {
+        cache.setEntityTtlMillis(Collections.<Class<?>, Long> singletonMap(TranslationTestClass.class, 5000L));
+        cache.setRefreshAheadFactor(0.0002);
+        cache.setRefreshExecutor(MoreExecutors.newDirectExecutorService());
+        cache.get(TranslationTestClass.class, "user", "q", loader());
+        Thread.sleep(2);
+
+        // served from the cache while reloaded
+        Assert.assertEquals(Arrays.asList(1), cache.get(TranslationTestClass.class, "user", "q", loader()));
+        Assert.assertEquals(1, cache.getRefreshCount());
+        Assert.assertEquals(Arrays.asList(2), cache.get(TranslationTestClass.class, "user", "q", loader()));
+    }
+
+    private Callable<List<Integer>> loader() {
+        return new Callable<List<Integer>>() {
+            @Override
+            public List<Integer> call() {
+                return Arrays.asList(loads.incrementAndGet());
+            }
+        };
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.eharmony.pho.hbase.codec;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ValueCodecRegistryTest {
+
+    private enum Status {
+        ACTIVE {
+        },
+        CLOSED
+    }
+
+    private ValueCodecRegistry registry;
+    private PreparedStatement statement;
+    private Connection conn;
+
+    @Before
+    public void setUp() throws SQLException {
+        registry = new ValueCodecRegistry();
+        statement = mock(PreparedStatement.class);
+        conn = mock(Connection.class);
+        when(statement.getConnection()).thenReturn(conn);
+    }
+
+    @Test
+    public void testValuesAreBoundNatively() throws SQLException {
+        Instant instant = Instant.ofEpochMilli(1000000000123L);
+        UUID uuid = UUID.randomUUID();
+        byte[] bytes = new byte[] { 1, 2 };
+        registry.bind(statement, 1, instant);
+        registry.bind(statement, 2, LocalDate.of(2016, 2, 29));
+        registry.bind(statement, 3, Status.ACTIVE);
+        registry.bind(statement, 4, new BigDecimal("1.50"));
+        registry.bind(statement, 5, uuid);
+        registry.bind(statement, 6, bytes);
+        registry.bind(statement, 7, 7L);
+        registry.bind(statement, 8, null);
+
+        verify(statement).setTimestamp(1, Timestamp.from(instant));
+        verify(statement).setDate(2, java.sql.Date.valueOf(LocalDate.of(2016, 2, 29)));
+        verify(statement).setString(3, "ACTIVE");
+        verify(statement).setBigDecimal(4, new BigDecimal("1.50"));
+        verify(statement).setString(5, uuid.toString());
+        verify(statement).setBytes(6, bytes);
+        verify(statement).setLong(7, 7L);
+        verify(statement).setObject(8, null);
+    }
+
+    @Test
+    public void testArraysAreBoundAsPhoenixArrays() throws SQLException {
+        Array array = mock(Array.class);
+        when(conn.createArrayOf("INTEGER", new Object[] { 1, 2 })).thenReturn(array);
+        when(conn.createArrayOf("VARCHAR", new Object[] { "a", "b" })).thenReturn(array);
+
+        registry.bind(statement, 1, new int[] { 1, 2 });
+        registry.bind(statement, 2, new Object[] { "a", "b" });
+
+        verify(statement).setArray(1, array);
+        verify(statement).setArray(2, array);
+    }
+
+    @Test
+    public void testLiterals() {
+        Assert.assertEquals("'it''s'", literal("it's"));
+        Assert.assertEquals("'CLOSED'", literal(Status.CLOSED));
+        Assert.assertEquals("100", literal(new BigDecimal("1E+2")));
+        Assert.assertEquals("ARRAY[1, 'a', NULL]", literal(new Object[] { 1, "a", null }));
+        Assert.assertEquals("TO_DATE('2001-09-09 01:46:40.123 UTC', 'yyyy-MM-dd HH:mm:ss.SSS z')",
+                literal(new Date(1000000000123L)));
+        Assert.assertEquals("TO_TIMESTAMP('2001-09-09 01:46:40.123 UTC', 'yyyy-MM-dd HH:mm:ss.SSS z')",
+                literal(new Timestamp(1000000000123L)));
+    }
+
+    @Test
+    public void testDateLiteralsKeepTheBoundValue() throws Exception {
+        Date date = new Date(1000000000123L);
+        java.sql.Date sqlDate = new java.sql.Date(1000000000456L);
+        registry.bind(statement, 1, date);
+        registry.bind(statement, 2, sqlDate);
+
+        ArgumentCaptor<java.sql.Date> bound = ArgumentCaptor.forClass(java.sql.Date.class);
+        verify(statement, times(2)).setDate(anyInt(), bound.capture());
+        Assert.assertEquals(bound.getAllValues().get(0).getTime(), parseDateLiteral(literal(date)));
+        Assert.assertEquals(bound.getAllValues().get(1).getTime(), parseDateLiteral(literal(sqlDate)));
+    }
+
+    @Test
+    public void testRegisteredCodecsApplyToSubtypes() throws SQLException {
+        registry.register(Status.class, new ValueCodecs.AbstractValueCodec<Status>("INTEGER") {
+            @Override
+            public void bind(PreparedStatement statement, int index, Status value) throws SQLException {
+                statement.setInt(index, value.ordinal());
+            }
+
+            @Override
+            public void appendLiteral(StringBuilder builder, Status value) {
+                builder.append(value.ordinal());
+            }
+        });
+
+        registry.bind(statement, 1, Status.ACTIVE);
+
+        verify(statement).setInt(1, 0);
+        Assert.assertEquals("1", literal(Status.CLOSED));
+    }
+
+    private String literal(Object value) {
+        return registry.appendLiteral(new StringBuilder(), value).toString();
+    }
+
+    // evaluates TO_DATE('value', 'format') the way phoenix does
+    private static long parseDateLiteral(String literal) throws ParseException {
+        Matcher matcher = Pattern.compile("TO_DATE\\('(.*)', '(.*)'\\)").matcher(literal);
+        Assert.assertTrue(literal, matcher.matches());
+        return new SimpleDateFormat(matcher.group(2)).parse(matcher.group(1)).getTime();
+    }
+
+}
@@ -75,4 +75,23 @@ public class PhoenixProjectedResultMapperTest {
 		assertFalse(it.hasNext());
 	}
 
+	@Test
+	public void testMapResultsResultSetClassOfR_CountAsInt() throws Exception {
+		
+		PhoenixProjectedResultMapper mapper = new PhoenixProjectedResultMapper(null);
+		@SuppressWarnings("resource")
+        PhoenixResultSet rs = mock(PhoenixResultSet.class);
+		ResultSetMetaData rsMeta = mock(ResultSetMetaData.class);
+		
+		when(rs.getMetaData()).thenReturn(rsMeta);
+		when(rs.next()).thenReturn(true, false);
+		when(rsMeta.getColumnCount()).thenReturn(1);
+		when(rsMeta.getColumnName(1)).thenReturn("COUNT(1)");
+		when(rs.getObject(any())).thenReturn(new Long(1000));
+		Iterable<Integer> intL = mapper.mapResults(rs, Integer.class);
+		Iterator<Integer> it = intL.iterator();
+		assertTrue(it.next() == 1000);
+		assertFalse(it.hasNext());
+	}
+
 }
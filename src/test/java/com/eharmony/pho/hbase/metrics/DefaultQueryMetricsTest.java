@@ -0,0 +1,42 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.translator.QueryFingerprint;
+import com.eharmony.pho.query.builder.QueryBuilder;
+import com.eharmony.pho.query.criterion.Restrictions;
+
+public class DefaultQueryMetricsTest {
+
+    @Test
+    public void testListLengthsShareBucketedShapes() {
+        DefaultQueryMetrics metrics = new DefaultQueryMetrics();
+        for (int size = 1; size <= 100; size++) {
+            Object[] keys = new Object[size];
+            Arrays.fill(keys, 1);
+            String fingerprint = QueryFingerprint.of(QueryBuilder.builderFor(TranslationTestClass.class).select()
+                    .add(Restrictions.in("userId", keys)).build());
+            metrics.recordRows(TranslationTestClass.class, fingerprint, size);
+        }
+
+        Map<String, QueryShapeMetrics> shapes = metrics.getShapeMetrics(TranslationTestClass.class);
+        // 1, 2, <=4, <=8, <=16, <=32, <=64, <=128
+        Assert.assertEquals(8, shapes.size());
+    }
+
+    @Test
+    public void testBucketListSizes() {
+        Assert.assertEquals("SELECT|IN(userId#1)|IN([a, b]#<=4)|EQUAL(name)",
+                QueryFingerprint.bucketListSizes("SELECT|IN(userId#1)|IN([a, b]#3)|EQUAL(name)"));
+        Assert.assertEquals("IN(userId#<=1024)", QueryFingerprint.bucketListSizes("IN(userId#1000)"));
+        Assert.assertEquals("IN(userId#<=8)", QueryFingerprint.bucketListSizes("IN(userId#8)"));
+        String unchanged = "NATIVE(a#b)|EQUAL(name)";
+        Assert.assertSame(unchanged, QueryFingerprint.bucketListSizes(unchanged));
+    }
+
+}
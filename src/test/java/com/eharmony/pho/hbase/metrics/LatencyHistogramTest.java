@@ -0,0 +1,33 @@
+package com.eharmony.pho.hbase.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsRoundTrip() {
+        for (long value : new long[] { 0, 1, 31, 32, 33, 100, 1000, 65535, 1L << 31 }) {
+            long bucketValue = LatencyHistogram.bucketValue(LatencyHistogram.bucketIndex(value));
+            Assert.assertTrue(bucketValue <= value);
+            Assert.assertTrue(value - bucketValue <= value / 16);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMaxMicros());
+        Assert.assertEquals(500.5, histogram.getMeanMicros(), 0.001);
+        Assert.assertEquals(500, histogram.getValueAtPercentileMicros(50), 500 / 16);
+        Assert.assertEquals(990, histogram.getValueAtPercentileMicros(99), 990 / 16);
+        Assert.assertEquals(1000, histogram.getValueAtPercentileMicros(100), 1000 / 16);
+    }
+
+}
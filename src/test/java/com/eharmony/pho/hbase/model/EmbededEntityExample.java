@@ -1,14 +1,19 @@
 package com.eharmony.pho.hbase.model;
 
+import com.eharmony.pho.annotations.PrimaryKey;
+import com.eharmony.pho.annotations.QueryHints;
+import com.eharmony.pho.query.QueryHint;
 import com.google.code.morphia.annotations.Embedded;
 import com.google.code.morphia.annotations.Entity;
 import com.google.code.morphia.annotations.Property;
 
 @Entity(value = "embded_model")
+@QueryHints(value = QueryHint.Type.SMALL, indexes = "embded_model_idx")
 public class EmbededEntityExample {
     @Embedded
     private NestedEntity nestedObject;
 
+    @PrimaryKey
     @Property(value = "annotatedProperty")
     private String annotatedProperty;
     private String property2;
@@ -2,15 +2,19 @@ package com.eharmony.pho.hbase.model;
 
 import java.util.Date;
 
+import com.eharmony.pho.annotations.Index;
+import com.eharmony.pho.annotations.PrimaryKey;
 import com.google.code.morphia.annotations.Entity;
 import com.google.code.morphia.annotations.Property;
 
 @Entity(value="user")
+@Index(name="user_name_idx", properties="name", include="createdAt")
 public class TranslationTestClass {
 
     @Property(value="user_name")
     private String name;
     
+    @PrimaryKey
     @Property(value="uid")
     private int userId;
     
@@ -0,0 +1,400 @@
+package com.eharmony.pho.hbase.query;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.eharmony.pho.api.CloseableIterator;
+import com.eharmony.pho.api.DataStoreException;
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.api.Page;
+import com.eharmony.pho.api.PageToken;
+import com.eharmony.pho.hbase.mapper.PhoenixProjectedResultMapper;
+import com.eharmony.pho.hbase.metrics.DefaultQueryMetrics;
+import com.eharmony.pho.hbase.metrics.QueryPhase;
+import com.eharmony.pho.hbase.metrics.QueryShapeMetrics;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+import com.eharmony.pho.hbase.translator.PhoenixHBaseQueryTranslator;
+import com.eharmony.pho.hbase.util.ConnectionProvider;
+import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
+import com.eharmony.pho.mapper.EntityPropertiesResolver;
+import com.eharmony.pho.query.QuerySelect;
+import com.eharmony.pho.query.builder.QueryBuilder;
+import com.eharmony.pho.query.criterion.Ordering;
+import com.eharmony.pho.query.criterion.Restrictions;
+
+public class PhoenixHBaseQueryExecutorTest {
+
+    private EntityPropertiesResolver resolver;
+    private PhoenixHBaseQueryExecutor queryExecutor;
+    private Connection conn;
+    private PreparedStatement statement;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<String> classesList = new ArrayList<String>();
+        classesList.add("com.eharmony.pho.hbase.model.TranslationTestClass");
+        resolver = new EntityPropertiesResolver(new EntityPropertiesMappingContext(
+                classesList));
+        queryExecutor = new PhoenixHBaseQueryExecutor(new PhoenixHBaseQueryTranslator(resolver),
+                new PhoenixProjectedResultMapper(resolver));
+        queryExecutor.setShowSQL(false);
+        conn = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[] { 1, 1 });
+    }
+
+    @Test
+    public void testSaveBatchBindsEntitiesToOneStatement() throws Exception {
+        queryExecutor.setBatchSize(2);
+        queryExecutor.setCommitInterval(0);
+        int[] results = queryExecutor.saveBatch(entities(4), conn);
+
+        verify(conn, times(1)).prepareStatement(anyString());
+        verify(statement, times(4)).addBatch();
+        verify(statement, times(2)).executeBatch();
+        verify(conn, times(0)).commit();
+        verify(statement).close();
+        Assert.assertEquals(4, results.length);
+    }
+
+    @Test
+    public void testSaveBatchCommitsEveryCommitInterval() throws Exception {
+        queryExecutor.setBatchSize(10);
+        queryExecutor.setCommitInterval(2);
+        queryExecutor.saveBatch(entities(5), conn);
+
+        verify(conn, times(2)).commit();
+        verify(statement, times(3)).executeBatch();
+    }
+
+    @Test
+    public void testDeleteBatchBindsPrimaryKeys() throws Exception {
+        queryExecutor.setBatchSize(2);
+        queryExecutor.setCommitInterval(0);
+        queryExecutor.deleteBatch(entities(3), conn);
+
+        verify(conn, times(1)).prepareStatement("DELETE FROM user WHERE uid = ?");
+        verify(statement).setInt(1, 2);
+        verify(statement, times(3)).addBatch();
+        verify(statement, times(2)).executeBatch();
+    }
+
+    @Test
+    public void testDeadlineCapsConfiguredQueryTimeout() throws Exception {
+        Map<String, String> statementProperties = new HashMap<String, String>();
+        statementProperties.put("queryTimeoutSec", "60");
+        queryExecutor = new PhoenixHBaseQueryExecutor(new PhoenixHBaseQueryTranslator(resolver),
+                new PhoenixProjectedResultMapper(resolver), statementProperties);
+        queryExecutor.setShowSQL(false);
+        queryExecutor.setCommitInterval(0);
+
+        queryExecutor.saveBatch(entities(2), conn);
+        verify(statement).setQueryTimeout(60);
+        queryExecutor.saveBatch(entities(2), conn, Deadline.after(5, TimeUnit.SECONDS));
+        verify(statement, times(2)).setQueryTimeout(5);
+    }
+
+    @Test(expected = DataStoreTimeoutException.class)
+    public void testExpiredDeadlineFailsBeforeStatement() throws Exception {
+        try {
+            queryExecutor.saveBatch(entities(2), conn, Deadline.after(0, TimeUnit.MILLISECONDS));
+        } finally {
+            verify(conn, times(0)).prepareStatement(anyString());
+        }
+    }
+
+    @Test
+    public void testFindRecordsMetricsPerQueryShape() throws Exception {
+        Statement plainStatement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(conn.createStatement()).thenReturn(plainStatement);
+        when(plainStatement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(mock(ResultSetMetaData.class));
+        DefaultQueryMetrics metrics = new DefaultQueryMetrics();
+        queryExecutor.setQueryMetrics(metrics);
+
+        queryExecutor.find(QueryBuilder.builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 1)).build(), conn);
+        queryExecutor.find(QueryBuilder.builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 2)).build(), conn);
+
+        Map<String, QueryShapeMetrics> shapes = metrics.getShapeMetrics(TranslationTestClass.class);
+        Assert.assertEquals(1, shapes.size());
+        QueryShapeMetrics shape = shapes.values().iterator().next();
+        Assert.assertEquals(2, shape.getExecutions());
+        Assert.assertEquals(2, shape.getLatency(QueryPhase.TRANSLATE).getCount());
+        Assert.assertEquals(2, shape.getLatency(QueryPhase.MAP).getCount());
+        Assert.assertEquals(0, shape.getRows());
+        Assert.assertEquals(2, metrics.getEntityMetrics(TranslationTestClass.class).getExecutions());
+    }
+
+    @Test
+    public void testExplainGuardRejectsFullScanOnce() throws Exception {
+        ResultSet plan = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(plan);
+        when(plan.next()).thenReturn(true, false);
+        when(plan.getString(1)).thenReturn("CLIENT 12-CHUNK PARALLEL 12-WAY FULL SCAN OVER USER");
+        ExplainGuard explainGuard = new ExplainGuard();
+        explainGuard.setDefaultPolicy(new ScanPolicy(ScanPolicy.Action.REJECT, false, 0));
+        queryExecutor.setExplainGuard(explainGuard);
+        queryExecutor.setParameterized(true);
+
+        for (int userId = 1; userId <= 2; userId++) {
+            try {
+                queryExecutor.find(QueryBuilder.builderFor(TranslationTestClass.class).select()
+                        .add(Restrictions.eq("name", "user" + userId)).build(), conn);
+                Assert.fail("full scan should be rejected");
+            } catch (DataStoreException ex) {
+                Assert.assertTrue(ex.getMessage().contains("FULL SCAN"));
+            }
+        }
+
+        verify(conn, times(1)).prepareStatement(startsWith("EXPLAIN SELECT"));
+        verify(statement, times(1)).executeQuery();
+        Assert.assertEquals(2, explainGuard.getViolationCount(TranslationTestClass.class));
+    }
+
+    @Test
+    public void testQueryPlanParsesScanChunksAndIndex() {
+        QueryPlan plan = QueryPlan.parse(Arrays.asList(
+                "CLIENT 3-CHUNK PARALLEL 3-WAY RANGE SCAN OVER USER_NAME_IDX ['bob']",
+                "    SERVER FILTER BY FIRST KEY ONLY"), "user");
+        Assert.assertEquals(QueryPlan.ScanType.RANGE_SCAN, plan.getScanType());
+        Assert.assertEquals(3, plan.getChunks());
+        Assert.assertEquals("USER_NAME_IDX", plan.getIndexName());
+        Assert.assertFalse(new ScanPolicy(ScanPolicy.Action.REJECT, false, 4).isViolatedBy(plan));
+        Assert.assertTrue(new ScanPolicy(ScanPolicy.Action.REJECT, false, 2).isViolatedBy(plan));
+
+        plan = QueryPlan.parse(
+                Arrays.asList("CLIENT 1-CHUNK 1 ROWS 205 BYTES PARALLEL 1-WAY POINT LOOKUP ON 1 KEY OVER USER"), "user");
+        Assert.assertEquals(QueryPlan.ScanType.POINT_LOOKUP, plan.getScanType());
+        Assert.assertNull(plan.getIndexName());
+    }
+
+    @Test
+    public void testStreamReleasesStatementWhenExhausted() throws Exception {
+        Statement plainStatement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(conn.createStatement()).thenReturn(plainStatement);
+        when(plainStatement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+        final AtomicBoolean released = new AtomicBoolean();
+
+        CloseableIterator<TranslationTestClass> results = queryExecutor.stream(
+                QueryBuilder.builderFor(TranslationTestClass.class).select().build(), conn, new Runnable() {
+                    @Override
+                    public void run() {
+                        released.set(true);
+                    }
+                });
+        Assert.assertFalse(released.get());
+        Assert.assertFalse(results.hasNext());
+
+        verify(resultSet).close();
+        verify(plainStatement).close();
+        Assert.assertTrue(released.get());
+    }
+
+    @Test
+    public void testFindParallelMergesKeyRangesInQueryOrder() throws Exception {
+        final PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(resolver);
+        final List<String> rangeQueries = Collections.synchronizedList(new ArrayList<String>());
+        PhoenixHBaseQueryExecutor parallelExecutor = new PhoenixHBaseQueryExecutor(translator,
+                new PhoenixProjectedResultMapper(resolver)) {
+            @Override
+            public <T, R> Iterable<R> find(QuerySelect<T, R> query, Connection conn) {
+                String queryString = translator.translate(query);
+                rangeQueries.add(queryString);
+                // each range returns its rows sorted by name, as the store would
+                List<Object> results = new ArrayList<Object>();
+                if (!queryString.contains("uid >=")) {
+                    results.add(entity(1, "b"));
+                    results.add(entity(2, "d"));
+                } else if (queryString.contains("uid < ")) {
+                    results.add(entity(10, "a"));
+                    results.add(entity(11, "e"));
+                } else {
+                    results.add(entity(20, "c"));
+                }
+                @SuppressWarnings("unchecked")
+                Iterable<R> typed = (Iterable<R>) results;
+                return typed;
+            }
+        };
+        ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(conn);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                    .builderFor(TranslationTestClass.class).select().addOrder(Ordering.asc("name")).setMaxResults(4)
+                    .build();
+            List<TranslationTestClass> results = parallelExecutor.findParallel(query, Arrays.asList(10, 20),
+                    connectionProvider, executorService);
+
+            Assert.assertEquals(3, rangeQueries.size());
+            Assert.assertTrue(rangeQueries.contains("SELECT * FROM user WHERE (uid >= 10) AND (uid < 20) ORDER BY user_name ASC NULLS FIRST LIMIT 4"));
+            Assert.assertEquals(4, results.size());
+            Assert.assertEquals("a", results.get(0).getName());
+            Assert.assertEquals("b", results.get(1).getName());
+            Assert.assertEquals("c", results.get(2).getName());
+            Assert.assertEquals("d", results.get(3).getName());
+            verify(connectionProvider, times(3)).releaseConnection(conn);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindParallelSortsSplitPoints() throws Exception {
+        final PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(resolver);
+        final List<String> rangeQueries = Collections.synchronizedList(new ArrayList<String>());
+        PhoenixHBaseQueryExecutor parallelExecutor = new PhoenixHBaseQueryExecutor(translator,
+                new PhoenixProjectedResultMapper(resolver)) {
+            @Override
+            public <T, R> Iterable<R> find(QuerySelect<T, R> query, Connection conn) {
+                rangeQueries.add(translator.translate(query));
+                return Collections.emptyList();
+            }
+        };
+        ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(conn);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            // split points of a DESC key, as listed by its regions
+            parallelExecutor.findParallel(QueryBuilder.builderFor(TranslationTestClass.class).select().build(),
+                    Arrays.asList(20, 10, 20), connectionProvider, executorService);
+
+            Assert.assertEquals(3, rangeQueries.size());
+            Assert.assertTrue(rangeQueries.contains("SELECT * FROM user WHERE uid < 10"));
+            Assert.assertTrue(rangeQueries.contains("SELECT * FROM user WHERE (uid >= 10) AND (uid < 20)"));
+            Assert.assertTrue(rangeQueries.contains("SELECT * FROM user WHERE uid >= 20"));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindParallelRejectsSplitPointsOfDifferentTypes() {
+        queryExecutor.findParallel(QueryBuilder.builderFor(TranslationTestClass.class).select().build(),
+                Arrays.<Object> asList(10, "20"), mock(ConnectionProvider.class), mock(ExecutorService.class));
+    }
+
+    @Test
+    public void testFindByKeysChunksKeysAndMapsResultsByKey() throws Exception {
+        final PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(resolver);
+        final List<String> chunkQueries = new ArrayList<String>();
+        PhoenixHBaseQueryExecutor lookupExecutor = new PhoenixHBaseQueryExecutor(translator,
+                new PhoenixProjectedResultMapper(resolver)) {
+            @Override
+            public <T, R> Iterable<R> find(QuerySelect<T, R> query, Connection conn) {
+                chunkQueries.add(translator.translate(query));
+                List<Object> results = new ArrayList<Object>();
+                if (chunkQueries.size() == 1) {
+                    results.add(entity(2, "b"));
+                }
+                @SuppressWarnings("unchecked")
+                Iterable<R> typed = (Iterable<R>) results;
+                return typed;
+            }
+        };
+        lookupExecutor.setKeyLookupChunkSize(2);
+        ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(conn);
+
+        Map<Object, TranslationTestClass> results = lookupExecutor.findByKeys(TranslationTestClass.class,
+                Arrays.asList(1L, 2L, 3L, 2L), connectionProvider, null);
+
+        Assert.assertEquals(Arrays.asList("SELECT * FROM user WHERE uid IN (1, 2)", "SELECT * FROM user WHERE uid IN (3)"),
+                chunkQueries);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals("b", results.get(2L).getName());
+        verify(connectionProvider, times(1)).releaseConnection(conn);
+    }
+
+    @Test
+    public void testFindPageSeeksPastLastRow() throws Exception {
+        final PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(resolver);
+        final List<String> pageQueries = new ArrayList<String>();
+        PhoenixHBaseQueryExecutor pagingExecutor = new PhoenixHBaseQueryExecutor(translator,
+                new PhoenixProjectedResultMapper(resolver)) {
+            @Override
+            public <T, R> Iterable<R> find(QuerySelect<T, R> query, Connection conn) {
+                pageQueries.add(translator.translate(query));
+                List<Object> results = new ArrayList<Object>();
+                if (pageQueries.size() == 1) {
+                    results.add(entity(1, "a"));
+                    results.add(entity(2, "a"));
+                    results.add(entity(3, "b"));
+                } else {
+                    results.add(entity(3, "b"));
+                }
+                @SuppressWarnings("unchecked")
+                Iterable<R> typed = (Iterable<R>) results;
+                return typed;
+            }
+        };
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select().addOrder(Ordering.asc("name")).setMaxResults(2)
+                .build();
+
+        Page<TranslationTestClass> first = pagingExecutor.findPage(query, null, conn);
+        Assert.assertEquals("SELECT * FROM user ORDER BY user_name ASC NULLS FIRST, uid ASC NULLS FIRST LIMIT 3",
+                pageQueries.get(0));
+        Assert.assertEquals(2, first.getResults().size());
+        Assert.assertTrue(first.hasNext());
+
+        PageToken token = PageToken.decode(first.getNextPageToken().encode());
+        Assert.assertEquals(Arrays.<Object> asList("a", 2), token.getValues());
+        Page<TranslationTestClass> second = pagingExecutor.findPage(query, token, conn);
+        Assert.assertEquals(
+                "SELECT * FROM user WHERE (user_name, uid) > ('a', 2) ORDER BY user_name ASC NULLS FIRST, uid ASC NULLS FIRST LIMIT 3",
+                pageQueries.get(1));
+        Assert.assertEquals(1, second.getResults().size());
+        Assert.assertFalse(second.hasNext());
+    }
+
+    private TranslationTestClass entity(int userId, String name) {
+        TranslationTestClass entity = new TranslationTestClass();
+        entity.setUserId(userId);
+        entity.setName(name);
+        return entity;
+    }
+
+    private List<TranslationTestClass> entities(int count) {
+        List<TranslationTestClass> entities = new ArrayList<TranslationTestClass>();
+        for (int i = 0; i < count; i++) {
+            TranslationTestClass entity = new TranslationTestClass();
+            entity.setUserId(i);
+            entity.setName("name" + i);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.eharmony.pho.api.DataStoreTimeoutException;
+import com.eharmony.pho.api.Deadline;
+import com.eharmony.pho.hbase.model.TranslationTestClass;
+
+public class QueryCoalescerTest {
+
+    @Test
+    public void testConcurrentIdenticalQueriesShareOneExecution() throws Exception {
+        final QueryCoalescer coalescer = new QueryCoalescer();
+        coalescer.setEntityClasses(Collections.<Class<?>> singleton(TranslationTestClass.class));
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return coalescer.execute(TranslationTestClass.class, "user", "q", null, new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            release.await();
+                            return "result";
+                        }
+                    });
+                }
+            });
+            while (coalescer.getExecutionCount(TranslationTestClass.class) == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> follower = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return coalescer.execute(TranslationTestClass.class, "user", "q", null, new Callable<String>() {
+                        @Override
+                        public String call() {
+                            throw new AssertionError("identical query executed twice");
+                        }
+                    });
+                }
+            });
+            while (coalescer.getCoalescedCount(TranslationTestClass.class) == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Assert.assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, coalescer.getExecutionCount(TranslationTestClass.class));
+            Assert.assertEquals(1, coalescer.getCoalescedCount(TranslationTestClass.class));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = DataStoreTimeoutException.class)
+    public void testWaitIsBoundedByTheCallerDeadline() throws Exception {
+        final QueryCoalescer coalescer = new QueryCoalescer();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return coalescer.execute(TranslationTestClass.class, "user", "q", null, new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            release.await();
+                            return "result";
+                        }
+                    });
+                }
+            });
+            while (coalescer.getExecutionCount(TranslationTestClass.class) == 0) {
+                Thread.sleep(1);
+            }
+            coalescer.execute(TranslationTestClass.class, "user", "q", Deadline.after(10, TimeUnit.MILLISECONDS),
+                    new Callable<String>() {
+                        @Override
+                        public String call() {
+                            return "not coalesced";
+                        }
+                    });
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
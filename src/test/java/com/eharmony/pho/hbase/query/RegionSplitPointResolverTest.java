@@ -0,0 +1,50 @@
+package com.eharmony.pho.hbase.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegionSplitPointResolverTest {
+
+    @Test
+    public void testSplitPointsOfAscendingKeys() {
+        List<byte[]> startKeys = Arrays.asList(new byte[0], key("b", SortOrder.ASC, QueryConstants.SEPARATOR_BYTE),
+                key("b", SortOrder.ASC, QueryConstants.SEPARATOR_BYTE), key("d", SortOrder.ASC,
+                        QueryConstants.SEPARATOR_BYTE));
+        Assert.assertEquals(Arrays.<Object> asList("b", "d"),
+                RegionSplitPointResolver.decodeSplitPoints(startKeys, PVarchar.INSTANCE, SortOrder.ASC));
+    }
+
+    @Test
+    public void testSplitPointsOfDescendingKeysAreAscending() {
+        // regions of a DESC key are in descending value order
+        List<byte[]> startKeys = Arrays.asList(new byte[0], PInteger.INSTANCE.toBytes(30, SortOrder.DESC),
+                PInteger.INSTANCE.toBytes(20, SortOrder.DESC), PInteger.INSTANCE.toBytes(20, SortOrder.DESC),
+                PInteger.INSTANCE.toBytes(10, SortOrder.DESC));
+        Assert.assertEquals(Arrays.<Object> asList(10, 20, 30),
+                RegionSplitPointResolver.decodeSplitPoints(startKeys, PInteger.INSTANCE, SortOrder.DESC));
+    }
+
+    @Test
+    public void testVariableWidthDescendingKeysEndAtTheDescendingSeparator() {
+        byte descSeparator = SortOrder.invert(QueryConstants.SEPARATOR_BYTE);
+        List<byte[]> startKeys = Arrays.asList(new byte[0], key("m", SortOrder.DESC, descSeparator),
+                key("c", SortOrder.DESC, descSeparator));
+        Assert.assertEquals(Arrays.<Object> asList("c", "m"),
+                RegionSplitPointResolver.decodeSplitPoints(startKeys, PVarchar.INSTANCE, SortOrder.DESC));
+    }
+
+    // leading varchar column, separator, then a second key column
+    private static byte[] key(String leading, SortOrder sortOrder, byte separator) {
+        return Bytes.add(PVarchar.INSTANCE.toBytes(leading, sortOrder), new byte[] { separator },
+                PInteger.INSTANCE.toBytes(7));
+    }
+
+}
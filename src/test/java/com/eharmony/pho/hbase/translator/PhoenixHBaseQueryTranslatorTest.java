@@ -4,6 +4,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,15 +14,18 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.eharmony.pho.hbase.model.EmbededEntityExample;
 import com.eharmony.pho.hbase.model.TranslationTestClass;
 import com.eharmony.pho.mapper.EntityPropertiesMappingContext;
 import com.eharmony.pho.mapper.EntityPropertiesResolver;
+import com.eharmony.pho.query.QueryHint;
 import com.eharmony.pho.query.QuerySelect;
 import com.eharmony.pho.query.QueryUpdate;
 import com.eharmony.pho.query.builder.QueryBuilder;
 import com.eharmony.pho.query.builder.QueryUpdateBuilder;
 import com.eharmony.pho.query.criterion.Ordering;
 import com.eharmony.pho.query.criterion.Restrictions;
+import com.eharmony.pho.query.projection.Projections;
 
 public class PhoenixHBaseQueryTranslatorTest {
 
@@ -222,6 +226,228 @@ public class PhoenixHBaseQueryTranslatorTest {
 
     }
     
+    @Test
+    public void testTranslateParameterizedSelect() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 2))
+                .add(Restrictions.like("name", "vija'y"))
+                .addOrder(Ordering.desc("createdAt"))
+                .setMaxResults(10)
+                .build();
+        ParameterizedQuery parameterizedQuery = translator.translateParameterized(query);
+        Assert.assertEquals(
+                "SELECT * FROM user WHERE (uid = ?) AND (user_name LIKE ?) ORDER BY created_date DESC NULLS FIRST LIMIT 10",
+                parameterizedQuery.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(2, "%vija'y%"), parameterizedQuery.getParameters());
+        // literal mode is not affected by parameterized translations
+        Assert.assertEquals(
+                "SELECT * FROM user WHERE (uid = 2) AND (user_name LIKE '%vija''y%') ORDER BY created_date DESC NULLS FIRST LIMIT 10",
+                translator.translate(query));
+    }
+
+    @Test
+    public void testTranslateRowValueIn() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.in(new String[] { "userId", "name" },
+                        Arrays.asList(new Object[] { 1, "a" }, new Object[] { 2, "b" })))
+                .build();
+        Assert.assertEquals("SELECT * FROM user WHERE (uid, user_name) IN ((1, 'a'), (2, 'b'))",
+                translator.translate(query));
+        ParameterizedQuery parameterizedQuery = translator.translateParameterized(query);
+        Assert.assertEquals("SELECT * FROM user WHERE (uid, user_name) IN ((?, ?), (?, ?))",
+                parameterizedQuery.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(1, "a", 2, "b"), parameterizedQuery.getParameters());
+        // a single column is compared without the row value constructor
+        Assert.assertEquals("SELECT * FROM user WHERE uid IN (1, 2)", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.in(new String[] { "userId" }, Arrays.asList(new Object[] { 1 }, new Object[] { 2 })))
+                .build()));
+    }
+
+    @Test
+    public void testTranslateDelete() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).delete()
+                .add(Restrictions.lt("createdAt", 5))
+                .build();
+        Assert.assertEquals("DELETE FROM user WHERE created_date < 5", translator.translate(query));
+        Assert.assertEquals("DELETE FROM user WHERE created_date < ?", translator.translateParameterized(query)
+                .getQueryString());
+
+        TranslationTestClass entity = new TranslationTestClass();
+        entity.setUserId(7);
+        ParameterizedQuery deleteByKey = translator.translateDeleteByKey(entity);
+        Assert.assertEquals("DELETE FROM user WHERE uid = ?", deleteByKey.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(7), deleteByKey.getParameters());
+    }
+
+    @Test
+    public void testTranslateUpdateByCriteria() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        TranslationTestClass entity = new TranslationTestClass();
+        entity.setName("O'Neil");
+        QueryUpdate<TranslationTestClass> query = QueryUpdateBuilder.builderFor(entity).update()
+                .setSelectedFields("name", "password").add(Restrictions.lt("createdAt", 5)).build();
+        Assert.assertEquals(
+                "UPSERT INTO user(uid, user_name, pwd) SELECT uid, 'O''Neil', NULL FROM user WHERE created_date < 5",
+                translator.translate(query));
+        ParameterizedQuery parameterizedQuery = translator.translateParameterized(query);
+        Assert.assertEquals(
+                "UPSERT INTO user(uid, user_name, pwd) SELECT uid, 'O''Neil', NULL FROM user WHERE created_date < ?",
+                parameterizedQuery.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(5), parameterizedQuery.getParameters());
+    }
+
+    @Test
+    public void testTranslateHintsKeepProjection() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select(Arrays.asList("name"))
+                .addHint(QueryHint.index("user_name_idx"), QueryHint.skipScan()).setQueryHint("/*+ NO_CACHE */")
+                .add(Restrictions.eq("userId", 1)).build();
+        Assert.assertEquals(
+                "SELECT /*+ INDEX(user user_name_idx) SKIP_SCAN NO_CACHE */ user_name FROM user WHERE uid = 1",
+                translator.translate(query));
+    }
+
+    @Test
+    public void testTranslateHintsCoveringIndex() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        Assert.assertEquals("SELECT /*+ INDEX(user user_name_idx) */ uid, created_date FROM user"
+                + " WHERE (user_name = 'bob') AND (created_date > 5)", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class).select(Arrays.asList("userId", "createdAt"))
+                .add(Restrictions.eq("name", "bob")).add(Restrictions.gt("createdAt", 5)).build()));
+        // password is not covered by the index
+        Assert.assertEquals("SELECT * FROM user WHERE user_name = 'bob'", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class).select().add(Restrictions.eq("name", "bob")).build()));
+        // the index can not seek on a disjunct
+        Assert.assertEquals("SELECT uid FROM user WHERE (user_name = 'bob') OR (uid = 1)", translator.translate(
+                QueryBuilder.builderFor(TranslationTestClass.class).select(Arrays.asList("userId"))
+                        .add(Restrictions.or(Restrictions.eq("name", "bob"), Restrictions.eq("userId", 1)))
+                        .build()));
+    }
+
+    @Test
+    public void testTranslateEntityDefaultHints() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        Assert.assertEquals("SELECT /*+ INDEX(embded_model embded_model_idx) SMALL */ * FROM embded_model",
+                translator.translate(QueryBuilder.builderFor(EmbededEntityExample.class).select().build()));
+        Assert.assertEquals("SELECT /*+ SMALL INDEX(embded_model other_idx) */ * FROM embded_model",
+                translator.translate(QueryBuilder.builderFor(EmbededEntityExample.class).select()
+                        .addHint(QueryHint.index("other_idx")).build()));
+    }
+
+    @Test
+    public void testTranslateNestedJunctions() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.or(Restrictions.eq("name", "o'neil"), Restrictions.isNull("password")))
+                .add(Restrictions.and(Restrictions.gt("userId", 5)))
+                .add(Restrictions.like("name", "a\\b")).build();
+        String expected = "SELECT * FROM user WHERE ((user_name = 'o''neil') OR (pwd IS NULL)) AND (uid > 5)"
+                + " AND (user_name LIKE '%a\\\\b%')";
+        Assert.assertEquals(expected, translator.translate(query));
+        // criteria translated on their own render the same as within the query
+        Assert.assertEquals(expected.substring(expected.indexOf("WHERE ") + 6),
+                translator.translate(query.getCriteria(), TranslationTestClass.class));
+    }
+
+    @Test
+    public void testTranslateOptimizedCriteria() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.or(Restrictions.eq("userId", 1), Restrictions.eq("userId", 2)))
+                .add(Restrictions.and(Restrictions.gte("createdAt", 5), Restrictions.lte("createdAt", 10))).build();
+        Assert.assertEquals("SELECT * FROM user WHERE (uid IN (1, 2)) AND (created_date BETWEEN 5 AND 10)",
+                translator.translate(query));
+
+        QuerySelect<TranslationTestClass, TranslationTestClass> contradiction = QueryBuilder
+                .builderFor(TranslationTestClass.class).select().add(Restrictions.eq("userId", 1))
+                .add(Restrictions.eq("userId", 2)).build();
+        Assert.assertEquals("SELECT * FROM user WHERE 1 = 0", translator.translate(contradiction));
+
+        translator.setCriteriaOptimizer(null);
+        Assert.assertEquals("SELECT * FROM user WHERE (uid = 1) AND (uid = 2)", translator.translate(contradiction));
+    }
+
+    @Test
+    public void testTranslateSetAndRangeOperators() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select(Arrays.asList("userId"))
+                .add(Restrictions.in("userId", new Object[] { 1, 2, 3 }))
+                .add(Restrictions.notIn("name", new Object[] { "a", "b" }))
+                .add(Restrictions.between("createdAt", 5, 10))
+                .add(Restrictions.contains("password", new Object[] { "x" })).build();
+        Assert.assertEquals("SELECT uid FROM user WHERE (uid IN (1, 2, 3)) AND (user_name NOT IN ('a', 'b'))"
+                + " AND (created_date BETWEEN 5 AND 10) AND ('x' = ANY(pwd))", translator.translate(query));
+
+        ParameterizedQuery parameterizedQuery = translator.translateParameterized(query);
+        Assert.assertEquals("SELECT uid FROM user WHERE (uid IN (?, ?, ?)) AND (user_name NOT IN (?, ?))"
+                + " AND (created_date BETWEEN ? AND ?) AND (? = ANY(pwd))", parameterizedQuery.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(1, 2, 3, "a", "b", 5, 10, "x"), parameterizedQuery.getParameters());
+        // the cached template collects the parameters in the same order
+        Assert.assertEquals(parameterizedQuery, translator.translateParameterized(query));
+
+        Assert.assertEquals("SELECT * FROM user WHERE 1 = 0", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class).select().add(Restrictions.in("userId", new Object[0]))
+                .build()));
+    }
+
+    @Test
+    public void testTranslateAggregates() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        QuerySelect<TranslationTestClass, TranslationTestClass> query = QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .addProjection(Projections.property("name"), Projections.count().as("userId"),
+                        Projections.max("createdAt"))
+                .add(Restrictions.gt("userId", 10))
+                .groupBy("name")
+                .build();
+        Assert.assertEquals(
+                "SELECT user_name AS \"name\", COUNT(*) AS \"userId\", MAX(created_date) FROM user WHERE uid > 10 GROUP BY user_name",
+                translator.translate(query));
+        Assert.assertEquals("SELECT COUNT(DISTINCT uid) FROM user", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class, Long.class).select()
+                .addProjection(Projections.countDistinct("userId")).build()));
+        Assert.assertEquals("SELECT DISTINCT user_name AS \"name\" FROM user", translator.translate(QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .addProjection(Projections.property("name")).distinct().build()));
+    }
+
+    @Test
+    public void testTranslateParameterizedSelectReusesQueryShape() throws ClassNotFoundException {
+        PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
+        ParameterizedQuery first = translator.translateParameterized(QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 2))
+                .add(Restrictions.or(Restrictions.eq("name", "a"), Restrictions.ilike("name", "b")))
+                .build());
+        ParameterizedQuery second = translator.translateParameterized(QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 3))
+                .add(Restrictions.or(Restrictions.eq("name", "c"), Restrictions.ilike("name", "d")))
+                .build());
+        Assert.assertEquals(first.getQueryString(), second.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(3, "c", "%d%"), second.getParameters());
+        Assert.assertEquals(1, translator.getTemplateCacheStats().hitCount());
+        Assert.assertEquals(1, translator.getTemplateCacheStats().missCount());
+
+        translator.translateParameterized(QueryBuilder
+                .builderFor(TranslationTestClass.class).select()
+                .add(Restrictions.eq("userId", 3))
+                .add(Restrictions.gt("createdAt", new Date()))
+                .build());
+        Assert.assertEquals(2, translator.getTemplateCacheStats().missCount());
+    }
+
     @Test
     public void testTranslateUpsertWithQuoteInName() throws ClassNotFoundException {
         PhoenixHBaseQueryTranslator translator = new PhoenixHBaseQueryTranslator(entityPropertiesResolver);
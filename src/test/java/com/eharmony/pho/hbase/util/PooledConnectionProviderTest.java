@@ -0,0 +1,99 @@
+package com.eharmony.pho.hbase.util;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PooledConnectionProviderTest {
+
+    @Test
+    public void testReleasedConnectionIsReused() throws SQLException {
+        PooledConnectionProvider provider = new MockConnectionProvider(0, 2);
+        Connection first = provider.getConnection();
+        provider.releaseConnection(first);
+        Connection second = provider.getConnection();
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, provider.getCreatedCount());
+        Assert.assertEquals(2, provider.getAcquireCount());
+        verify(first).rollback();
+        provider.close();
+    }
+
+    @Test
+    public void testPrewarmedConnections() throws SQLException {
+        PooledConnectionProvider provider = new MockConnectionProvider(2, 4);
+        Assert.assertEquals(2, provider.getIdleCount());
+        provider.getConnection();
+        Assert.assertEquals(1, provider.getIdleCount());
+        Assert.assertEquals(1, provider.getActiveCount());
+        Assert.assertEquals(2, provider.getCreatedCount());
+        provider.close();
+    }
+
+    @Test
+    public void testReplenishingIdleConnectionsRespectsMaxTotal() throws SQLException {
+        PooledConnectionProvider provider = new MockConnectionProvider(5, 10);
+        for (int i = 0; i < 9; i++) {
+            provider.getConnection();
+        }
+        Assert.assertEquals(0, provider.getIdleCount());
+        Assert.assertEquals(9, provider.getCreatedCount());
+
+        provider.evictIdleConnections();
+
+        Assert.assertEquals(1, provider.getIdleCount());
+        Assert.assertEquals(10, provider.getCreatedCount());
+        provider.getConnection();
+        provider.evictIdleConnections();
+        Assert.assertEquals(0, provider.getIdleCount());
+        Assert.assertEquals(10, provider.getCreatedCount());
+        provider.close();
+    }
+
+    @Test
+    public void testAcquireTimesOutWhenPoolIsExhausted() throws SQLException {
+        PooledConnectionProvider provider = new MockConnectionProvider(0, 1);
+        provider.getConnection();
+        try {
+            provider.getConnection();
+            Assert.fail("expected timeout");
+        } catch (SQLException sqle) {
+            Assert.assertEquals(1, provider.getAcquireTimeoutCount());
+        }
+        provider.close();
+    }
+
+    @Test
+    public void testInvalidIdleConnectionIsReplaced() throws SQLException {
+        PooledConnectionProvider provider = new MockConnectionProvider(0, 2);
+        Connection first = provider.getConnection();
+        provider.releaseConnection(first);
+        when(first.isValid(PooledConnectionProvider.DEFAULT_VALIDATION_TIMEOUT_SEC)).thenReturn(false);
+        Connection second = provider.getConnection();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, provider.getDestroyedCount());
+        verify(first).close();
+        provider.close();
+    }
+
+    private static class MockConnectionProvider extends PooledConnectionProvider {
+
+        MockConnectionProvider(int minIdle, int maxTotal) throws SQLException {
+            super("jdbc:phoenix:localhost", minIdle, maxTotal, 10, 0);
+        }
+
+        @Override
+        protected Connection openConnection() throws SQLException {
+            Connection connection = mock(Connection.class);
+            when(connection.isValid(PooledConnectionProvider.DEFAULT_VALIDATION_TIMEOUT_SEC)).thenReturn(true);
+            return connection;
+        }
+    }
+
+}
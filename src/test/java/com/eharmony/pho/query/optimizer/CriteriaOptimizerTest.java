@@ -0,0 +1,89 @@
+package com.eharmony.pho.query.optimizer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.eharmony.pho.query.criterion.Criterion;
+import com.eharmony.pho.query.criterion.Restrictions;
+import com.eharmony.pho.query.criterion.expression.EqualityExpression;
+
+public class CriteriaOptimizerTest {
+
+    private final CriteriaOptimizer optimizer = new CriteriaOptimizer();
+
+    @Test
+    public void testNestedJunctionsAreFlattenedAndDeduplicated() {
+        Criterion criteria = Restrictions.and(Restrictions.eq("name", "a"),
+                Restrictions.and(Restrictions.eq("userId", 1), Restrictions.eq("name", "a")));
+
+        Assert.assertEquals(Restrictions.and(Restrictions.eq("name", "a"), Restrictions.eq("userId", 1)),
+                optimizer.optimize(criteria));
+    }
+
+    @Test
+    public void testContradictionsAreFolded() {
+        Assert.assertTrue(CriteriaRules.isAlwaysFalse(optimizer.optimize(Restrictions.and(
+                Restrictions.eq("userId", 1), Restrictions.eq("userId", 2)))));
+        Assert.assertTrue(CriteriaRules.isAlwaysFalse(optimizer.optimize(Restrictions.and(
+                Restrictions.isNull("name"), Restrictions.isNotNull("name")))));
+        Assert.assertTrue(CriteriaRules.isAlwaysFalse(optimizer.optimize(Restrictions.in("userId", new Object[0]))));
+        Assert.assertTrue(CriteriaRules.isAlwaysTrue(optimizer.optimize(Restrictions.or(
+                Restrictions.isNull("name"), Restrictions.isNotNull("name")))));
+        // an always false branch of a disjunction is dropped
+        Assert.assertEquals(Restrictions.eq("name", "a"), optimizer.optimize(Restrictions.or(
+                Restrictions.eq("name", "a"), Restrictions.between("userId", 5, 1))));
+    }
+
+    @Test
+    public void testEqualitiesNotOrderedAreNotFolded() {
+        Criterion scales = Restrictions.and(Restrictions.eq("amount", new BigDecimal("1.0")),
+                Restrictions.eq("amount", new BigDecimal("1.00")));
+        Assert.assertSame(scales, optimizer.optimize(scales));
+
+        Criterion keys = Restrictions.and(Restrictions.eq("key", new byte[] { 1, 2 }),
+                Restrictions.eq("key", new byte[] { 1, 2 }));
+        Assert.assertSame(keys, optimizer.optimize(keys));
+        Criterion otherKeys = Restrictions.and(Restrictions.eq("key", new byte[] { 1 }),
+                Restrictions.eq("key", new byte[] { 2 }));
+        Assert.assertFalse(CriteriaRules.isAlwaysFalse(optimizer.optimize(otherKeys)));
+
+        Assert.assertTrue(CriteriaRules.isAlwaysFalse(optimizer.optimize(Restrictions.and(
+                Restrictions.eq("amount", new BigDecimal("1.0")), Restrictions.eq("amount", new BigDecimal("2"))))));
+    }
+
+    @Test
+    public void testBoundsAreMergedAndEqualitiesCollapsed() {
+        Assert.assertEquals(Restrictions.and(Restrictions.between("userId", 1, 9), Restrictions.eq("name", "a")),
+                optimizer.optimize(Restrictions.and(Restrictions.gte("userId", 1), Restrictions.eq("name", "a"),
+                        Restrictions.lte("userId", 9))));
+        Assert.assertEquals(Restrictions.in("userId", new Object[] { 1, 2, 3 }), optimizer.optimize(Restrictions.or(
+                Restrictions.eq("userId", 1), Restrictions.in("userId", new Object[] { 2, 3 }),
+                Restrictions.eq("userId", 2))));
+    }
+
+    @Test
+    public void testCustomRules() {
+        List<CriteriaRule> rules = new ArrayList<CriteriaRule>(CriteriaRules.defaultRules());
+        rules.add(new CriteriaRule() {
+            @Override
+            public Criterion apply(Criterion criterion) {
+                if (criterion instanceof EqualityExpression && "legacyId".equals(((EqualityExpression) criterion)
+                        .getPropertyName())) {
+                    return Restrictions.eq("userId", ((EqualityExpression) criterion).getValue());
+                }
+                return criterion;
+            }
+        });
+        optimizer.setRules(rules);
+
+        Assert.assertEquals(Restrictions.eq("userId", 1), optimizer.optimize(Restrictions.and(
+                Restrictions.eq("legacyId", 1), Restrictions.eq("userId", 1))));
+        Criterion unchanged = Restrictions.eq("name", "a");
+        Assert.assertSame(unchanged, optimizer.optimize(unchanged));
+    }
+
+}